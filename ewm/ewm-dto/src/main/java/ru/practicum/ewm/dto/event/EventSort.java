@@ -2,6 +2,6 @@ package ru.practicum.ewm.dto.event;
 
 public enum EventSort {
     EVENT_DATE,
-    VIEWS
+    VIEWS,
+    RELEVANCE
 }
-
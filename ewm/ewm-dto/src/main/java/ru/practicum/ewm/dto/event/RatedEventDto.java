@@ -0,0 +1,19 @@
+package ru.practicum.ewm.dto.event;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RatedEventDto {
+
+    private EventShortDto event;
+
+    private Long likes;
+
+    private Long dislikes;
+
+    private Double score; // значение, по которому упорядочен рейтинг
+}
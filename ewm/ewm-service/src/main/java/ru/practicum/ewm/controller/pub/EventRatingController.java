@@ -1,16 +1,22 @@
 package ru.practicum.ewm.controller.pub;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.ewm.dto.event.EventRatingDto;
+import ru.practicum.ewm.dto.event.RatedEventDto;
 import ru.practicum.ewm.service.EventRatingService;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/events")
 @RequiredArgsConstructor
+@Validated
 public class EventRatingController {
 
     private final EventRatingService ratingService;
@@ -25,10 +31,28 @@ public class EventRatingController {
         return ratingService.setRating(eventId, userId, liked);
     }
 
+    // Отозвать оценку
+    @DeleteMapping("/{eventId}/rating")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void removeEventRating(
+            @PathVariable Long eventId,
+            @RequestParam Long userId) {
+        ratingService.removeRating(eventId, userId);
+    }
+
     // Получить рейтинг события
     @GetMapping("/{eventId}/rating")
     @ResponseStatus(HttpStatus.OK)
     public Map<String, Long> getEventRating(@PathVariable Long eventId) {
         return ratingService.getRating(eventId);
     }
+
+    // Топ опубликованных событий по оценкам
+    @GetMapping("/top-rated")
+    @ResponseStatus(HttpStatus.OK)
+    public List<RatedEventDto> getTopRated(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(defaultValue = "10") @Positive @Max(100) int size) {
+        return ratingService.getTopRated(categoryId, size);
+    }
 }
@@ -5,14 +5,14 @@ import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.ewm.dto.event.EventFullDto;
 import ru.practicum.ewm.dto.event.EventShortDto;
 import ru.practicum.ewm.dto.event.EventSort;
 import ru.practicum.ewm.service.EventService;
-import ru.practicum.stats.client.StatsClient;
-import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.service.PublicEventsPage;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -24,12 +24,13 @@ import java.util.List;
 @Validated
 public class PublicEventController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final EventService eventService;
-    private final StatsClient statsClient;
 
     // 16 Получение событий с возможностью фильтрации
     @GetMapping
-    public List<EventShortDto> findPublic(
+    public ResponseEntity<List<EventShortDto>> findPublic(
             @RequestParam(required = false) String text,
             @RequestParam(required = false) List<Long> categories,
             @RequestParam(required = false) Boolean paid,
@@ -39,23 +40,22 @@ public class PublicEventController {
             @RequestParam(defaultValue = "EVENT_DATE") EventSort sort,
             @RequestParam(defaultValue = "0") int from,
             @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor,
             HttpServletRequest request
     ) {
-        statsClient.saveHit(
-                EndpointHitDto.builder()
-                        .app("ewm-service")
-                        .uri(request.getRequestURI())
-                        .ip(request.getRemoteAddr())
-                        .timestamp(LocalDateTime.now())
-                        .build()
-        );
-
-        return eventService.findPublic(
+        PublicEventsPage page = eventService.findPublic(
                 text, categories, paid,
                 rangeStart, rangeEnd,
-                onlyAvailable, sort, from, size, request
+                onlyAvailable, sort, from, size, cursor, request
         );
-}
+
+        // Курсор следующей страницы — в заголовке, тело ответа остаётся прежним массивом
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.events());
+    }
 
     // 17 Получение подробной информации об опубликованном событии по его идентификатору
     @GetMapping("/{id}")
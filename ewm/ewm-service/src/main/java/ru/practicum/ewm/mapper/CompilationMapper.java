@@ -31,6 +31,16 @@ public class CompilationMapper {
                 .build();
     }
 
+    // Compilation -> CompilationDto с заранее загруженными событиями, без обхода ленивой коллекции
+    public CompilationDto toDto(Compilation compilation, List<EventShortDto> events) {
+        return CompilationDto.builder()
+                .id(compilation.getId())
+                .title(compilation.getTitle())
+                .pinned(compilation.getPinned())
+                .events(events)
+                .build();
+    }
+
     // DTO -> Entity
     public Compilation toEntity(CompilationDto dto, List<Event> events) {
         if (dto == null) return null;
@@ -2,8 +2,11 @@ package ru.practicum.ewm.mapper;
 
 import lombok.experimental.UtilityClass;
 import ru.practicum.ewm.dto.Location;
+import ru.practicum.ewm.dto.category.CategoryDto;
 import ru.practicum.ewm.dto.event.*;
+import ru.practicum.ewm.dto.user.UserShortDto;
 import ru.practicum.ewm.model.*;
+import ru.practicum.ewm.repository.EventShortView;
 
 import java.time.LocalDateTime;
 
@@ -45,6 +48,23 @@ public class EventMapper {
                 .build();
     }
 
+    public EventShortDto toShortDto(EventShortView view) {
+        return EventShortDto.builder()
+                .id(view.id())
+                .title(view.title())
+                .annotation(view.annotation())
+                .category(new CategoryDto(view.categoryId(), view.categoryName()))
+                .initiator(UserShortDto.builder()
+                        .id(view.initiatorId())
+                        .name(view.initiatorName())
+                        .build())
+                .eventDate(view.eventDate())
+                .paid(view.paid())
+                .confirmedRequests(view.confirmedRequests())
+                .views(view.views())
+                .build();
+    }
+
     public Event toEntity(NewEventDto dto, User initiator) {
         Event e = new Event();
 
@@ -3,8 +3,6 @@ package ru.practicum.ewm.mapper;
 import lombok.experimental.UtilityClass;
 import ru.practicum.ewm.dto.event.EventRatingDto;
 import ru.practicum.ewm.model.EventRating;
-import ru.practicum.ewm.model.Event;
-import ru.practicum.ewm.model.User;
 
 @UtilityClass
 public class EventRatingMapper {
@@ -19,16 +17,4 @@ public class EventRatingMapper {
                 .liked(rating.getLiked())
                 .build();
     }
-
-    // DTO to Entity
-    // Нужно передать объект Event и User, так как в Entity хранятся сущности
-    public EventRating toEntity(EventRatingDto dto, Event event, User user) {
-        if (dto == null) return null;
-
-        return EventRating.builder()
-                .event(event)
-                .user(user)
-                .liked(dto.getLiked())
-                .build();
-    }
 }
@@ -2,17 +2,23 @@ package ru.practicum.ewm.mapper;
 
 import lombok.experimental.UtilityClass;
 import ru.practicum.ewm.dto.request.ParticipationRequestDto;
+import ru.practicum.ewm.dto.request.RequestStatus;
 import ru.practicum.ewm.model.ParticipationRequest;
 
 @UtilityClass
 public class ParticipationRequestMapper {
 
     public ParticipationRequestDto toDto(ParticipationRequest r) {
+        return toDto(r, r.getStatus());
+    }
+
+    // Статус, уже записанный в БД массовым UPDATE в обход загруженной сущности
+    public ParticipationRequestDto toDto(ParticipationRequest r, RequestStatus status) {
         return ParticipationRequestDto.builder()
                 .id(r.getId())
                 .event(r.getEvent().getId())
                 .requester(r.getRequester().getId())
-                .status(r.getStatus())
+                .status(status)
                 .created(r.getCreated())
                 .build();
     }
@@ -7,7 +7,12 @@ import ru.practicum.ewm.dto.event.EventState;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "events")
+@Table(name = "events", indexes = {
+        // Keyset-пагинация публичного поиска по (eventDate, id)
+        @Index(name = "idx_events_state_event_date_id", columnList = "state, event_date, id"),
+        // Публичный поиск с sort=VIEWS по синхронизированному столбцу views
+        @Index(name = "idx_events_state_views_id", columnList = "state, views desc, id")
+})
 @Getter
 @Setter
 @Builder
@@ -58,11 +63,13 @@ public class Event {
 
     private LocalDateTime publishedOn;
 
+    // Счётчики меняются только атомарными UPDATE (бронирование мест, синхронизация просмотров):
+    // сохранение сущности не должно перезаписывать их значением, прочитанным раньше
     @Builder.Default
-    @Column(nullable = false)
+    @Column(nullable = false, updatable = false)
     private Long confirmedRequests = 0L;
 
     @Builder.Default
-    @Column(nullable = false)
+    @Column(nullable = false, updatable = false)
     private Long views = 0L;
 }
@@ -0,0 +1,26 @@
+package ru.practicum.ewm.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// Готовые итоги оценок события: меняются атомарными инкрементами вместе с каждой оценкой,
+// чтобы рейтинг читался по первичному ключу, а не подсчётом строк event_rating
+@Entity
+@Table(name = "event_rating_counters")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventRatingCounter {
+
+    @Id
+    @Column(name = "event_id")
+    private Long eventId;
+
+    @Column(nullable = false)
+    private Long likes;
+
+    @Column(nullable = false)
+    private Long dislikes;
+}
@@ -0,0 +1,26 @@
+package ru.practicum.ewm.repository;
+
+import java.time.LocalDateTime;
+
+// Событие подборки в виде проекции EventShortView вместе с id подборки — для загрузки событий
+// всех подборок страницы одним запросом
+public record CompilationEventView(
+        Long compilationId,
+        Long id,
+        String title,
+        String annotation,
+        Long categoryId,
+        String categoryName,
+        Long initiatorId,
+        String initiatorName,
+        LocalDateTime eventDate,
+        Boolean paid,
+        Long confirmedRequests,
+        Long views
+) {
+
+    public EventShortView event() {
+        return new EventShortView(id, title, annotation, categoryId, categoryName, initiatorId, initiatorName,
+                eventDate, paid, confirmedRequests, views);
+    }
+}
@@ -1,11 +1,35 @@
 package ru.practicum.ewm.repository;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.ewm.dto.event.EventState;
 import ru.practicum.ewm.model.Compilation;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface CompilationRepository extends JpaRepository<Compilation, Long> {
 
-    Page<Compilation> findAllByPinned(Boolean pinned, Pageable pageable);
+    // Страницы подборок без count-запроса: общее число публичному API не нужно
+    List<Compilation> findAllByPinned(Boolean pinned, Pageable pageable);
+
+    List<Compilation> findAllBy(Pageable pageable);
+
+    // События в состоянии state для набора подборок одним запросом
+    @Query("""
+            SELECT new ru.practicum.ewm.repository.CompilationEventView(
+                c.id, e.id, e.title, e.annotation, cat.id, cat.name, u.id, u.name,
+                e.eventDate, e.paid, e.confirmedRequests, e.views)
+            FROM Compilation c
+            JOIN c.events e
+            JOIN e.category cat
+            JOIN e.initiator u
+            WHERE c.id IN :compilationIds
+              AND e.state = :state
+            ORDER BY c.id, e.id
+            """)
+    List<CompilationEventView> findEventsOf(@Param("compilationIds") Collection<Long> compilationIds,
+                                            @Param("state") EventState state);
 }
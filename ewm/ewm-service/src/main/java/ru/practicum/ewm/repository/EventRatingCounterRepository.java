@@ -0,0 +1,46 @@
+package ru.practicum.ewm.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.ewm.model.EventRatingCounter;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface EventRatingCounterRepository extends JpaRepository<EventRatingCounter, Long> {
+
+    // Атомарный сдвиг итогов; 0 — счётчика события ещё нет
+    @Modifying
+    @Query("""
+            UPDATE EventRatingCounter c
+            SET c.likes = c.likes + :likes, c.dislikes = c.dislikes + :dislikes
+            WHERE c.eventId = :eventId
+            """)
+    int increment(@Param("eventId") Long eventId, @Param("likes") long likes, @Param("dislikes") long dislikes);
+
+    // Счётчик, посчитанный по самим оценкам (включая сделанные в текущей транзакции).
+    // 0 — строку параллельно успела создать другая транзакция
+    @Modifying
+    @Query(value = """
+            INSERT INTO event_rating_counters (event_id, likes, dislikes)
+            SELECT :eventId,
+                   COALESCE(SUM(CASE WHEN r.liked THEN 1 ELSE 0 END), 0),
+                   COALESCE(SUM(CASE WHEN r.liked THEN 0 ELSE 1 END), 0)
+            FROM event_rating r
+            WHERE r.event_id = :eventId
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int createFromRatings(@Param("eventId") Long eventId);
+
+    // Текущие итоги, категория и состояние событий — для обновления рейтинга событий
+    @Query("""
+            SELECT new ru.practicum.ewm.repository.EventRatingTotals(
+                e.id, e.category.id, e.state, c.likes, c.dislikes)
+            FROM Event e
+            LEFT JOIN EventRatingCounter c ON c.eventId = e.id
+            WHERE e.id IN :eventIds
+            """)
+    List<EventRatingTotals> findTotals(@Param("eventIds") Collection<Long> eventIds);
+}
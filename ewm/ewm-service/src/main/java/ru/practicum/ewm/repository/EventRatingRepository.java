@@ -1,15 +1,64 @@
 package ru.practicum.ewm.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.practicum.ewm.model.EventRating;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface EventRatingRepository extends JpaRepository<EventRating, Long> {
 
-    // Найти рейтинг конкретного пользователя для конкретного события
-    Optional<EventRating> findByEventIdAndUserId(Long eventId, Long userId);
+    // Текущая оценка пользователя без загрузки сущностей
+    @Query("SELECT r.liked FROM EventRating r WHERE r.event.id = :eventId AND r.user.id = :userId")
+    Optional<Boolean> findLiked(@Param("eventId") Long eventId, @Param("userId") Long userId);
 
     // Посчитать количество лайков или дизлайков для события
     long countByEventIdAndLiked(Long eventId, Boolean liked);
+
+    // Итоги по всем оценённым событиям — для построения рейтинга событий
+    @Query("""
+            SELECT new ru.practicum.ewm.repository.EventRatingTotals(
+                e.id, e.category.id, e.state,
+                SUM(CASE WHEN r.liked = true THEN 1L ELSE 0L END),
+                SUM(CASE WHEN r.liked = true THEN 0L ELSE 1L END))
+            FROM EventRating r
+            JOIN r.event e
+            GROUP BY e.id, e.category.id, e.state
+            """)
+    List<EventRatingTotals> findAllTotals();
+
+    // Смена оценки на противоположную; 0 — оценки нет или она уже такая
+    @Modifying
+    @Query("""
+            UPDATE EventRating r
+            SET r.liked = :liked
+            WHERE r.event.id = :eventId
+              AND r.user.id = :userId
+              AND r.liked <> :liked
+            """)
+    int flip(@Param("eventId") Long eventId, @Param("userId") Long userId, @Param("liked") Boolean liked);
+
+    // Новая оценка, если событие и пользователь существуют, а оценки ещё нет; 0 — иначе
+    @Modifying
+    @Query(value = """
+            INSERT INTO event_rating (event_id, user_id, liked)
+            SELECT :eventId, :userId, :liked
+            WHERE EXISTS (SELECT 1 FROM events WHERE id = :eventId)
+              AND EXISTS (SELECT 1 FROM users WHERE id = :userId)
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("eventId") Long eventId, @Param("userId") Long userId, @Param("liked") Boolean liked);
+
+    // Удаление оценки, только если она всё ещё равна прочитанной; 0 — её успели изменить или удалить
+    @Modifying
+    @Query("""
+            DELETE FROM EventRating r
+            WHERE r.event.id = :eventId
+              AND r.user.id = :userId
+              AND r.liked = :liked
+            """)
+    int deleteIfEquals(@Param("eventId") Long eventId, @Param("userId") Long userId, @Param("liked") Boolean liked);
 }
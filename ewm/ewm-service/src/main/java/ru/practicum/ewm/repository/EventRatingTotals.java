@@ -0,0 +1,14 @@
+package ru.practicum.ewm.repository;
+
+import ru.practicum.ewm.dto.event.EventState;
+
+// Итоги оценок события вместе с тем, что нужно рейтингу событий: категория и состояние.
+// likes/dislikes равны null, если у события ещё нет строки в event_rating_counters
+public record EventRatingTotals(
+        Long eventId,
+        Long categoryId,
+        EventState state,
+        Long likes,
+        Long dislikes
+) {
+}
@@ -2,32 +2,77 @@ package ru.practicum.ewm.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import ru.practicum.ewm.model.Event;
 import ru.practicum.ewm.dto.event.EventState;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface EventRepository extends JpaRepository<Event, Long>,
-        JpaSpecificationExecutor<Event> {
+        JpaSpecificationExecutor<Event>, EventSearchRepository {
 
     // 4 Удаление категории
     boolean existsByCategoryId(Long categoryId);
 
-    // 6 Получение событий, добавленных текущим пользователем
-    List<Event> findAllByInitiatorId(Long userId, Pageable pageable);
+    // EventMapper читает category и initiator у каждого события, поэтому методы, отдающие события наружу,
+    // подтягивают их тем же запросом, а не отдельным select на каждое событие
+
+    // 6 Получение событий, добавленных текущим пользователем — сразу в проекцию для EventShortDto
+    @Query("""
+            SELECT new ru.practicum.ewm.repository.EventShortView(
+                e.id, e.title, e.annotation, c.id, c.name, u.id, u.name,
+                e.eventDate, e.paid, e.confirmedRequests, e.views)
+            FROM Event e
+            JOIN e.category c
+            JOIN e.initiator u
+            WHERE u.id = :userId
+            ORDER BY e.id
+            """)
+    List<EventShortView> findShortByInitiatorId(@Param("userId") Long userId, Pageable pageable);
+
+    // Топ событий по оценкам: карточки событий из рейтинга одним запросом
+    @Query("""
+            SELECT new ru.practicum.ewm.repository.EventShortView(
+                e.id, e.title, e.annotation, c.id, c.name, u.id, u.name,
+                e.eventDate, e.paid, e.confirmedRequests, e.views)
+            FROM Event e
+            JOIN e.category c
+            JOIN e.initiator u
+            WHERE e.id IN :ids
+              AND e.state = :state
+            """)
+    List<EventShortView> findShortByIdInAndState(@Param("ids") Collection<Long> ids,
+                                                 @Param("state") EventState state);
 
     // 8 Получение полной информации о событии добавленном текущим пользователем
+    @EntityGraph(attributePaths = {"category", "initiator"})
     Optional<Event> findByIdAndInitiatorId(Long userId, Long eventId);
 
-    // 14 Поиск событий
-    @Query("""
+    // События подборки
+    @Override
+    @EntityGraph(attributePaths = {"category", "initiator"})
+    List<Event> findAllById(Iterable<Long> ids);
+
+    // 14 Поиск событий; count-запрос отдельный и без join-ов
+    @EntityGraph(attributePaths = {"category", "initiator"})
+    @Query(value = """
             SELECT e FROM Event e
+            WHERE (:useUsers = false OR e.initiator.id IN :users)
+              AND (:useStates = false OR e.state IN :states)
+              AND (:useCategories = false OR e.category.id IN :categories)
+              AND e.eventDate >= :rangeStart
+              AND e.eventDate <= :rangeEnd
+            """,
+            countQuery = """
+            SELECT COUNT(e) FROM Event e
             WHERE (:useUsers = false OR e.initiator.id IN :users)
               AND (:useStates = false OR e.state IN :states)
               AND (:useCategories = false OR e.category.id IN :categories)
@@ -51,43 +96,36 @@ public interface EventRepository extends JpaRepository<Event, Long>,
     );
 
     // 17 Получение подробной информации об опубликованном событии по его идентификатору
+    @EntityGraph(attributePaths = {"category", "initiator"})
     Optional<Event> findByIdAndState(Long id, EventState state);
 
-    // 16 Получение событий с возможностью фильтрации
+    // Синхронизация просмотров: идентификаторы событий в состоянии state порциями по возрастанию id
+    @Query("SELECT e.id FROM Event e WHERE e.state = :state AND e.id > :afterId ORDER BY e.id")
+    List<Long> findIdsByStateAfter(@Param("state") EventState state, @Param("afterId") Long afterId,
+                                   Pageable pageable);
+
+    // Свежее число подтверждённых заявок в обход уже загруженной сущности
+    @Query("SELECT e.confirmedRequests FROM Event e WHERE e.id = :eventId")
+    long findConfirmedRequests(@Param("eventId") Long eventId);
+
+    // Атомарное бронирование мест: строка меняется, только если после прибавки лимит не превышен
+    // (лимит 0 — без ограничений). Возвращает 0, если мест не хватило
+    @Modifying
     @Query("""
-            SELECT e FROM Event e
-            WHERE e.state = :state
-              AND (
-                   LOWER(e.annotation) LIKE LOWER(CONCAT('%', :text, '%'))
-                OR LOWER(e.description) LIKE LOWER(CONCAT('%', :text, '%'))
-              )
-              AND (:categoryIds IS NULL OR e.category.id IN :categoryIds)
-              AND (:paid IS NULL OR e.paid = :paid)
-              AND e.eventDate BETWEEN :rangeStart AND :rangeEnd
+            UPDATE Event e
+            SET e.confirmedRequests = e.confirmedRequests + :seats
+            WHERE e.id = :eventId
+              AND (e.participantLimit IS NULL OR e.participantLimit = 0
+                   OR e.confirmedRequests + :seats <= e.participantLimit)
             """)
-    Page<Event> searchPublicWithText(
-            @Param("text") String text,
-            @Param("categoryIds") List<Long> categoryIds,
-            @Param("paid") Boolean paid,
-            @Param("rangeStart") LocalDateTime rangeStart,
-            @Param("rangeEnd") LocalDateTime rangeEnd,
-            @Param("state") EventState state,
-            Pageable pageable
-    );
+    int reserveSeats(@Param("eventId") Long eventId, @Param("seats") long seats);
 
+    @Modifying
     @Query("""
-            SELECT e FROM Event e
-            WHERE e.state = :state
-              AND (:categoryIds IS NULL OR e.category.id IN :categoryIds)
-              AND (:paid IS NULL OR e.paid = :paid)
-              AND e.eventDate BETWEEN :rangeStart AND :rangeEnd
+            UPDATE Event e
+            SET e.confirmedRequests = e.confirmedRequests - :seats
+            WHERE e.id = :eventId
+              AND e.confirmedRequests >= :seats
             """)
-    Page<Event> searchPublicWithoutText(
-            @Param("categoryIds") List<Long> categoryIds,
-            @Param("paid") Boolean paid,
-            @Param("rangeStart") LocalDateTime rangeStart,
-            @Param("rangeEnd") LocalDateTime rangeEnd,
-            @Param("state") EventState state,
-            Pageable pageable
-    );
+    int releaseSeats(@Param("eventId") Long eventId, @Param("seats") long seats);
 }
@@ -0,0 +1,13 @@
+package ru.practicum.ewm.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import ru.practicum.ewm.model.Event;
+
+public interface EventSearchRepository {
+
+    // Страница по спецификации без COUNT-запроса сразу в плоскую проекцию для EventShortDto:
+    // выбирается size + 1 строк, лишняя лишь сообщает о следующей
+    Slice<EventShortView> findShortSlice(Specification<Event> spec, Pageable pageable);
+}
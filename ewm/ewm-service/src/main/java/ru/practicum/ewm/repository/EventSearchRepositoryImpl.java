@@ -0,0 +1,69 @@
+package ru.practicum.ewm.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import ru.practicum.ewm.model.Category;
+import ru.practicum.ewm.model.Event;
+import ru.practicum.ewm.model.User;
+
+import java.util.List;
+
+public class EventSearchRepositoryImpl implements EventSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Slice<EventShortView> findShortSlice(Specification<Event> spec, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<EventShortView> query = cb.createQuery(EventShortView.class);
+        Root<Event> root = query.from(Event.class);
+        Join<Event, Category> category = root.join("category");
+        Join<Event, User> initiator = root.join("initiator");
+        query.select(cb.construct(EventShortView.class,
+                root.get("id"),
+                root.get("title"),
+                root.get("annotation"),
+                category.get("id"),
+                category.get("name"),
+                initiator.get("id"),
+                initiator.get("name"),
+                root.get("eventDate"),
+                root.get("paid"),
+                root.get("confirmedRequests"),
+                root.get("views")));
+
+        return slice(query, root, spec, pageable);
+    }
+
+    private <R> Slice<R> slice(CriteriaQuery<R> query, Root<Event> root, Specification<Event> spec,
+                               Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        // Порядок, заданный самой спецификацией (например, по релевантности), не перетираем пустым Sort
+        if (pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        }
+
+        List<R> content = entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+
+        boolean hasNext = content.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
+    }
+}
@@ -0,0 +1,20 @@
+package ru.practicum.ewm.repository;
+
+import java.time.LocalDateTime;
+
+// Плоская проекция события для списков: только столбцы EventShortDto, без description и прочих полей сущности.
+// Собирается конструктором прямо в запросе, в контекст персистентности не попадает
+public record EventShortView(
+        Long id,
+        String title,
+        String annotation,
+        Long categoryId,
+        String categoryName,
+        Long initiatorId,
+        String initiatorName,
+        LocalDateTime eventDate,
+        Boolean paid,
+        Long confirmedRequests,
+        Long views
+) {
+}
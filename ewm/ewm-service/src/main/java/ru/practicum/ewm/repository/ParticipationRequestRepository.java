@@ -1,8 +1,13 @@
 package ru.practicum.ewm.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.ewm.dto.request.RequestStatus;
 import ru.practicum.ewm.model.ParticipationRequest;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,5 +26,29 @@ public interface ParticipationRequestRepository
     // 20 Отмена своего запроса на участие в событии
     Optional<ParticipationRequest> findByIdAndRequester_Id(Long requestId, Long userId);
 
-    List<ParticipationRequest> findAllByIdIn(List<Long> ids);
+    List<ParticipationRequest> findAllByIdIn(Collection<Long> ids);
+
+    // 11 Изменение статуса заявок: одним оператором на всю пачку и только у ещё ожидающих заявок события,
+    // поэтому число изменённых строк показывает, не успел ли кто-то обработать их раньше
+    @Modifying
+    @Query("""
+            UPDATE ParticipationRequest r
+            SET r.status = :status
+            WHERE r.id IN :ids
+              AND r.event.id = :eventId
+              AND r.status = :pending
+            """)
+    int updatePendingStatus(@Param("eventId") Long eventId, @Param("ids") Collection<Long> ids,
+                            @Param("status") RequestStatus status, @Param("pending") RequestStatus pending);
+
+    // 11 Лимит исчерпан — все оставшиеся ожидающие заявки события отклоняются
+    @Modifying
+    @Query("""
+            UPDATE ParticipationRequest r
+            SET r.status = :rejected
+            WHERE r.event.id = :eventId
+              AND r.status = :pending
+            """)
+    int rejectAllPending(@Param("eventId") Long eventId, @Param("rejected") RequestStatus rejected,
+                         @Param("pending") RequestStatus pending);
 }
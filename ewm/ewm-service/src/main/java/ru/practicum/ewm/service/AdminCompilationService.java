@@ -24,6 +24,7 @@ public class AdminCompilationService {
 
     private final CompilationRepository compilationRepository;
     private final EventRepository eventRepository;
+    private final CompilationCache compilationCache;
 
     // 24 Добавление новой подборки (подборка может не содержать событий)
     @Transactional
@@ -46,6 +47,7 @@ public class AdminCompilationService {
         Compilation saved = compilationRepository.save(compilation);
 
         log.info("Compilation created successfully with id={}", saved.getId());
+        compilationCache.invalidate();
 
         List<EventShortDto> eventDto = saved.getEvents() != null && !saved.getEvents().isEmpty()
                 ? saved.getEvents().stream()
@@ -86,6 +88,7 @@ public class AdminCompilationService {
         Compilation updated = compilationRepository.save(compilation);
 
         log.info("Compilation with id={} updated successfully", updated.getId());
+        compilationCache.invalidate();
 
         return CompilationMapper.toDto(updated);
     }
@@ -101,6 +104,7 @@ public class AdminCompilationService {
         }
 
         compilationRepository.deleteById(compId);
+        compilationCache.invalidate();
 
         log.info("Compilation with id={} deleted successfully", compId);
     }
@@ -0,0 +1,105 @@
+package ru.practicum.ewm.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.ewm.dto.event.CompilationDto;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Read-through кэш готовых страниц подборок по (pinned, from, size).
+// Изменения подборок сбрасывают его целиком после коммита; изменения самих событий (просмотры, заявки,
+// снятие с публикации) доходят до страниц не позже чем через ttl-ms.
+// Поколение защищает от гонки: страница, прочитанная из БД до сброса, в кэш уже не попадёт.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CompilationCache {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ewm.compilations.cache.ttl-ms:30000}")
+    private long ttlMs;
+
+    @Value("${ewm.compilations.cache.max-size:1000}")
+    private int maxSize;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    private Counter hitCounter;
+    private Counter missCounter;
+
+    public record Key(Boolean pinned, int from, int size) {
+    }
+
+    private record Entry(List<CompilationDto> compilations, long expiresAt) {
+    }
+
+    @PostConstruct
+    void init() {
+        hitCounter = meterRegistry.counter("ewm.compilations.cache.requests", "result", "hit");
+        missCounter = meterRegistry.counter("ewm.compilations.cache.requests", "result", "miss");
+        meterRegistry.gaugeMapSize("ewm.compilations.cache.size", List.of(), entries);
+    }
+
+    public List<CompilationDto> get(Key key, Supplier<List<CompilationDto>> loader) {
+        long now = System.nanoTime();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt() - now > 0) {
+            hitCounter.increment();
+            return entry.compilations();
+        }
+
+        missCounter.increment();
+        long loadedGeneration = generation.get();
+        List<CompilationDto> compilations = List.copyOf(loader.get());
+
+        if (generation.get() == loadedGeneration) {
+            if (entries.size() >= maxSize) {
+                entries.values().removeIf(e -> e.expiresAt() - now <= 0);
+            }
+            if (entries.size() < maxSize) {
+                Entry loaded = new Entry(compilations, now + TimeUnit.MILLISECONDS.toNanos(ttlMs));
+                entries.put(key, loaded);
+                // Сброс мог случиться между проверкой и put
+                if (generation.get() != loadedGeneration) {
+                    entries.remove(key, loaded);
+                }
+            }
+        }
+        return compilations;
+    }
+
+    // Внутри транзакции сброс откладывается до коммита, иначе параллельное чтение успело бы
+    // закэшировать ещё не изменённые данные
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clear();
+                }
+            });
+        } else {
+            clear();
+        }
+    }
+
+    private void clear() {
+        generation.incrementAndGet();
+        entries.clear();
+        log.debug("Compilation cache invalidated");
+    }
+}
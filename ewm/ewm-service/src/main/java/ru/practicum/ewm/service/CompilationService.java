@@ -1,21 +1,25 @@
 package ru.practicum.ewm.service;
 
+import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import ru.practicum.ewm.dto.event.CompilationDto;
+import ru.practicum.ewm.dto.event.EventShortDto;
+import ru.practicum.ewm.dto.event.EventState;
 import ru.practicum.ewm.exception.BadRequestException;
 import ru.practicum.ewm.exception.NotFoundException;
 import ru.practicum.ewm.mapper.CompilationMapper;
+import ru.practicum.ewm.mapper.EventMapper;
 import ru.practicum.ewm.model.Compilation;
+import ru.practicum.ewm.repository.CompilationEventView;
 import ru.practicum.ewm.repository.CompilationRepository;
-import ru.practicum.ewm.repository.EventRepository  ;
-
 
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -23,7 +27,7 @@ import java.util.List;
 public class CompilationService {
 
     private final CompilationRepository compilationRepository;
-    private final EventRepository eventRepository;
+    private final CompilationCache compilationCache;
 
     // 1 Получение подборок событий
     @Transactional(readOnly = true)
@@ -36,19 +40,8 @@ public class CompilationService {
             throw new BadRequestException("Size must be greater than 0");
         }
 
-        Pageable pageable = PageRequest.of(from / size, size);
-
-        Page<Compilation> page;
-
-        if (pinned != null) {
-            page = compilationRepository.findAllByPinned(pinned, pageable);
-        } else {
-            page = compilationRepository.findAll(pageable);
-        }
-
-        return page.getContent().stream()
-                .map(CompilationMapper::toDto)
-                .toList();
+        return compilationCache.get(new CompilationCache.Key(pinned, from, size),
+                () -> loadPage(pinned, from, size));
     }
 
     // 2 Получение подборки событий по его id
@@ -59,6 +52,34 @@ public class CompilationService {
                         new NotFoundException("Compilation with id=" + compId + " was not found")
                 );
 
-        return CompilationMapper.toDto(compilation);
+        return toDtos(List.of(compilation)).get(0);
+    }
+
+    // Страница подборок и события всех её подборок — два запроса независимо от размера страницы
+    private List<CompilationDto> loadPage(Boolean pinned, int from, int size) {
+        Pageable pageable = PageRequest.of(from / size, size, Sort.by("id"));
+
+        List<Compilation> compilations = pinned != null
+                ? compilationRepository.findAllByPinned(pinned, pageable)
+                : compilationRepository.findAllBy(pageable);
+
+        return toDtos(compilations);
+    }
+
+    // В подборках показываются только опубликованные события
+    private List<CompilationDto> toDtos(List<Compilation> compilations) {
+        if (compilations.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, List<EventShortDto>> events = compilationRepository
+                .findEventsOf(compilations.stream().map(Compilation::getId).toList(), EventState.PUBLISHED)
+                .stream()
+                .collect(Collectors.groupingBy(CompilationEventView::compilationId,
+                        Collectors.mapping(view -> EventMapper.toShortDto(view.event()), Collectors.toList())));
+
+        return compilations.stream()
+                .map(c -> CompilationMapper.toDto(c, events.getOrDefault(c.getId(), List.of())))
+                .toList();
     }
 }
@@ -2,12 +2,16 @@ package ru.practicum.ewm.service;
 
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
+// Очистка базы docker-окружения профиля test перед прогоном postman-тестов. TRUNCATE нескольких таблиц сразу —
+// синтаксис PostgreSQL, поэтому тесты на H2 с тем же профилем её отключают
 @Component
 @Profile("test")
+@ConditionalOnProperty(name = "ewm.db.clean-on-start", havingValue = "true", matchIfMissing = true)
 @RequiredArgsConstructor
 public class DbCleaner {
 
@@ -21,7 +25,9 @@ public class DbCleaner {
                 users,
                 events,
                 compilations,
-                participation_requests
+                participation_requests,
+                event_rating,
+                event_rating_counters
             RESTART IDENTITY CASCADE
         """);
     }
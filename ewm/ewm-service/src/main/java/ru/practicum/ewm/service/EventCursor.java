@@ -0,0 +1,32 @@
+package ru.practicum.ewm.service;
+
+import ru.practicum.ewm.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Непрозрачный курсор keyset-пагинации публичного поиска: позиция последнего отданного события (eventDate, id)
+public record EventCursor(LocalDateTime eventDate, Long id) {
+
+    private static final String VERSION = "v1";
+
+    public String encode() {
+        String raw = VERSION + "|" + eventDate + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static EventCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 3 || !VERSION.equals(parts[0])) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            return new EventCursor(LocalDateTime.parse(parts[1]), Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+}
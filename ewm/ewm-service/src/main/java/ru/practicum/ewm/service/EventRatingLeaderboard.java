@@ -0,0 +1,247 @@
+package ru.practicum.ewm.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.ewm.dto.event.EventState;
+import ru.practicum.ewm.repository.EventRatingCounterRepository;
+import ru.practicum.ewm.repository.EventRatingRepository;
+import ru.practicum.ewm.repository.EventRatingTotals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Рейтинг опубликованных событий по оценкам: отсортированные множества в памяти — общее и по категориям.
+// Строится из event_rating при старте и раз в rebuild-interval-ms. Между перестроениями голоса и модерация
+// после коммита помечают событие изменённым, а фоновый поток раз в refresh-interval-ms перечитывает итоги
+// помеченных событий из event_rating_counters. Перечитывание идемпотентно: отметка снимается до запроса,
+// поэтому голос, закоммиченный после него, пометит событие снова.
+// Множества меняет только фоновый поток, читатели обходят их без блокировок — топ-N стоит O(N)
+// независимо от числа оценок.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EventRatingLeaderboard {
+
+    private static final double WILSON_Z = 1.96;
+
+    private static final Comparator<Rank> ORDER = Comparator.comparingDouble(Rank::score).reversed()
+            .thenComparingLong(Rank::eventId);
+
+    private final EventRatingRepository ratingRepository;
+    private final EventRatingCounterRepository counterRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ewm.rating.leaderboard.score:NET}")
+    private Score score;
+
+    @Value("${ewm.rating.leaderboard.refresh-interval-ms:1000}")
+    private long refreshIntervalMs;
+
+    @Value("${ewm.rating.leaderboard.rebuild-interval-ms:3600000}")
+    private long rebuildIntervalMs;
+
+    @Value("${ewm.rating.leaderboard.batch-size:500}")
+    private int batchSize;
+
+    public enum Score {
+        // лайки минус дизлайки
+        NET,
+        // нижняя граница 95% доверительного интервала Уилсона для доли лайков:
+        // пара случайных лайков не обгоняет событие с сотнями оценок
+        WILSON
+    }
+
+    public record RatedEvent(long eventId, long likes, long dislikes, double score) {
+    }
+
+    private record Rank(double score, long eventId) {
+    }
+
+    // Последнее известное состояние оценённого события; rank == null — событие не в рейтинге
+    private record Item(Long categoryId, long likes, long dislikes, Rank rank) {
+    }
+
+    private final Map<Long, Item> items = new ConcurrentHashMap<>();
+    private final NavigableSet<Rank> ranking = new ConcurrentSkipListSet<>(ORDER);
+    private final Map<Long, NavigableSet<Rank>> rankingByCategory = new ConcurrentHashMap<>();
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService scheduler;
+    private volatile long lastRebuildNanos;
+    private volatile boolean built;
+
+    @PostConstruct
+    void start() {
+        meterRegistry.gaugeCollectionSize("ewm.rating.leaderboard.size", List.of(), ranking);
+        meterRegistry.gaugeCollectionSize("ewm.rating.leaderboard.changed", List.of(), changed);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rating-leaderboard");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::maintainSafely, 0, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    // Первые size событий рейтинга (всего или одной категории) в порядке убывания score
+    public List<RatedEvent> top(Long categoryId, int size) {
+        NavigableSet<Rank> source = categoryId == null
+                ? ranking
+                : rankingByCategory.getOrDefault(categoryId, Collections.emptyNavigableSet());
+
+        // Пока фоновый поток переставляет событие, в множестве лежат обе его позиции — берётся первая
+        List<RatedEvent> top = new ArrayList<>(Math.min(size, source.size()));
+        Set<Long> emitted = new HashSet<>();
+        for (Rank rank : source) {
+            if (top.size() == size) {
+                break;
+            }
+            Item item = items.get(rank.eventId());
+            if (item != null && emitted.add(rank.eventId())) {
+                top.add(new RatedEvent(rank.eventId(), item.likes(), item.dislikes(), rank.score()));
+            }
+        }
+        return top;
+    }
+
+    // Внутри транзакции отметка ставится только после коммита, иначе фоновый поток мог бы перечитать
+    // итоги раньше, чем изменение станет видно
+    public void markChanged(Long eventId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    changed.add(eventId);
+                }
+            });
+        } else {
+            changed.add(eventId);
+        }
+    }
+
+    private void maintainSafely() {
+        try {
+            if (!built || System.nanoTime() - lastRebuildNanos > TimeUnit.MILLISECONDS.toNanos(rebuildIntervalMs)) {
+                rebuild();
+            }
+            refreshChanged();
+        } catch (Exception e) {
+            log.warn("Event rating leaderboard maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    // Полный пересчёт по event_rating: подбирает и оценки, поставленные в обход этого экземпляра
+    private void rebuild() {
+        long started = System.nanoTime();
+        List<EventRatingTotals> totals = ratingRepository.findAllTotals();
+
+        Set<Long> rated = new HashSet<>();
+        for (EventRatingTotals t : totals) {
+            rated.add(t.eventId());
+            put(t.eventId(), t.categoryId(), t.state(), t.likes(), t.dislikes());
+        }
+        for (Long eventId : new ArrayList<>(items.keySet())) {
+            if (!rated.contains(eventId)) {
+                put(eventId, null, null, 0, 0);
+            }
+        }
+
+        lastRebuildNanos = started;
+        built = true;
+        log.info("Event rating leaderboard rebuilt: {} rated events, {} ranked in {} ms",
+                items.size(), ranking.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private void refreshChanged() {
+        List<Long> eventIds = new ArrayList<>(changed);
+        for (int from = 0; from < eventIds.size(); from += batchSize) {
+            List<Long> chunk = eventIds.subList(from, Math.min(from + batchSize, eventIds.size()));
+            chunk.forEach(changed::remove);
+
+            Set<Long> found = new HashSet<>();
+            for (EventRatingTotals t : counterRepository.findTotals(chunk)) {
+                found.add(t.eventId());
+                // Без строки счётчика — оценки поставлены до его появления, итоги остаются из перестроения
+                Item known = items.get(t.eventId());
+                long likes = t.likes() != null ? t.likes() : known != null ? known.likes() : 0;
+                long dislikes = t.dislikes() != null ? t.dislikes() : known != null ? known.dislikes() : 0;
+                put(t.eventId(), t.categoryId(), t.state(), likes, dislikes);
+            }
+            for (Long eventId : chunk) {
+                if (!found.contains(eventId)) {
+                    put(eventId, null, null, 0, 0);
+                }
+            }
+        }
+        if (!eventIds.isEmpty()) {
+            log.debug("Event rating leaderboard refreshed {} events", eventIds.size());
+        }
+    }
+
+    // Новая позиция добавляется раньше, чем убирается старая, чтобы читатель не пропустил событие;
+    // повтор события в обходе отбрасывает top
+    private void put(Long eventId, Long categoryId, EventState state, long likes, long dislikes) {
+        Item old = items.get(eventId);
+        boolean rated = likes + dislikes > 0;
+        Rank rank = rated && state == EventState.PUBLISHED ? new Rank(score(likes, dislikes), eventId) : null;
+
+        if (rated) {
+            items.put(eventId, new Item(categoryId, likes, dislikes, rank));
+        }
+        if (rank != null) {
+            ranking.add(rank);
+            rankingByCategory.computeIfAbsent(categoryId, id -> new ConcurrentSkipListSet<>(ORDER)).add(rank);
+        }
+        if (old != null && old.rank() != null) {
+            if (!old.rank().equals(rank)) {
+                ranking.remove(old.rank());
+            }
+            if (!old.rank().equals(rank) || !Objects.equals(old.categoryId(), categoryId)) {
+                NavigableSet<Rank> category = rankingByCategory.get(old.categoryId());
+                if (category != null) {
+                    category.remove(old.rank());
+                }
+            }
+        }
+        if (!rated) {
+            items.remove(eventId);
+        }
+    }
+
+    private double score(long likes, long dislikes) {
+        if (score == Score.NET) {
+            return likes - dislikes;
+        }
+        long n = likes + dislikes;
+        if (n == 0) {
+            return 0;
+        }
+        double p = (double) likes / n;
+        double z2 = WILSON_Z * WILSON_Z;
+        return (p + z2 / (2 * n) - WILSON_Z * Math.sqrt((p * (1 - p) + z2 / (4 * n)) / n)) / (1 + z2 / n);
+    }
+}
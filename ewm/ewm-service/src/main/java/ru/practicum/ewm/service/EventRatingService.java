@@ -1,7 +1,9 @@
 package ru.practicum.ewm.service;
 
 import ru.practicum.ewm.dto.event.EventRatingDto;
+import ru.practicum.ewm.dto.event.RatedEventDto;
 
+import java.util.List;
 import java.util.Map;
 
 public interface EventRatingService {
@@ -9,6 +11,12 @@ public interface EventRatingService {
     // Поставить или обновить рейтинг
     EventRatingDto setRating(Long eventId, Long userId, Boolean liked);
 
+    // Отозвать свою оценку
+    void removeRating(Long eventId, Long userId);
+
     // Получить количество лайков и дизлайков для события
     Map<String, Long> getRating(Long eventId);
+
+    // Топ опубликованных событий по оценкам, всего или в одной категории
+    List<RatedEventDto> getTopRated(Long categoryId, int size);
 }
@@ -5,66 +5,92 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.ewm.dto.event.EventRatingDto;
-import ru.practicum.ewm.mapper.EventRatingMapper;
-import ru.practicum.ewm.model.Event;
-import ru.practicum.ewm.model.EventRating;
-import ru.practicum.ewm.model.User;
+import ru.practicum.ewm.dto.event.EventState;
+import ru.practicum.ewm.dto.event.RatedEventDto;
+import ru.practicum.ewm.exception.ConflictException;
+import ru.practicum.ewm.exception.NotFoundException;
+import ru.practicum.ewm.mapper.EventMapper;
+import ru.practicum.ewm.model.EventRatingCounter;
+import ru.practicum.ewm.repository.EventRatingCounterRepository;
 import ru.practicum.ewm.repository.EventRatingRepository;
 import ru.practicum.ewm.repository.EventRepository;
+import ru.practicum.ewm.repository.EventShortView;
 import ru.practicum.ewm.repository.UserRepository;
 
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
+// Оценки меняются условными UPDATE/INSERT/DELETE без загрузки события и пользователя, а итоги
+// в event_rating_counters сдвигаются на разницу в той же транзакции. Если параллельный голос того же
+// пользователя успел изменить строку, число затронутых строк будет 0 и шаг повторяется
 @Slf4j
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
 public class EventRatingServiceImpl implements EventRatingService {
 
+    private static final int VOTE_ATTEMPTS = 3;
+
     private final EventRatingRepository ratingRepository;
+    private final EventRatingCounterRepository counterRepository;
     private final EventRepository eventRepository;
     private final UserRepository userRepository;
+    private final EventRatingLeaderboard leaderboard;
 
     @Override
     @Transactional
     public EventRatingDto setRating(Long eventId, Long userId, Boolean liked) {
         log.info("Setting rating for eventId={} by userId={} liked={}", eventId, userId, liked);
 
-        Event event = eventRepository.findById(eventId)
-                .orElseThrow(() -> {
-                    log.error("Event not found: id={}", eventId);
-                    return new IllegalArgumentException("Event not found");
-                });
-
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> {
-                    log.error("User not found: id={}", userId);
-                    return new IllegalArgumentException("User not found");
-                });
-
-        Optional<EventRating> existingRatingOpt = ratingRepository.findByEventIdAndUserId(eventId, userId);
-
-        EventRating rating;
-        if (existingRatingOpt.isPresent()) {
-            rating = existingRatingOpt.get();
-            rating.setLiked(liked);
-            log.info("Updated existing rating id={} to liked={}", rating.getId(), liked);
-        } else {
-            rating = EventRatingMapper.toEntity(
-                    EventRatingDto.builder().liked(liked).build(),
-                    event,
-                    user
-            );
-            log.info("Created new rating for eventId={} userId={}", eventId, userId);
+        for (int attempt = 0; attempt < VOTE_ATTEMPTS; attempt++) {
+            if (ratingRepository.flip(eventId, userId, liked) > 0) {
+                applyDelta(eventId, liked ? 1 : -1, liked ? -1 : 1);
+                log.info("Flipped rating for eventId={} userId={} to liked={}", eventId, userId, liked);
+                return toDto(eventId, userId, liked);
+            }
+            if (ratingRepository.insertIfAbsent(eventId, userId, liked) > 0) {
+                applyDelta(eventId, liked ? 1 : 0, liked ? 0 : 1);
+                log.info("Created new rating for eventId={} userId={}", eventId, userId);
+                return toDto(eventId, userId, liked);
+            }
+
+            Optional<Boolean> current = ratingRepository.findLiked(eventId, userId);
+            if (current.isPresent() && current.get().equals(liked)) {
+                log.info("Rating for eventId={} userId={} is already liked={}", eventId, userId, liked);
+                return toDto(eventId, userId, liked);
+            }
+            if (current.isEmpty()) {
+                checkEventAndUser(eventId, userId);
+            }
         }
 
-        EventRating saved = ratingRepository.save(rating);
-        log.info("Rating saved: id={}, eventId={}, userId={}, liked={}",
-                saved.getId(), saved.getEvent().getId(), saved.getUser().getId(), saved.getLiked());
+        log.warn("Rating for eventId={} userId={} keeps changing concurrently", eventId, userId);
+        throw new ConflictException("Rating is being changed concurrently, try again");
+    }
+
+    @Override
+    @Transactional
+    public void removeRating(Long eventId, Long userId) {
+        log.info("Removing rating for eventId={} by userId={}", eventId, userId);
+
+        for (int attempt = 0; attempt < VOTE_ATTEMPTS; attempt++) {
+            Boolean liked = ratingRepository.findLiked(eventId, userId)
+                    .orElseThrow(() -> new NotFoundException(
+                            "Rating of event with id=" + eventId + " by user with id=" + userId + " was not found"));
+
+            if (ratingRepository.deleteIfEquals(eventId, userId, liked) > 0) {
+                applyDelta(eventId, liked ? -1 : 0, liked ? 0 : -1);
+                log.info("Rating removed for eventId={} userId={}", eventId, userId);
+                return;
+            }
+        }
 
-        return EventRatingMapper.toDto(saved);
+        log.warn("Rating for eventId={} userId={} keeps changing concurrently", eventId, userId);
+        throw new ConflictException("Rating is being changed concurrently, try again");
     }
 
     @Override
@@ -72,14 +98,21 @@ public class EventRatingServiceImpl implements EventRatingService {
     public Map<String, Long> getRating(Long eventId) {
         log.info("Getting rating for eventId={}", eventId);
 
-        Event event = eventRepository.findById(eventId)
-                .orElseThrow(() -> {
-                    log.error("Event not found: id={}", eventId);
-                    return new IllegalArgumentException("Event not found");
-                });
-
-        long likes = ratingRepository.countByEventIdAndLiked(eventId, true);
-        long dislikes = ratingRepository.countByEventIdAndLiked(eventId, false);
+        long likes;
+        long dislikes;
+        Optional<EventRatingCounter> counter = counterRepository.findById(eventId);
+        if (counter.isPresent()) {
+            likes = counter.get().getLikes();
+            dislikes = counter.get().getDislikes();
+        } else {
+            // Счётчика нет: голосов не было или все они поставлены до появления счётчиков
+            if (!eventRepository.existsById(eventId)) {
+                log.error("Event not found: id={}", eventId);
+                throw new IllegalArgumentException("Event not found");
+            }
+            likes = ratingRepository.countByEventIdAndLiked(eventId, true);
+            dislikes = ratingRepository.countByEventIdAndLiked(eventId, false);
+        }
 
         Map<String, Long> result = new HashMap<>();
         result.put("likes", likes);
@@ -89,4 +122,76 @@ public class EventRatingServiceImpl implements EventRatingService {
 
         return result;
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<RatedEventDto> getTopRated(Long categoryId, int size) {
+        log.info("Getting top {} rated events, categoryId={}", size, categoryId);
+
+        // Рейтинг обновляется с задержкой, поэтому снятые с публикации за это время события отбрасываются здесь.
+        // Если из-за них событий не хватает, рейтинг читается дальше — с удвоенным запасом
+        Map<Long, EventShortView> published = new HashMap<>();
+        Set<Long> checked = new HashSet<>();
+        List<RatedEventDto> result;
+        int limit = size;
+        while (true) {
+            List<EventRatingLeaderboard.RatedEvent> top = leaderboard.top(categoryId, limit);
+            List<Long> unchecked = top.stream()
+                    .map(EventRatingLeaderboard.RatedEvent::eventId)
+                    .filter(checked::add)
+                    .toList();
+            if (!unchecked.isEmpty()) {
+                eventRepository.findShortByIdInAndState(unchecked, EventState.PUBLISHED)
+                        .forEach(event -> published.put(event.id(), event));
+            }
+
+            result = top.stream()
+                    .filter(r -> published.containsKey(r.eventId()))
+                    .limit(size)
+                    .map(r -> RatedEventDto.builder()
+                            .event(EventMapper.toShortDto(published.get(r.eventId())))
+                            .likes(r.likes())
+                            .dislikes(r.dislikes())
+                            .score(r.score())
+                            .build())
+                    .toList();
+            if (result.size() == size || top.size() < limit || limit > Integer.MAX_VALUE / 2) {
+                break;
+            }
+            limit *= 2;
+        }
+
+        log.info("Found {} top rated events", result.size());
+        return result;
+    }
+
+    // Если счётчика ещё нет, он строится подсчётом оценок события, уже включающим голос этой транзакции.
+    // Проигравшая гонку за создание транзакция видит закоммиченную строку и просто прибавляет свою разницу
+    private void applyDelta(Long eventId, long likes, long dislikes) {
+        leaderboard.markChanged(eventId);
+        if (counterRepository.increment(eventId, likes, dislikes) > 0
+                || counterRepository.createFromRatings(eventId) > 0) {
+            return;
+        }
+        counterRepository.increment(eventId, likes, dislikes);
+    }
+
+    private void checkEventAndUser(Long eventId, Long userId) {
+        if (!eventRepository.existsById(eventId)) {
+            log.error("Event not found: id={}", eventId);
+            throw new IllegalArgumentException("Event not found");
+        }
+        if (!userRepository.existsById(userId)) {
+            log.error("User not found: id={}", userId);
+            throw new IllegalArgumentException("User not found");
+        }
+    }
+
+    private EventRatingDto toDto(Long eventId, Long userId, Boolean liked) {
+        return EventRatingDto.builder()
+                .eventId(eventId)
+                .userId(userId)
+                .liked(liked)
+                .build();
+    }
 }
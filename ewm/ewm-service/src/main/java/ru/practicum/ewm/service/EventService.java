@@ -32,7 +32,8 @@ public interface EventService {
     );
 
     // 16 Получение событий с возможностью фильтрации
-    List<EventShortDto> findPublic(
+    // cursor != null — keyset-пагинация от позиции курсора, from игнорируется
+    PublicEventsPage findPublic(
             String text,
             List<Long> categoryIds,
             Boolean paid,
@@ -42,6 +43,7 @@ public interface EventService {
             EventSort sort,
             int from,
             int size,
+            String cursor,
             HttpServletRequest request
     );
 
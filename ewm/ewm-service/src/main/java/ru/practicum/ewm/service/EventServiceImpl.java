@@ -4,6 +4,8 @@ import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -16,11 +18,12 @@ import ru.practicum.ewm.exception.NotFoundException;
 import ru.practicum.ewm.mapper.EventMapper;
 import ru.practicum.ewm.model.*;
 import ru.practicum.ewm.repository.EventRepository;
+import ru.practicum.ewm.repository.EventShortView;
 import ru.practicum.ewm.repository.UserRepository;
 import ru.practicum.ewm.repository.CategoryRepository;
+import ru.practicum.ewm.specification.EventSpecifications;
 import ru.practicum.stats.client.StatsClient;
 import ru.practicum.stats.dto.EndpointHitDto;
-import ru.practicum.stats.dto.ViewStatsDto;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -41,6 +44,11 @@ public class EventServiceImpl implements EventService {
     private final UserRepository userRepository;
     private final CategoryRepository categoryRepository;
     private final StatsClient statsClient;
+    private final ViewCountCache viewCountCache;
+    private final EventViewsSynchronizer viewsSynchronizer;
+    private final EventTextSearchIndex textSearchIndex;
+    private final CompilationCache compilationCache;
+    private final EventRatingLeaderboard ratingLeaderboard;
 
     private void validateLength(String fieldName, String value, int min, int max) {
         if (value == null) return;
@@ -74,9 +82,7 @@ public class EventServiceImpl implements EventService {
 
         PageRequest page = PageRequest.of(from / size, size);
 
-        List<Event> events = eventRepository.findAllByInitiatorId(userId, page);
-
-        return events.stream()
+        return eventRepository.findShortByInitiatorId(userId, page).stream()
                 .map(EventMapper::toShortDto)
                 .toList();
     }
@@ -300,6 +306,10 @@ public class EventServiceImpl implements EventService {
 
         Event savedEvent = eventRepository.save(event);
         log.info("Event with id={} updated successfully", eventId);
+        // Публикация и правки опубликованного события видны в подборках сразу, а не через ttl кэша
+        compilationCache.invalidate();
+        // Публикация вводит оценённое событие в рейтинг, отклонение и смена категории — переставляют
+        ratingLeaderboard.markChanged(eventId);
 
         return EventMapper.toFullDto(savedEvent);
     }
@@ -315,7 +325,7 @@ public class EventServiceImpl implements EventService {
     // 16 Получение событий с возможностью фильтрации
     @Override
     @Transactional(readOnly = true)
-    public List<EventShortDto> findPublic(
+    public PublicEventsPage findPublic(
             String text,
             List<Long> categoryIds,
             Boolean paid,
@@ -325,10 +335,11 @@ public class EventServiceImpl implements EventService {
             EventSort sort,
             int from,
             int size,
+            String cursor,
             HttpServletRequest request
     ) {
-        log.debug("Public search: text={}, categories={}, paid={}, onlyAvailable={}, from={}, size={}",
-                text, categoryIds, paid, onlyAvailable, from, size);
+        log.debug("Public search: text={}, categories={}, paid={}, onlyAvailable={}, from={}, size={}, cursor={}",
+                text, categoryIds, paid, onlyAvailable, from, size, cursor);
 
         from = Math.max(0, from);
         size = Math.max(1, size);
@@ -345,62 +356,88 @@ public class EventServiceImpl implements EventService {
             throw new BadRequestException("RangeStart must be before rangeEnd");
         }
 
-        Pageable pageable = PageRequest.of(from / size, size, Sort.by("eventDate").ascending());
-
-        Page<Event> page = (text == null)
-                ? eventRepository.searchPublicWithoutText(categoryIds, paid, rangeStart, rangeEnd, PUBLISHED, pageable)
-                : eventRepository.searchPublicWithText(
-                        text,
-                        categoryIds,
-                        paid,
-                        rangeStart,
-                        rangeEnd,
-                        PUBLISHED,
-                        pageable);
-
-        List<Event> events = onlyAvailable
-                ? page.getContent().stream()
-                .filter(e -> e.getParticipantLimit() == 0 || e.getConfirmedRequests() < e.getParticipantLimit())
-                .toList()
-                : page.getContent();
+        // Все фильтры, включая доступность, считаются в SQL — страницы приходят полными
+        Specification<Event> spec = Specification.where(EventSpecifications.isPublished())
+                .and(EventSpecifications.textLike(text))
+                .and(EventSpecifications.categoryIn(categoryIds))
+                .and(EventSpecifications.paid(paid))
+                .and(EventSpecifications.dateFrom(rangeStart))
+                .and(EventSpecifications.dateTo(rangeEnd))
+                .and(EventSpecifications.onlyAvailable(onlyAvailable));
+
+        // RELEVANCE упорядочивает сама спецификация; VIEWS — по синхронизированному столбцу views,
+        // чтобы порядок был общим для всех страниц, а не только внутри текущей
+        boolean byRelevance = sort == EventSort.RELEVANCE;
+        Sort order;
+        if (byRelevance) {
+            order = Sort.unsorted();
+        } else if (sort == EventSort.VIEWS) {
+            order = Sort.by("views").descending().and(Sort.by("id"));
+        } else {
+            order = Sort.by("eventDate").ascending().and(Sort.by("id"));
+        }
+        if (byRelevance) {
+            spec = spec.and(EventSpecifications.orderByRelevance(text, textSearchIndex.isTrigramAvailable()));
+        }
+
+        Pageable pageable;
+        if (cursor != null && !cursor.isBlank()) {
+            // Курсор задаёт позицию в порядке (eventDate, id); сортировки по просмотрам и релевантности так не продолжаются
+            if (sort == EventSort.VIEWS || byRelevance) {
+                throw new BadRequestException("Cursor pagination is supported only for sort=EVENT_DATE");
+            }
+            EventCursor after = EventCursor.decode(cursor);
+            spec = spec.and(EventSpecifications.after(after.eventDate(), after.id()));
+            pageable = PageRequest.of(0, size, order);
+        } else {
+            pageable = PageRequest.of(from / size, size, order);
+        }
+
+        // Только столбцы EventShortDto, без description и без сущностей в контексте персистентности
+        Slice<EventShortView> slice = eventRepository.findShortSlice(spec, pageable);
+        List<EventShortView> events = slice.getContent();
+
+        String nextCursor = null;
+        if (slice.hasNext() && sort != EventSort.VIEWS && !byRelevance) {
+            EventShortView last = events.get(events.size() - 1);
+            nextCursor = new EventCursor(last.eventDate(), last.id()).encode();
+        }
 
         log.info("Found {} events after filtering", events.size());
 
-        Map<String, Long> views = new HashMap<>();
-        if (!events.isEmpty()) {
-            try {
-                String ip = getClientIp(request);
-                events.forEach(e -> statsClient.saveHit(
-                        EndpointHitDto.builder()
-                                .app(appName)
-                                .uri("/events/" + e.getId())
-                                .timestamp(LocalDateTime.now())
-                                .ip(ip)
-                                .build()
-                ));
-                log.debug("Saved hits for {} events", events.size());
+        return new PublicEventsPage(toPublicDtos(events, sort, request), nextCursor);
+    }
 
-                statsClient.getStats(rangeStart, LocalDateTime.now(), true,
-                        events.stream().map(e -> "/events/" + e.getId()).toList()
-                ).forEach(v -> views.put(v.getUri(), v.getHits()));
+    private List<EventShortDto> toPublicDtos(List<EventShortView> events, EventSort sort, HttpServletRequest request) {
+        List<String> eventUris = events.stream()
+                .map(e -> "/events/" + e.id())
+                .toList();
 
-            } catch (Exception e) {
-                log.warn("Stats service unavailable: {}", e.getMessage());
-            }
+        // Хит самого списка и хиты всех событий страницы — одним запросом к stats-server
+        List<String> hitUris = new ArrayList<>(eventUris.size() + 1);
+        hitUris.add(request.getRequestURI());
+        hitUris.addAll(eventUris);
+        try {
+            statsClient.saveHits(appName, getClientIp(request), hitUris);
+            log.debug("Saved hits for list and {} events", events.size());
+        } catch (Exception e) {
+            log.warn("Failed to save hits: {}", e.getMessage());
         }
 
-        if (sort == EventSort.VIEWS) {
-            events = events.stream()
-                    .sorted(Comparator.comparing(e -> views.getOrDefault("/events/" + e.getId(),
-                            0L), Comparator.reverseOrder()))
+        // При sort=VIEWS показываем те же значения, по которым отсортировала БД;
+        // в остальных случаях events.views годится, пока синхронизация не отстала больше допустимого
+        if (sort == EventSort.VIEWS || viewsSynchronizer.isFresh()) {
+            return events.stream()
+                    .map(EventMapper::toShortDto)
                     .toList();
-            log.debug("Sorted events by views");
         }
 
+        Map<String, Long> views = events.isEmpty() ? Map.of() : viewCountCache.getViews(eventUris);
+
         return events.stream()
                 .map(e -> {
                     EventShortDto dto = EventMapper.toShortDto(e);
-                    dto.setViews(views.getOrDefault("/events/" + e.getId(), 0L));
+                    dto.setViews(views.getOrDefault("/events/" + e.id(), 0L));
                     return dto;
                 })
                 .toList();
@@ -423,15 +460,10 @@ public class EventServiceImpl implements EventService {
                 .ip(ip)
                 .build());
 
-        // Получаем количество просмотров
-        Long views = statsClient.getStats(
-                        event.getCreatedOn() != null ? event.getCreatedOn() : LocalDateTime.of(1970, 1, 1, 0, 0),
-                        LocalDateTime.now(),
-                        true,
-                        List.of("/events/" + eventId)
-                ).stream().findFirst()
-                .map(ViewStatsDto::getHits)
-                .orElse(0L);
+        // Для карточки события просмотры берём из локального кэша: он отстаёт от stats-server не больше
+        // чем на refresh-after-ms, а events.views — на весь интервал синхронизации. Пока кэш не загрузил
+        // значение и отдаёт 0, показываем events.views; в обоих случаях без похода в stats-server на запрос
+        Long views = Math.max(viewCountCache.getViews("/events/" + eventId), event.getViews());
 
         EventFullDto dto = EventMapper.toFullDto(event);
         dto.setViews(views);
@@ -0,0 +1,87 @@
+package ru.practicum.ewm.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+// Триграммные GIN-индексы по lower(annotation) и lower(description) в PostgreSQL.
+// Они обслуживают тот же предикат lower(x) LIKE '%text%', что строит textLike, — семантика поиска
+// по подстроке не меняется, меняется только план. На других БД (H2) и без прав на pg_trgm
+// поиск работает как раньше, а сортировка RELEVANCE откатывается на упрощённое ранжирование.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EventTextSearchIndex implements ApplicationRunner {
+
+    private static final String[] INDEXES = {
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_events_annotation_trgm "
+                    + "ON events USING GIN (lower(annotation) gin_trgm_ops)",
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_events_description_trgm "
+                    + "ON events USING GIN (lower(description) gin_trgm_ops)"
+    };
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbc;
+
+    @Value("${ewm.search.trigram.enabled:true}")
+    private boolean enabled;
+
+    private volatile boolean trigramAvailable;
+
+    // Доступна ли word_similarity() для ранжирования результатов
+    public boolean isTrigramAvailable() {
+        return trigramAvailable;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled || !isPostgres()) {
+            log.info("Trigram text search index is disabled or not supported by the database");
+            return;
+        }
+        // На большой таблице построение занимает минуты — старт приложения его не ждёт
+        Thread builder = new Thread(this::ensureIndexes, "search-index-builder");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    // CONCURRENTLY не держит блокировку на запись в events, но не работает внутри транзакции —
+    // каждый оператор выполняется отдельно в режиме autocommit. Прерванная сборка оставляет
+    // невалидный индекс, который IF NOT EXISTS не перестроит: его нужно удалить вручную
+    public void ensureIndexes() {
+        try {
+            jdbc.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            trigramAvailable = true;
+        } catch (Exception e) {
+            log.warn("pg_trgm extension is not available, text search falls back to sequential scans: {}",
+                    e.getMessage());
+            return;
+        }
+
+        for (String ddl : INDEXES) {
+            long started = System.currentTimeMillis();
+            try {
+                jdbc.execute(ddl);
+                log.info("Text search index is ready in {} ms: {}", System.currentTimeMillis() - started, ddl);
+            } catch (Exception e) {
+                log.warn("Failed to create text search index: {}", e.getMessage());
+            }
+        }
+    }
+
+    private boolean isPostgres() {
+        try (Connection connection = dataSource.getConnection()) {
+            return "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+        } catch (Exception e) {
+            log.warn("Failed to detect database type: {}", e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package ru.practicum.ewm.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.dto.event.EventState;
+import ru.practicum.ewm.repository.EventRepository;
+import ru.practicum.stats.client.StatsClient;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Периодически переносит просмотры опубликованных событий (уникальные IP за всё время) из stats-server
+// в столбец events.views, чтобы сортировка по просмотрам и пагинация выполнялись в БД,
+// а чтение могло брать просмотры прямо из сущности.
+// Обычный проход инкрементальный: у stats-server запрашиваются только URI с хитами после водяной отметки
+// (начала предыдущего успешного прохода), и пересчитываются только эти события. Полный проход — при старте
+// и раз в full-interval-ms: он подбирает всё, что инкрементальный мог пропустить.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EventViewsSynchronizer {
+
+    private static final Pattern EVENT_URI = Pattern.compile("^/events/(\\d+)$");
+
+    private final EventRepository eventRepository;
+    private final StatsClient statsClient;
+    private final JdbcTemplate jdbc;
+
+    @Value("${ewm.views.sync.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ewm.views.sync.interval-ms:60000}")
+    private long intervalMs;
+
+    @Value("${ewm.views.sync.full-interval-ms:3600000}")
+    private long fullIntervalMs;
+
+    @Value("${ewm.views.sync.batch-size:200}")
+    private int batchSize;
+
+    // Хиты приходят в stats-server с опозданием (буфер клиента, ретраи) и со временем их создания,
+    // поэтому окно инкрементального прохода начинается раньше водяной отметки на этот запас
+    @Value("${ewm.views.sync.watermark-overlap-ms:10000}")
+    private long watermarkOverlapMs;
+
+    @Value("${ewm.views.max-staleness-ms:180000}")
+    private long maxStalenessMs;
+
+    private ScheduledExecutorService scheduler;
+
+    // Время начала последнего успешного прохода: всё, что записано в stats-server до него, уже в events.views
+    private volatile LocalDateTime watermark;
+    private volatile long watermarkNanos;
+    private volatile long lastFullSyncNanos;
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            log.info("Event views synchronization is disabled");
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "views-synchronizer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::syncSafely, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    // Можно ли отдавать events.views без обращения к stats-server: последний успешный проход не старше max-staleness-ms
+    public boolean isFresh() {
+        return watermark != null
+                && System.nanoTime() - watermarkNanos <= TimeUnit.MILLISECONDS.toNanos(maxStalenessMs);
+    }
+
+    private void syncSafely() {
+        try {
+            if (watermark == null
+                    || System.nanoTime() - lastFullSyncNanos > TimeUnit.MILLISECONDS.toNanos(fullIntervalMs)) {
+                fullSync();
+            } else {
+                incrementalSync();
+            }
+        } catch (Exception e) {
+            log.warn("Event views synchronization failed: {}", e.getMessage());
+        }
+    }
+
+    // Полный проход по опубликованным событиям порциями по id; возвращает число изменённых строк
+    public int fullSync() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long startedNanos = System.nanoTime();
+        int processed = 0;
+        int updated = 0;
+        long afterId = 0L;
+
+        while (true) {
+            List<Long> ids = eventRepository.findIdsByStateAfter(EventState.PUBLISHED, afterId,
+                    PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            updated += writeViews(ids);
+            processed += ids.size();
+            afterId = ids.get(ids.size() - 1);
+        }
+
+        advanceWatermark(startedAt, startedNanos);
+        lastFullSyncNanos = startedNanos;
+        log.info("Full views sync: {} events, {} changed in {} ms",
+                processed, updated, (System.nanoTime() - startedNanos) / 1_000_000);
+        return updated;
+    }
+
+    // Только события, у которых после водяной отметки появились хиты
+    public int incrementalSync() {
+        LocalDateTime since = watermark.minus(watermarkOverlapMs, ChronoUnit.MILLIS);
+        LocalDateTime startedAt = LocalDateTime.now();
+        long startedNanos = System.nanoTime();
+
+        List<Long> touched = statsClient.getStats(since, startedAt, false, null).stream()
+                .map(stat -> EVENT_URI.matcher(stat.getUri()))
+                .filter(Matcher::matches)
+                .map(matcher -> Long.parseLong(matcher.group(1)))
+                .distinct()
+                .sorted()
+                .toList();
+
+        int updated = 0;
+        for (int from = 0; from < touched.size(); from += batchSize) {
+            updated += writeViews(touched.subList(from, Math.min(from + batchSize, touched.size())));
+        }
+
+        advanceWatermark(startedAt, startedNanos);
+        log.debug("Incremental views sync since {}: {} events, {} changed in {} ms",
+                since, touched.size(), updated, (System.nanoTime() - startedNanos) / 1_000_000);
+        return updated;
+    }
+
+    // Один запрос к stats-server на порцию URI и одно пакетное обновление;
+    // строки с неизменившимся значением не трогаем, чтобы не плодить версии строк
+    private int writeViews(List<Long> ids) {
+        Map<Long, Long> views = new HashMap<>();
+        statsClient.getStats(ViewCountCache.VIEWS_START, LocalDateTime.now(), true,
+                        ids.stream().map(id -> "/events/" + id).toList())
+                .forEach(stat -> {
+                    Matcher matcher = EVENT_URI.matcher(stat.getUri());
+                    if (matcher.matches()) {
+                        views.put(Long.parseLong(matcher.group(1)), stat.getHits());
+                    }
+                });
+
+        int[] counts = jdbc.batchUpdate("UPDATE events SET views = ? WHERE id = ? AND views <> ?",
+                ids.stream()
+                        .map(id -> {
+                            long value = views.getOrDefault(id, 0L);
+                            return new Object[]{value, id, value};
+                        })
+                        .toList());
+
+        int updated = 0;
+        for (int count : counts) {
+            updated += Math.max(count, 0);
+        }
+        return updated;
+    }
+
+    private void advanceWatermark(LocalDateTime startedAt, long startedNanos) {
+        watermarkNanos = startedNanos;
+        watermark = startedAt;
+    }
+}
@@ -16,6 +16,7 @@ import ru.practicum.ewm.repository.UserRepository;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 @Slf4j
@@ -28,6 +29,10 @@ public class ParticipationRequestService {
     private final EventRepository eventRepository;
     private final UserRepository userRepository;
 
+    // Тысячи идентификаторов в одном IN раздувают оператор и упираются в лимит параметров драйвера
+    private static final int ID_CHUNK_SIZE = 1000;
+    private static final int RESERVE_ATTEMPTS = 5;
+
     // 10 Получение информации о запросах на участие в событии текущего пользователя
     @Transactional(readOnly = true)
     public List<ParticipationRequestDto> getEventRequests(Long userId, Long eventId) {
@@ -68,9 +73,12 @@ public class ParticipationRequestService {
             throw new ConflictException("Request moderation is disabled");
         }
 
-        List<ParticipationRequest> requests = requestRepository.findAllByIdIn(dto.getRequestIds());
-        List<ParticipationRequestDto> confirmed = new ArrayList<>();
-        List<ParticipationRequestDto> rejected = new ArrayList<>();
+        // Один select на пачку идентификаторов и проверка в памяти; подтверждаются более ранние заявки
+        List<ParticipationRequest> requests = new ArrayList<>();
+        for (List<Long> chunk : chunks(dto.getRequestIds().stream().distinct().sorted().toList())) {
+            requests.addAll(requestRepository.findAllByIdIn(chunk));
+        }
+        requests.sort(Comparator.comparing(ParticipationRequest::getId));
 
         for (ParticipationRequest r : requests) {
             if (!r.getEvent().getId().equals(eventId)) {
@@ -79,25 +87,85 @@ public class ParticipationRequestService {
             if (r.getStatus() != RequestStatus.PENDING) {
                 throw new ConflictException("Request must be PENDING");
             }
+        }
 
-            if (dto.getStatus() == RequestStatus.CONFIRMED) {
-                if (event.getParticipantLimit() != 0 &&
-                        event.getConfirmedRequests() >= event.getParticipantLimit()) {
-                    throw new ConflictException("Participant limit reached");
-                }
-                r.setStatus(RequestStatus.CONFIRMED);
-                event.setConfirmedRequests(event.getConfirmedRequests() + 1);
-                confirmed.add(ParticipationRequestMapper.toDto(r));
-            } else {
-                r.setStatus(RequestStatus.REJECTED);
-                rejected.add(ParticipationRequestMapper.toDto(r));
-            }
+        Reservation reservation = dto.getStatus() == RequestStatus.CONFIRMED && !requests.isEmpty()
+                ? reserveSeats(event, requests.size())
+                : new Reservation(0, false);
+
+        List<ParticipationRequest> toConfirm = requests.subList(0, reservation.seats());
+        List<ParticipationRequest> toReject = requests.subList(reservation.seats(), requests.size());
+        updatePendingStatus(eventId, toConfirm, RequestStatus.CONFIRMED);
+        updatePendingStatus(eventId, toReject, RequestStatus.REJECTED);
+
+        if (reservation.limitReached()) {
+            int autoRejected = requestRepository.rejectAllPending(eventId, RequestStatus.REJECTED, RequestStatus.PENDING);
+            log.info("Participant limit reached for event {}, {} pending requests rejected", eventId, autoRejected);
         }
 
+        List<ParticipationRequestDto> confirmed = toConfirm.stream()
+                .map(r -> ParticipationRequestMapper.toDto(r, RequestStatus.CONFIRMED))
+                .toList();
+        List<ParticipationRequestDto> rejected = toReject.stream()
+                .map(r -> ParticipationRequestMapper.toDto(r, RequestStatus.REJECTED))
+                .toList();
+
         log.info("Requests updated: confirmed={}, rejected={}", confirmed.size(), rejected.size());
         return new EventRequestStatusUpdateResult(confirmed, rejected);
     }
 
+    private record Reservation(int seats, boolean limitReached) {
+    }
+
+    // Бронирует столько мест, сколько осталось, но не больше wanted. Бронь идёт до смены статусов:
+    // сколько заявок подтверждать, известно только после неё. Условный UPDATE не прошёл — места занял
+    // кто-то параллельно, перечитываем остаток и пробуем снова
+    private Reservation reserveSeats(Event event, int wanted) {
+        if (event.getParticipantLimit() == 0) {
+            eventRepository.reserveSeats(event.getId(), wanted);
+            return new Reservation(wanted, false);
+        }
+
+        long confirmed = event.getConfirmedRequests();
+        for (int attempt = 0; attempt < RESERVE_ATTEMPTS; attempt++) {
+            long remaining = event.getParticipantLimit() - confirmed;
+            if (remaining <= 0) {
+                log.warn("Participant limit reached for event {}", event.getId());
+                throw new ConflictException("Participant limit reached");
+            }
+            int seats = (int) Math.min(wanted, remaining);
+            if (eventRepository.reserveSeats(event.getId(), seats) > 0) {
+                // Прочитанный остаток мог устареть, а после брони строка события заблокирована нами —
+                // перечитываем счётчик, чтобы не пропустить исчерпание лимита
+                long confirmedAfter = eventRepository.findConfirmedRequests(event.getId());
+                return new Reservation(seats, confirmedAfter >= event.getParticipantLimit());
+            }
+            confirmed = eventRepository.findConfirmedRequests(event.getId());
+        }
+        log.warn("Could not reserve seats for event {} after {} attempts", event.getId(), RESERVE_ATTEMPTS);
+        throw new ConflictException("Participant limit is changing concurrently, try again");
+    }
+
+    // Меньше изменённых строк, чем заявок, — часть из них успел обработать параллельный запрос;
+    // исключение откатывает и бронь мест
+    private void updatePendingStatus(Long eventId, List<ParticipationRequest> requests, RequestStatus status) {
+        int updated = 0;
+        for (List<Long> chunk : chunks(requests.stream().map(ParticipationRequest::getId).toList())) {
+            updated += requestRepository.updatePendingStatus(eventId, chunk, status, RequestStatus.PENDING);
+        }
+        if (updated != requests.size()) {
+            throw new ConflictException("Request must be PENDING");
+        }
+    }
+
+    private static List<List<Long>> chunks(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += ID_CHUNK_SIZE) {
+            chunks.add(ids.subList(from, Math.min(from + ID_CHUNK_SIZE, ids.size())));
+        }
+        return chunks;
+    }
+
     // 18 Получение информации о заявках текущего пользователя на участие в чужих событиях
     @Transactional(readOnly = true)
     public List<ParticipationRequestDto> getUserRequests(Long userId) {
@@ -140,19 +208,15 @@ public class ParticipationRequestService {
             throw new ConflictException("Request already exists");
         }
 
+        // Быстрый отказ по прочитанному значению; окончательно место проверяет атомарное бронирование ниже
         if (event.getParticipantLimit() > 0 &&
                 event.getConfirmedRequests() >= event.getParticipantLimit()) {
             throw new ConflictException("Participant limit reached");
         }
 
-        RequestStatus status;
-        if (!event.getRequestModeration() || event.getParticipantLimit() == 0) {
-            status = RequestStatus.CONFIRMED;
-            event.setConfirmedRequests(event.getConfirmedRequests() + 1);
-            eventRepository.save(event);
-        } else {
-            status = RequestStatus.PENDING;
-        }
+        RequestStatus status = !event.getRequestModeration() || event.getParticipantLimit() == 0
+                ? RequestStatus.CONFIRMED
+                : RequestStatus.PENDING;
 
         ParticipationRequest request = ParticipationRequest.builder()
                 .event(event)
@@ -161,7 +225,15 @@ public class ParticipationRequestService {
                 .created(LocalDateTime.now())
                 .build();
 
-        ParticipationRequest savedRequest = requestRepository.save(request);
+        ParticipationRequest savedRequest = requestRepository.saveAndFlush(request);
+
+        // Бронирование — последний оператор транзакции, чтобы блокировка строки события держалась
+        // только до коммита; если места кончились, откатывается и вставленная заявка
+        if (status == RequestStatus.CONFIRMED && eventRepository.reserveSeats(eventId, 1) == 0) {
+            log.warn("Participant limit reached for event {}", eventId);
+            throw new ConflictException("Participant limit reached");
+        }
+
         log.info("Participation request created with id={}", savedRequest.getId());
         return ParticipationRequestMapper.toDto(savedRequest);
     }
@@ -187,12 +259,14 @@ public class ParticipationRequestService {
             throw new ConflictException("Request already rejected");
         }
 
-        if (request.getStatus() == RequestStatus.CONFIRMED) {
-            Event event = request.getEvent();
-            event.setConfirmedRequests(Math.max(0, event.getConfirmedRequests() - 1));
+        boolean wasConfirmed = request.getStatus() == RequestStatus.CONFIRMED;
+        request.setStatus(RequestStatus.CANCELED);
+
+        if (wasConfirmed) {
+            requestRepository.flush();
+            eventRepository.releaseSeats(request.getEvent().getId(), 1);
         }
 
-        request.setStatus(RequestStatus.CANCELED);
         log.info("Request id={} canceled successfully", requestId);
 
         return ParticipationRequestMapper.toDto(request);
@@ -0,0 +1,9 @@
+package ru.practicum.ewm.service;
+
+import ru.practicum.ewm.dto.event.EventShortDto;
+
+import java.util.List;
+
+// Страница публичного поиска; nextCursor == null — дальше событий нет
+public record PublicEventsPage(List<EventShortDto> events, String nextCursor) {
+}
@@ -0,0 +1,264 @@
+package ru.practicum.ewm.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.client.StatsClient;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Локальный кэш просмотров событий (уникальные IP за всё время) по URI.
+// Устаревшее значение отдаётся сразу, а обновление уходит в фоновый поток пачками (stale-while-revalidate);
+// на промахе запрос ждёт загрузку не дольше miss-wait-ms, после чего отдаёт 0. Промахи по одному URI
+// из параллельных запросов ждут одну загрузку, а не ставят в очередь каждый свою.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ViewCountCache {
+
+    static final LocalDateTime VIEWS_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final StatsClient statsClient;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ewm.views.cache.refresh-after-ms:5000}")
+    private long refreshAfterMs;
+
+    @Value("${ewm.views.cache.expire-after-access-ms:600000}")
+    private long expireAfterAccessMs;
+
+    @Value("${ewm.views.cache.max-size:100000}")
+    private int maxSize;
+
+    @Value("${ewm.views.cache.refresh-batch-size:200}")
+    private int refreshBatchSize;
+
+    @Value("${ewm.views.cache.refresh-interval-ms:500}")
+    private long refreshIntervalMs;
+
+    @Value("${ewm.views.cache.miss-wait-ms:100}")
+    private long missWaitMs;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<String> staleUris = ConcurrentHashMap.newKeySet();
+    // Загрузки промахов, поставленные в очередь и ещё не завершённые
+    private final Map<String, CompletableFuture<Void>> pendingLoads = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService refresher;
+
+    private Counter hitCounter;
+    private Counter staleCounter;
+    private Counter missCounter;
+    private Counter refreshSuccessCounter;
+    private Counter refreshFailureCounter;
+    private Counter evictionCounter;
+    private Timer refreshTimer;
+
+    private static final class Entry {
+        private final long views;
+        private final long loadedAt;
+        private volatile long accessedAt;
+
+        private Entry(long views, long now) {
+            this.views = views;
+            this.loadedAt = now;
+            this.accessedAt = now;
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        hitCounter = meterRegistry.counter("ewm.views.cache.requests", "result", "hit");
+        staleCounter = meterRegistry.counter("ewm.views.cache.requests", "result", "stale");
+        missCounter = meterRegistry.counter("ewm.views.cache.requests", "result", "miss");
+        refreshSuccessCounter = meterRegistry.counter("ewm.views.cache.refreshes", "outcome", "success");
+        refreshFailureCounter = meterRegistry.counter("ewm.views.cache.refreshes", "outcome", "failure");
+        evictionCounter = meterRegistry.counter("ewm.views.cache.evictions");
+        refreshTimer = meterRegistry.timer("ewm.views.cache.refresh.duration");
+        meterRegistry.gaugeMapSize("ewm.views.cache.size", List.of(), entries);
+
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "views-cache-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::maintain, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        refresher.shutdownNow();
+    }
+
+    // Просмотры для набора URI; отсутствующие в статистике — 0
+    public Map<String, Long> getViews(Collection<String> uris) {
+        long now = System.nanoTime();
+        Map<String, Long> views = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+
+        for (String uri : uris) {
+            Entry entry = entries.get(uri);
+            if (entry == null) {
+                missing.add(uri);
+                continue;
+            }
+            entry.accessedAt = now;
+            views.put(uri, entry.views);
+            if (now - entry.loadedAt > TimeUnit.MILLISECONDS.toNanos(refreshAfterMs)) {
+                staleUris.add(uri);
+                staleCounter.increment();
+            } else {
+                hitCounter.increment();
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            missCounter.increment(missing.size());
+            awaitLoad(missing);
+            for (String uri : missing) {
+                Entry entry = entries.get(uri);
+                views.put(uri, entry != null ? entry.views : 0L);
+            }
+        }
+        return views;
+    }
+
+    public long getViews(String uri) {
+        return getViews(List.of(uri)).getOrDefault(uri, 0L);
+    }
+
+    private void awaitLoad(List<String> uris) {
+        CompletableFuture<Void> load = new CompletableFuture<>();
+        List<String> toLoad = new ArrayList<>();
+        Set<CompletableFuture<Void>> awaited = new HashSet<>();
+        for (String uri : uris) {
+            CompletableFuture<Void> pending = pendingLoads.putIfAbsent(uri, load);
+            if (pending == null) {
+                toLoad.add(uri);
+            } else {
+                awaited.add(pending);
+            }
+        }
+        if (!toLoad.isEmpty()) {
+            awaited.add(load);
+            schedule(toLoad, load);
+        }
+
+        try {
+            CompletableFuture.allOf(awaited.toArray(CompletableFuture[]::new)).get(missWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.debug("Views for {} uris are still loading, rendering without waiting", uris.size());
+        } catch (Exception e) {
+            log.warn("Failed to load views: {}", e.getMessage());
+        }
+    }
+
+    // Загрузка снимается с учёта до завершения: кто придёт после, найдёт значение уже в кэше
+    private void schedule(List<String> uris, CompletableFuture<Void> load) {
+        Runnable task = () -> {
+            try {
+                load(uris);
+            } finally {
+                uris.forEach(uri -> pendingLoads.remove(uri, load));
+                load.complete(null);
+            }
+        };
+        try {
+            refresher.execute(task);
+        } catch (RejectedExecutionException e) {
+            uris.forEach(uri -> pendingLoads.remove(uri, load));
+            load.completeExceptionally(e);
+        }
+    }
+
+    // Фоновый цикл: обновить устаревшие записи, выкинуть давно не читавшиеся и лишние сверх max-size
+    private void maintain() {
+        try {
+            if (!staleUris.isEmpty()) {
+                List<String> stale = new ArrayList<>(staleUris);
+                staleUris.removeAll(stale);
+                load(stale);
+            }
+            evict();
+        } catch (Exception e) {
+            log.warn("Views cache maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    private void load(List<String> uris) {
+        for (int from = 0; from < uris.size(); from += refreshBatchSize) {
+            List<String> batch = uris.subList(from, Math.min(from + refreshBatchSize, uris.size()));
+            long started = System.nanoTime();
+            try {
+                Map<String, Long> loaded = new HashMap<>();
+                statsClient.getStats(VIEWS_START, LocalDateTime.now(), true, batch)
+                        .forEach(stat -> loaded.put(stat.getUri(), stat.getHits()));
+
+                long now = System.nanoTime();
+                for (String uri : batch) {
+                    Entry previous = entries.get(uri);
+                    Entry refreshed = new Entry(loaded.getOrDefault(uri, 0L), now);
+                    if (previous != null) {
+                        refreshed.accessedAt = previous.accessedAt;
+                    }
+                    entries.put(uri, refreshed);
+                }
+                refreshSuccessCounter.increment();
+            } catch (Exception e) {
+                // Старые значения остаются в кэше и будут обновлены при следующем обращении;
+                // для новых кладём 0, чтобы при недоступном stats-server не ходить туда на каждом рендере
+                long now = System.nanoTime();
+                batch.forEach(uri -> entries.putIfAbsent(uri, new Entry(0L, now)));
+                refreshFailureCounter.increment();
+                log.warn("Failed to refresh views for {} uris: {}", batch.size(), e.getMessage());
+            } finally {
+                refreshTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private void evict() {
+        long idleBefore = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(expireAfterAccessMs);
+        entries.entrySet().removeIf(e -> {
+            boolean idle = e.getValue().accessedAt - idleBefore < 0;
+            if (idle) {
+                evictionCounter.increment();
+            }
+            return idle;
+        });
+
+        int excess = entries.size() - maxSize;
+        if (excess > 0) {
+            entries.entrySet().stream()
+                    .sorted(Comparator.comparingLong(e -> e.getValue().accessedAt))
+                    .limit(excess)
+                    .map(Map.Entry::getKey)
+                    .toList()
+                    .forEach(uri -> {
+                        entries.remove(uri);
+                        evictionCounter.increment();
+                    });
+        }
+    }
+}
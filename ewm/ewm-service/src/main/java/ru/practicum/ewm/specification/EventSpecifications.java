@@ -1,5 +1,6 @@
 package ru.practicum.ewm.specification;
 
+import jakarta.persistence.criteria.Expression;
 import org.springframework.data.jpa.domain.Specification;
 import ru.practicum.ewm.model.Event;
 import ru.practicum.ewm.dto.event.EventState;
@@ -49,17 +50,65 @@ public class EventSpecifications {
                         cb.lessThanOrEqualTo(root.get("eventDate"), end);
     }
 
+    // Лимит 0 или не задан — мест без ограничений
     public static Specification<Event> onlyAvailable(Boolean onlyAvailable) {
         return (root, query, cb) -> {
             if (!Boolean.TRUE.equals(onlyAvailable)) return null;
 
             return cb.or(
+                    cb.isNull(root.get("participantLimit")),
                     cb.equal(root.get("participantLimit"), 0),
                     cb.lessThan(
-                            root.get("confirmedRequests"),
-                            root.get("participantLimit")
+                            root.<Long>get("confirmedRequests"),
+                            root.<Integer>get("participantLimit").as(Long.class)
                     )
             );
         };
     }
+
+    // Keyset-пагинация: события строго после (eventDate, id) в порядке eventDate, id
+    public static Specification<Event> after(LocalDateTime eventDate, Long id) {
+        return (root, query, cb) -> {
+            if (eventDate == null || id == null) return null;
+
+            return cb.or(
+                    cb.greaterThan(root.get("eventDate"), eventDate),
+                    cb.and(
+                            cb.equal(root.get("eventDate"), eventDate),
+                            cb.greaterThan(root.get("id"), id)
+                    )
+            );
+        };
+    }
+
+    // Сортировка по релевантности тексту: совпадение в аннотации весит вдвое больше, чем в описании.
+    // С pg_trgm — word_similarity() по тем же выражениям lower(...), что покрыты триграммными индексами;
+    // без него — совпадения в аннотации выше совпадений только в описании. Дальше — eventDate, id.
+    // Спецификация задаёт порядок сама, поэтому Pageable передаётся без Sort.
+    public static Specification<Event> orderByRelevance(String text, boolean trigram) {
+        return (root, query, cb) -> {
+            if (text == null || text.isBlank()) {
+                query.orderBy(cb.asc(root.get("eventDate")), cb.asc(root.get("id")));
+                return null;
+            }
+
+            String lowerText = text.toLowerCase();
+            Expression<String> annotation = cb.lower(root.get("annotation"));
+            Expression<String> description = cb.lower(root.get("description"));
+
+            Expression<Double> relevance;
+            if (trigram) {
+                relevance = cb.sum(
+                        cb.prod(cb.function("word_similarity", Double.class, cb.literal(lowerText), annotation), 2.0),
+                        cb.function("word_similarity", Double.class, cb.literal(lowerText), description));
+            } else {
+                relevance = cb.<Double>selectCase()
+                        .when(cb.like(annotation, "%" + lowerText + "%"), 2.0)
+                        .otherwise(1.0);
+            }
+
+            query.orderBy(cb.desc(relevance), cb.asc(root.get("eventDate")), cb.asc(root.get("id")));
+            return null;
+        };
+    }
 }
@@ -31,6 +31,9 @@ CREATE TABLE IF NOT EXISTS events (
     CONSTRAINT fk_event_initiator FOREIGN KEY (initiator_id) REFERENCES users(id)
 );
 
+CREATE INDEX IF NOT EXISTS idx_events_state_event_date_id ON events (state, event_date, id);
+CREATE INDEX IF NOT EXISTS idx_events_state_views_id ON events (state, views DESC, id);
+
 CREATE TABLE IF NOT EXISTS compilations (
     id BIGSERIAL PRIMARY KEY,
     title VARCHAR(255) NOT NULL,
@@ -56,8 +59,15 @@ CREATE TABLE IF NOT EXISTS participation_requests (
 );
 CREATE TABLE IF NOT EXISTS event_rating (
     id SERIAL PRIMARY KEY,
-    event_id BIGINT NOT NULL REFERENCES event(id),
+    event_id BIGINT NOT NULL REFERENCES events(id),
     user_id BIGINT NOT NULL REFERENCES users(id),
     liked BOOLEAN NOT NULL,
     UNIQUE (event_id, user_id)
 );
+
+-- Итоги оценок по событию, поддерживаются приложением вместе с каждой оценкой
+CREATE TABLE IF NOT EXISTS event_rating_counters (
+    event_id BIGINT PRIMARY KEY REFERENCES events(id),
+    likes BIGINT NOT NULL DEFAULT 0,
+    dislikes BIGINT NOT NULL DEFAULT 0
+);
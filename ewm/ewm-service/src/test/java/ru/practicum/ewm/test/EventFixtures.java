@@ -0,0 +1,40 @@
+package ru.practicum.ewm.test;
+
+import ru.practicum.ewm.dto.event.EventState;
+import ru.practicum.ewm.model.Category;
+import ru.practicum.ewm.model.Event;
+import ru.practicum.ewm.model.EventLocation;
+import ru.practicum.ewm.model.User;
+
+import java.time.LocalDateTime;
+
+// Общие заготовки событий для тестов с базой
+final class EventFixtures {
+
+    private EventFixtures() {
+    }
+
+    // Опубликованное событие через неделю, без лимита участников и модерации заявок;
+    // тест переопределяет нужные поля до build()
+    static Event.EventBuilder publishedEvent(String title, Category category, User initiator) {
+        EventLocation location = new EventLocation();
+        location.setLat(55.75);
+        location.setLon(37.62);
+
+        LocalDateTime now = LocalDateTime.now();
+        return Event.builder()
+                .title(title)
+                .annotation("Annotation of " + title)
+                .description("Description of " + title)
+                .category(category)
+                .initiator(initiator)
+                .eventDate(now.plusDays(7))
+                .location(location)
+                .paid(false)
+                .participantLimit(0)
+                .requestModeration(false)
+                .state(EventState.PUBLISHED)
+                .createdOn(now)
+                .publishedOn(now);
+    }
+}
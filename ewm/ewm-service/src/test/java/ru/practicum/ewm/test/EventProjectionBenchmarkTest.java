@@ -0,0 +1,167 @@
+package ru.practicum.ewm.test;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.EwmServiceApplication;
+import ru.practicum.ewm.dto.event.EventShortDto;
+import ru.practicum.ewm.mapper.EventMapper;
+import ru.practicum.ewm.model.Event;
+import ru.practicum.ewm.repository.EventRepository;
+import ru.practicum.ewm.specification.EventSpecifications;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Списки событий: сущности с маппингом в EventShortDto против проекции EventShortView.
+// Запуск: mvn test -Dewm.benchmark.projection=true [-Dewm.benchmark.projection.events=20000]
+// По умолчанию — H2 в памяти; на PostgreSQL (отдельная пустая база, схема пересоздаётся):
+//         -Dewm.benchmark.projection.jdbc-url=jdbc:postgresql://localhost:5432/ewm_projection
+//         -Dewm.benchmark.projection.username=postgres
+@Slf4j
+@SpringBootTest(classes = EwmServiceApplication.class, properties = {
+        "spring.datasource.url=${ewm.benchmark.projection.jdbc-url:jdbc:h2:mem:ewm-projection-benchmark;MODE=PostgreSQL;DB_CLOSE_DELAY=-1}",
+        "spring.datasource.username=${ewm.benchmark.projection.username:sa}",
+        "spring.datasource.password=${ewm.benchmark.projection.password:}",
+        "spring.datasource.driver-class-name="
+})
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "ewm.benchmark.projection", matches = "true")
+class EventProjectionBenchmarkTest {
+
+    private static final int RUNS = 21;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void benchmark_projectionVersusEntities() {
+        int events = Integer.getInteger("ewm.benchmark.projection.events", 20_000);
+        seed(events);
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        Specification<Event> spec = Specification.where(EventSpecifications.isPublished())
+                .and(EventSpecifications.dateFrom(LocalDateTime.now()));
+
+        for (int size : new int[]{10, 1000}) {
+            Pageable pageable = PageRequest.of(0, size, Sort.by("eventDate").ascending().and(Sort.by("id")));
+
+            Supplier<List<EventShortDto>> entities = () -> readOnly.execute(status ->
+                    findEntities(spec, pageable).stream()
+                            .map(EventMapper::toShortDto)
+                            .toList());
+            Supplier<List<EventShortDto>> projection = () -> readOnly.execute(status ->
+                    eventRepository.findShortSlice(spec, pageable).getContent().stream()
+                            .map(EventMapper::toShortDto)
+                            .toList());
+
+            assertThat(projection.get()).usingRecursiveFieldByFieldElementComparator()
+                    .containsExactlyElementsOf(entities.get());
+
+            long[] entityResult = measure(entities);
+            long[] projectionResult = measure(projection);
+            log.info("Page of {} events out of {}: entities {} us / {} KB allocated, projection {} us / {} KB allocated",
+                    size, events, entityResult[0], entityResult[1] / 1024,
+                    projectionResult[0], projectionResult[1] / 1024);
+        }
+    }
+
+    // Прежний путь списков: сущности с категорией и инициатором одним запросом, size строк без COUNT
+    private List<Event> findEntities(Specification<Event> spec, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Event> query = cb.createQuery(Event.class);
+        Root<Event> root = query.from(Event.class);
+        root.fetch("category");
+        root.fetch("initiator");
+        query.select(root)
+                .where(spec.toPredicate(root, query, cb))
+                .orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        return entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+    }
+
+    // Медиана времени (мкс) и выделенной памяти потоком (байт) по RUNS запускам после прогрева
+    private long[] measure(Supplier<List<EventShortDto>> query) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < RUNS; i++) {
+            query.get();
+        }
+
+        long[] micros = new long[RUNS];
+        long[] allocated = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            query.get();
+            micros[i] = (System.nanoTime() - start) / 1_000;
+            allocated[i] = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+        }
+        Arrays.sort(micros);
+        Arrays.sort(allocated);
+        return new long[]{micros[RUNS / 2], allocated[RUNS / 2]};
+    }
+
+    // Описания близки к пределу в 7000 символов — как у реальных событий с подробной программой
+    private void seed(int events) {
+        jdbc.update("INSERT INTO users (name, email) VALUES ('Benchmark', 'benchmark@example.com')");
+        jdbc.update("INSERT INTO categories (name) VALUES ('Benchmark')");
+        Long userId = jdbc.queryForObject("SELECT id FROM users", Long.class);
+        Long categoryId = jdbc.queryForObject("SELECT id FROM categories", Long.class);
+
+        String description = "Detailed programme of the event. ".repeat(200);
+        Timestamp created = Timestamp.valueOf(LocalDateTime.now().minusDays(1));
+        int chunk = 1_000;
+        for (int offset = 0; offset < events; offset += chunk) {
+            List<Object[]> rows = new ArrayList<>(chunk);
+            for (int i = offset; i < Math.min(offset + chunk, events); i++) {
+                rows.add(new Object[]{
+                        "Event " + i, "Annotation of the event number " + i, description + i, categoryId, userId,
+                        Timestamp.valueOf(LocalDateTime.now().plusMinutes(10L + i)), created, created
+                });
+            }
+            jdbc.batchUpdate("INSERT INTO events (title, annotation, description, category_id, initiator_id, "
+                    + "event_date, lat, lon, paid, participant_limit, request_moderation, state, created_on, "
+                    + "published_on, confirmed_requests, views) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, 55.75, 37.62, false, 0, false, 'PUBLISHED', ?, ?, 0, 0)", rows);
+        }
+        log.info("Seeded {} events", events);
+    }
+}
@@ -0,0 +1,193 @@
+package ru.practicum.ewm.test;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.practicum.ewm.EwmServiceApplication;
+import ru.practicum.ewm.model.Category;
+import ru.practicum.ewm.model.Compilation;
+import ru.practicum.ewm.model.Event;
+import ru.practicum.ewm.model.User;
+import ru.practicum.ewm.repository.CategoryRepository;
+import ru.practicum.ewm.repository.CompilationRepository;
+import ru.practicum.ewm.repository.EventRatingCounterRepository;
+import ru.practicum.ewm.repository.EventRatingRepository;
+import ru.practicum.ewm.repository.EventRepository;
+import ru.practicum.ewm.repository.UserRepository;
+import ru.practicum.ewm.service.CompilationCache;
+import ru.practicum.stats.client.StatsClient;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Число SQL-операторов на запрос к эндпоинтам со списками событий не должно зависеть от размера страницы:
+// у каждого события свои категория и инициатор, поэтому ленивая подгрузка сразу дала бы +2 select на событие
+@SpringBootTest(classes = EwmServiceApplication.class, properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // фоновое обновление рейтинга событий не должно попадать в подсчёт операторов запроса
+        "ewm.rating.leaderboard.refresh-interval-ms=3600000"
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class EventQueryCountTest {
+
+    private static final int EVENTS = 6;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CompilationRepository compilationRepository;
+
+    @Autowired
+    private CompilationCache compilationCache;
+
+    @Autowired
+    private EventRatingRepository ratingRepository;
+
+    @Autowired
+    private EventRatingCounterRepository ratingCounterRepository;
+
+    @MockBean
+    private StatsClient statsClient;
+
+    private final List<Event> events = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        compilationRepository.deleteAll();
+        compilationCache.invalidate();
+        ratingRepository.deleteAll();
+        ratingCounterRepository.deleteAll();
+        eventRepository.deleteAll();
+        userRepository.deleteAll();
+        categoryRepository.deleteAll();
+        events.clear();
+
+        for (int i = 0; i < EVENTS; i++) {
+            User user = userRepository.save(User.builder()
+                    .name("User " + i)
+                    .email("user" + i + "@example.com")
+                    .build());
+            Category category = categoryRepository.save(Category.builder()
+                    .name("Category " + i)
+                    .build());
+
+            events.add(eventRepository.save(EventFixtures.publishedEvent("Event " + i, category, user)
+                    .eventDate(LocalDateTime.now().plusDays(1 + i))
+                    .build()));
+        }
+
+        for (int i = 0; i < 3; i++) {
+            compilationRepository.save(Compilation.builder()
+                    .title("Compilation " + i)
+                    .pinned(i % 2 == 0)
+                    .events(new ArrayList<>(events.subList(i, i + 3)))
+                    .build());
+        }
+    }
+
+    @Test
+    void publicSearch_oneStatementPerPage() throws Exception {
+        assertThat(statements("/events?size=" + EVENTS)).isEqualTo(1);
+    }
+
+    @Test
+    void publicEvent_oneStatement() throws Exception {
+        assertThat(statements("/events/" + events.get(0).getId())).isEqualTo(1);
+    }
+
+    @Test
+    void adminSearch_pageAndCountStatementsOnly() throws Exception {
+        // Полная страница при наличии следующей: select страницы и отдельный count
+        assertThat(statements("/admin/events?from=0&size=" + (EVENTS - 1))).isEqualTo(2);
+    }
+
+    @Test
+    void userEvents_oneStatementPerPage() throws Exception {
+        Event event = events.get(0);
+        assertThat(statements("/users/" + event.getInitiator().getId() + "/events")).isEqualTo(1);
+    }
+
+    @Test
+    void userEvent_oneStatement() throws Exception {
+        Event event = events.get(0);
+        assertThat(statements("/users/" + event.getInitiator().getId() + "/events/" + event.getId()))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void compilations_pageAndEventsStatements_thenServedFromCache() throws Exception {
+        assertThat(statements("/compilations?pinned=true")).isEqualTo(2);
+        assertThat(statements("/compilations?pinned=true")).isZero();
+        assertThat(statements("/compilations")).isEqualTo(2);
+    }
+
+    @Test
+    void compilation_twoStatements() throws Exception {
+        Long compilationId = compilationRepository.findAll().get(0).getId();
+        assertThat(statements("/compilations/" + compilationId)).isEqualTo(2);
+    }
+
+    @Test
+    void rating_counterLookupOnly() throws Exception {
+        Event event = events.get(0);
+        for (int i = 1; i < EVENTS; i++) {
+            mockMvc.perform(post("/events/" + event.getId() + "/rating")
+                            .param("userId", events.get(i).getInitiator().getId().toString())
+                            .param("liked", String.valueOf(i % 2 == 0)))
+                    .andExpect(status().isOk());
+        }
+        assertThat(statements("/events/" + event.getId() + "/rating")).isEqualTo(1);
+    }
+
+    @Test
+    void vote_noParentLoads() throws Exception {
+        Event event = events.get(0);
+        String voter = events.get(1).getInitiator().getId().toString();
+        // Первый голос: несостоявшийся flip, вставка, инкремент счётчика и его создание
+        assertThat(statements(post("/events/" + event.getId() + "/rating")
+                .param("userId", voter).param("liked", "true"))).isEqualTo(4);
+        // Смена оценки: flip и инкремент
+        assertThat(statements(post("/events/" + event.getId() + "/rating")
+                .param("userId", voter).param("liked", "false"))).isEqualTo(2);
+    }
+
+    private long statements(String url) throws Exception {
+        return statements(get(url));
+    }
+
+    private long statements(MockHttpServletRequestBuilder request) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(request).andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,178 @@
+package ru.practicum.ewm.test;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import ru.practicum.ewm.EwmServiceApplication;
+import ru.practicum.ewm.exception.ConflictException;
+import ru.practicum.ewm.exception.NotFoundException;
+import ru.practicum.ewm.model.Category;
+import ru.practicum.ewm.model.Event;
+import ru.practicum.ewm.model.User;
+import ru.practicum.ewm.repository.CategoryRepository;
+import ru.practicum.ewm.repository.CompilationRepository;
+import ru.practicum.ewm.repository.EventRatingCounterRepository;
+import ru.practicum.ewm.repository.EventRatingRepository;
+import ru.practicum.ewm.repository.EventRepository;
+import ru.practicum.ewm.repository.ParticipationRequestRepository;
+import ru.practicum.ewm.repository.UserRepository;
+import ru.practicum.ewm.service.EventRatingService;
+import ru.practicum.stats.client.StatsClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Счётчики оценок должны совпадать с подсчётом строк event_rating после любой смеси
+// параллельных голосов, смен оценки и отзывов — в том числе от одного и того же пользователя
+@SpringBootTest(classes = EwmServiceApplication.class, properties = {
+        "spring.datasource.hikari.maximum-pool-size=32"
+})
+@ActiveProfiles("test")
+class EventRatingConcurrencyTest {
+
+    private static final int VOTERS = 100;
+    private static final int VOTES = 2_000;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private EventRatingService service;
+
+    @Autowired
+    private EventRatingRepository ratingRepository;
+
+    @Autowired
+    private EventRatingCounterRepository counterRepository;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CompilationRepository compilationRepository;
+
+    @Autowired
+    private ParticipationRequestRepository requestRepository;
+
+    @MockBean
+    private StatsClient statsClient;
+
+    private final List<User> voters = new ArrayList<>();
+    private final List<Event> events = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        ratingRepository.deleteAll();
+        counterRepository.deleteAll();
+        requestRepository.deleteAll();
+        compilationRepository.deleteAll();
+        eventRepository.deleteAll();
+        userRepository.deleteAll();
+        categoryRepository.deleteAll();
+        voters.clear();
+        events.clear();
+
+        User initiator = userRepository.save(User.builder().name("Initiator").email("initiator@example.com").build());
+        Category category = categoryRepository.save(Category.builder().name("Concerts").build());
+        for (int i = 0; i < VOTERS; i++) {
+            voters.add(userRepository.save(User.builder()
+                    .name("Voter " + i)
+                    .email("voter" + i + "@example.com")
+                    .build()));
+        }
+        for (int i = 0; i < 2; i++) {
+            events.add(saveEvent(initiator, category, i));
+        }
+    }
+
+    @Test
+    void parallelVotesFlipsAndRemovals_countersMatchRatings() throws Exception {
+        Random random = new Random(42);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < VOTES; i++) {
+            Long eventId = events.get(random.nextInt(events.size())).getId();
+            Long userId = voters.get(random.nextInt(VOTERS)).getId();
+            int action = random.nextInt(5);
+            tasks.add(() -> {
+                try {
+                    if (action == 0) {
+                        service.removeRating(eventId, userId);
+                    } else {
+                        service.setRating(eventId, userId, action % 2 == 0);
+                    }
+                } catch (NotFoundException | ConflictException e) {
+                    // отзывать нечего или голос того же пользователя менялся параллельно
+                }
+                return null;
+            });
+        }
+        runConcurrently(tasks);
+
+        for (Event event : events) {
+            Map<String, Long> rating = service.getRating(event.getId());
+            assertThat(rating.get("likes")).isEqualTo(ratingRepository.countByEventIdAndLiked(event.getId(), true));
+            assertThat(rating.get("dislikes"))
+                    .isEqualTo(ratingRepository.countByEventIdAndLiked(event.getId(), false));
+        }
+    }
+
+    @Test
+    void ratingsWithoutCounter_areCountedAndCounterIsBuiltOnNextVote() {
+        Long eventId = events.get(0).getId();
+        service.setRating(eventId, voters.get(0).getId(), true);
+        service.setRating(eventId, voters.get(1).getId(), false);
+        // Оценки, поставленные до появления счётчиков
+        counterRepository.deleteAll();
+
+        assertThat(service.getRating(eventId)).containsEntry("likes", 1L).containsEntry("dislikes", 1L);
+
+        service.setRating(eventId, voters.get(2).getId(), true);
+        assertThat(counterRepository.findById(eventId)).hasValueSatisfying(counter -> {
+            assertThat(counter.getLikes()).isEqualTo(2);
+            assertThat(counter.getDislikes()).isEqualTo(1);
+        });
+    }
+
+    // Все задачи стартуют одновременно по общему сигналу
+    private void runConcurrently(List<Callable<Void>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (Callable<Void> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Event saveEvent(User initiator, Category category, int number) {
+        return eventRepository.save(EventFixtures.publishedEvent("Rated event " + number, category, initiator)
+                .build());
+    }
+}
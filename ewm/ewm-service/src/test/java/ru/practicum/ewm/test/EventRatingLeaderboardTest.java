@@ -0,0 +1,207 @@
+package ru.practicum.ewm.test;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.ewm.EwmServiceApplication;
+import ru.practicum.ewm.dto.event.EventState;
+import ru.practicum.ewm.model.Category;
+import ru.practicum.ewm.model.Event;
+import ru.practicum.ewm.model.User;
+import ru.practicum.ewm.repository.CategoryRepository;
+import ru.practicum.ewm.repository.CompilationRepository;
+import ru.practicum.ewm.repository.EventRatingCounterRepository;
+import ru.practicum.ewm.repository.EventRatingRepository;
+import ru.practicum.ewm.repository.EventRepository;
+import ru.practicum.ewm.repository.ParticipationRequestRepository;
+import ru.practicum.ewm.repository.UserRepository;
+import ru.practicum.stats.client.StatsClient;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Топ событий по оценкам: порядок по score, фильтр по категории и реакция на голоса и публикацию
+// через фоновое обновление рейтинга
+@SpringBootTest(classes = EwmServiceApplication.class, properties = {
+        "ewm.rating.leaderboard.refresh-interval-ms=50",
+        // события между тестами удаляются напрямую — частое перестроение убирает их из рейтинга
+        "ewm.rating.leaderboard.rebuild-interval-ms=200"
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class EventRatingLeaderboardTest {
+
+    private static final long WAIT_MS = 5_000;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EventRatingRepository ratingRepository;
+
+    @Autowired
+    private EventRatingCounterRepository counterRepository;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CompilationRepository compilationRepository;
+
+    @Autowired
+    private ParticipationRequestRepository requestRepository;
+
+    @MockBean
+    private StatsClient statsClient;
+
+    private final List<User> voters = new ArrayList<>();
+    private User initiator;
+    private Category concerts;
+    private Category lectures;
+
+    @BeforeEach
+    void setup() throws Exception {
+        ratingRepository.deleteAll();
+        counterRepository.deleteAll();
+        requestRepository.deleteAll();
+        compilationRepository.deleteAll();
+        eventRepository.deleteAll();
+        userRepository.deleteAll();
+        categoryRepository.deleteAll();
+        voters.clear();
+
+        initiator = userRepository.save(User.builder().name("Initiator").email("initiator@example.com").build());
+        concerts = categoryRepository.save(Category.builder().name("Concerts").build());
+        lectures = categoryRepository.save(Category.builder().name("Lectures").build());
+        for (int i = 0; i < 5; i++) {
+            voters.add(userRepository.save(User.builder()
+                    .name("Voter " + i)
+                    .email("voter" + i + "@example.com")
+                    .build()));
+        }
+        // Удалённые выше события должны уйти и из рейтинга
+        awaitTop("/events/top-rated", List.of());
+    }
+
+    @Test
+    void topRated_ordersByScoreWithinAndAcrossCategories() throws Exception {
+        Event popular = saveEvent(concerts, EventState.PUBLISHED);
+        Event mixed = saveEvent(concerts, EventState.PUBLISHED);
+        Event lecture = saveEvent(lectures, EventState.PUBLISHED);
+
+        vote(popular, 0, true);
+        vote(popular, 1, true);
+        vote(popular, 2, true);
+        vote(mixed, 0, true);
+        vote(mixed, 1, false);
+        vote(lecture, 0, true);
+        vote(lecture, 1, true);
+
+        awaitTop("/events/top-rated", List.of(popular.getId(), lecture.getId(), mixed.getId()));
+        awaitTop("/events/top-rated?categoryId=" + concerts.getId(), List.of(popular.getId(), mixed.getId()));
+        awaitTop("/events/top-rated?size=1", List.of(popular.getId()));
+
+        // Смена оценок переставляет события
+        vote(popular, 0, false);
+        vote(popular, 1, false);
+        awaitTop("/events/top-rated", List.of(lecture.getId(), mixed.getId(), popular.getId()));
+    }
+
+    @Test
+    void topRated_includesRatedEventOnceItIsPublished() throws Exception {
+        Event pending = saveEvent(concerts, EventState.PENDING);
+        Event published = saveEvent(concerts, EventState.PUBLISHED);
+        vote(pending, 0, true);
+        vote(pending, 1, true);
+        vote(published, 0, true);
+
+        awaitTop("/events/top-rated", List.of(published.getId()));
+
+        mockMvc.perform(patch("/admin/events/" + pending.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"stateAction\": \"PUBLISH_EVENT\"}"))
+                .andExpect(status().isOk());
+
+        awaitTop("/events/top-rated", List.of(pending.getId(), published.getId()));
+    }
+
+    // Событие снято с публикации в обход модерации: рейтинг узнает об этом только при перестроении,
+    // а до тех пор топ добирает size событий из следующих позиций
+    @Test
+    void topRated_fillsSizePastEventsUnpublishedSinceRefresh() throws Exception {
+        Event withdrawn = saveEvent(concerts, EventState.PUBLISHED);
+        Event next = saveEvent(lectures, EventState.PUBLISHED);
+        vote(withdrawn, 0, true);
+        vote(withdrawn, 1, true);
+        vote(next, 0, true);
+        awaitTop("/events/top-rated", List.of(withdrawn.getId(), next.getId()));
+
+        withdrawn.setState(EventState.CANCELED);
+        eventRepository.save(withdrawn);
+
+        String body = mockMvc.perform(get("/events/top-rated?size=1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertThat(JsonPath.<List<Number>>read(body, "$[*].event.id")).extracting(Number::longValue)
+                .containsExactly(next.getId());
+    }
+
+    @Test
+    void topRated_rejectsSizeOutOfRange() throws Exception {
+        mockMvc.perform(get("/events/top-rated?size=0")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/events/top-rated?size=101")).andExpect(status().isBadRequest());
+    }
+
+    private void vote(Event event, int voter, boolean liked) throws Exception {
+        mockMvc.perform(post("/events/" + event.getId() + "/rating")
+                        .param("userId", voters.get(voter).getId().toString())
+                        .param("liked", String.valueOf(liked)))
+                .andExpect(status().isOk());
+    }
+
+    // Рейтинг обновляется фоновым потоком — ждём, пока ответ не сойдётся с ожидаемым
+    private void awaitTop(String url, List<Long> expected) throws Exception {
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        List<Long> actual;
+        do {
+            String body = mockMvc.perform(get(url))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            actual = JsonPath.<List<Number>>read(body, "$[*].event.id").stream()
+                    .map(Number::longValue)
+                    .toList();
+            if (actual.equals(expected)) {
+                return;
+            }
+            Thread.sleep(20);
+        } while (System.currentTimeMillis() < deadline);
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    private Event saveEvent(Category category, EventState state) {
+        return eventRepository.save(EventFixtures.publishedEvent("Rated event", category, initiator)
+                .state(state)
+                .publishedOn(state == EventState.PUBLISHED ? LocalDateTime.now() : null)
+                .build());
+    }
+}
@@ -0,0 +1,183 @@
+package ru.practicum.ewm.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.practicum.ewm.EwmServiceApplication;
+import ru.practicum.ewm.model.Event;
+import ru.practicum.ewm.repository.EventRepository;
+import ru.practicum.ewm.service.EventTextSearchIndex;
+import ru.practicum.ewm.specification.EventSpecifications;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Замер поиска по тексту на PostgreSQL: последовательный скан против триграммных GIN-индексов.
+// Запуск: mvn test -Dewm.benchmark.jdbc-url=jdbc:postgresql://localhost:5432/ewm_bench
+//         [-Dewm.benchmark.username=postgres -Dewm.benchmark.password= -Dewm.benchmark.events=1000000]
+// База должна быть отдельной: таблица events пересоздаётся, если в ней другое число строк.
+@Slf4j
+@SpringBootTest(classes = EwmServiceApplication.class, properties = {
+        "spring.datasource.url=${ewm.benchmark.jdbc-url}",
+        "spring.datasource.username=${ewm.benchmark.username:postgres}",
+        "spring.datasource.password=${ewm.benchmark.password:}",
+        "spring.datasource.driver-class-name=",
+        "spring.jpa.hibernate.ddl-auto=update",
+        "ewm.search.trigram.enabled=false"
+})
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "ewm.benchmark.jdbc-url", matches = ".+")
+class EventTextSearchBenchmarkTest {
+
+    private static final int RUNS = 5;
+    private static final String RARE_WORD = "saxophone";
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private EventTextSearchIndex textSearchIndex;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private final Random random = new Random(42);
+
+    @Test
+    void benchmark_trigramIndexVersusSequentialScan() {
+        int events = Integer.getInteger("ewm.benchmark.events", 1_000_000);
+        seed(events);
+
+        jdbc.execute("DROP INDEX IF EXISTS idx_events_annotation_trgm");
+        jdbc.execute("DROP INDEX IF EXISTS idx_events_description_trgm");
+        jdbc.execute("ANALYZE events");
+        long[] withoutIndex = measure(false);
+
+        long buildStart = System.nanoTime();
+        textSearchIndex.ensureIndexes();
+        long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+        assertThat(textSearchIndex.isTrigramAvailable()).isTrue();
+        jdbc.execute("ANALYZE events");
+        long[] withIndex = measure(true);
+
+        log.info("Text search over {} events, trigram indexes built in {} ms", events, buildMillis);
+        log.info("  rare word '{}', sort=EVENT_DATE: seq scan {} ms, trigram index {} ms",
+                RARE_WORD, withoutIndex[0], withIndex[0]);
+        log.info("  rare word '{}', sort=RELEVANCE: seq scan {} ms, trigram index {} ms",
+                RARE_WORD, withoutIndex[1], withIndex[1]);
+        log.info("  no matches, sort=EVENT_DATE: seq scan {} ms, trigram index {} ms",
+                withoutIndex[2], withIndex[2]);
+    }
+
+    // Медиана по RUNS запускам для каждого сценария: редкое слово по дате и по релевантности, слово без совпадений
+    private long[] measure(boolean trigram) {
+        LocalDateTime now = LocalDateTime.now();
+        Pageable byDate = PageRequest.of(0, 10, Sort.by("eventDate").ascending().and(Sort.by("id")));
+        Pageable unsorted = PageRequest.of(0, 10);
+
+        Specification<Event> rare = search(RARE_WORD, now);
+        Specification<Event> rareByRelevance = rare.and(EventSpecifications.orderByRelevance(RARE_WORD, trigram));
+        Specification<Event> missing = search("qwzxj", now);
+
+        return new long[]{
+                median(() -> assertThat(eventRepository.findShortSlice(rare, byDate).getContent()).isNotEmpty()),
+                median(() -> assertThat(eventRepository.findShortSlice(rareByRelevance, unsorted).getContent()).isNotEmpty()),
+                median(() -> assertThat(eventRepository.findShortSlice(missing, byDate).getContent()).isEmpty())
+        };
+    }
+
+    private Specification<Event> search(String text, LocalDateTime now) {
+        return Specification.where(EventSpecifications.isPublished())
+                .and(EventSpecifications.textLike(text))
+                .and(EventSpecifications.dateFrom(now));
+    }
+
+    private long median(Runnable query) {
+        query.run();
+        long[] millis = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            query.run();
+            millis[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+        Arrays.sort(millis);
+        return millis[RUNS / 2];
+    }
+
+    // Аннотация и описание из словаря псевдослов; редкое слово попадает в описание примерно одного события из 10 000
+    private void seed(int events) {
+        Long existing = jdbc.queryForObject("SELECT COUNT(*) FROM events", Long.class);
+        if (existing != null && existing == events) {
+            log.info("Reusing {} seeded events", events);
+            return;
+        }
+
+        jdbc.execute("TRUNCATE TABLE participation_requests, compilation_events, compilations, events, "
+                + "categories, users RESTART IDENTITY CASCADE");
+        jdbc.update("INSERT INTO users (name, email) VALUES ('Benchmark', 'benchmark@example.com')");
+        jdbc.update("INSERT INTO categories (name) VALUES ('Benchmark')");
+        Long userId = jdbc.queryForObject("SELECT id FROM users", Long.class);
+        Long categoryId = jdbc.queryForObject("SELECT id FROM categories", Long.class);
+
+        String[] vocabulary = vocabulary(5_000);
+        Timestamp created = Timestamp.valueOf(LocalDateTime.now().minusDays(1));
+        int chunk = 5_000;
+        for (int offset = 0; offset < events; offset += chunk) {
+            List<Object[]> rows = new ArrayList<>(chunk);
+            for (int i = 0; i < Math.min(chunk, events - offset); i++) {
+                String description = words(vocabulary, 60);
+                if (random.nextInt(10_000) == 0) {
+                    description = description + " " + RARE_WORD;
+                }
+                rows.add(new Object[]{
+                        "Event " + (offset + i), words(vocabulary, 20), description, categoryId, userId,
+                        Timestamp.valueOf(LocalDateTime.now().plusHours(1 + random.nextInt(365 * 24))),
+                        created, created
+                });
+            }
+            jdbc.batchUpdate("INSERT INTO events (title, annotation, description, category_id, initiator_id, "
+                    + "event_date, lat, lon, paid, participant_limit, request_moderation, state, created_on, "
+                    + "published_on, confirmed_requests, views) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, 55.75, 37.62, false, 0, false, 'PUBLISHED', ?, ?, 0, 0)", rows);
+        }
+        log.info("Seeded {} events", events);
+    }
+
+    private String[] vocabulary(int size) {
+        String[] syllables = {"ka", "lo", "mi", "ne", "tor", "va", "ris", "den", "sol", "ur", "pe", "qua", "zin", "mar", "el"};
+        String[] words = new String[size];
+        for (int i = 0; i < size; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int s = 0; s < 2 + random.nextInt(3); s++) {
+                word.append(syllables[random.nextInt(syllables.length)]);
+            }
+            words[i] = word.toString();
+        }
+        return words;
+    }
+
+    private String words(String[] vocabulary, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(vocabulary[random.nextInt(vocabulary.length)]);
+        }
+        return text.toString();
+    }
+}
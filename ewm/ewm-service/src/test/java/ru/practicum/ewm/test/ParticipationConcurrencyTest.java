@@ -0,0 +1,269 @@
+package ru.practicum.ewm.test;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import ru.practicum.ewm.EwmServiceApplication;
+import ru.practicum.ewm.dto.request.EventRequestStatusUpdateRequest;
+import ru.practicum.ewm.dto.request.EventRequestStatusUpdateResult;
+import ru.practicum.ewm.dto.request.ParticipationRequestDto;
+import ru.practicum.ewm.dto.request.RequestStatus;
+import ru.practicum.ewm.exception.ConflictException;
+import ru.practicum.ewm.model.Category;
+import ru.practicum.ewm.model.Event;
+import ru.practicum.ewm.model.ParticipationRequest;
+import ru.practicum.ewm.model.User;
+import ru.practicum.ewm.repository.CategoryRepository;
+import ru.practicum.ewm.repository.CompilationRepository;
+import ru.practicum.ewm.repository.EventRatingCounterRepository;
+import ru.practicum.ewm.repository.EventRatingRepository;
+import ru.practicum.ewm.repository.EventRepository;
+import ru.practicum.ewm.repository.ParticipationRequestRepository;
+import ru.practicum.ewm.repository.UserRepository;
+import ru.practicum.ewm.service.ParticipationRequestService;
+import ru.practicum.stats.client.StatsClient;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Сотни участников одновременно бьются за ограниченное число мест: подтверждений должно быть ровно столько,
+// сколько мест, а confirmedRequests — совпадать с числом подтверждённых заявок
+@SpringBootTest(classes = EwmServiceApplication.class, properties = {
+        "spring.datasource.hikari.maximum-pool-size=32"
+})
+@ActiveProfiles("test")
+class ParticipationConcurrencyTest {
+
+    private static final int REQUESTERS = 300;
+    private static final int LIMIT = 50;
+    private static final int THREADS = 64;
+
+    @Autowired
+    private ParticipationRequestService service;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CompilationRepository compilationRepository;
+
+    @Autowired
+    private ParticipationRequestRepository requestRepository;
+
+    @Autowired
+    private EventRatingRepository ratingRepository;
+
+    @Autowired
+    private EventRatingCounterRepository counterRepository;
+
+    @MockBean
+    private StatsClient statsClient;
+
+    private User initiator;
+    private Category category;
+    private final List<User> requesters = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        // Контекст общий с тестами оценок: их оценки ссылаются на события
+        ratingRepository.deleteAll();
+        counterRepository.deleteAll();
+        requestRepository.deleteAll();
+        compilationRepository.deleteAll();
+        eventRepository.deleteAll();
+        userRepository.deleteAll();
+        categoryRepository.deleteAll();
+        requesters.clear();
+
+        initiator = userRepository.save(User.builder().name("Initiator").email("initiator@example.com").build());
+        category = categoryRepository.save(Category.builder().name("Concerts").build());
+        for (int i = 0; i < REQUESTERS; i++) {
+            requesters.add(userRepository.save(User.builder()
+                    .name("Requester " + i)
+                    .email("requester" + i + "@example.com")
+                    .build()));
+        }
+    }
+
+    @Test
+    void createRequest_parallelRequestersNeverOversubscribe() throws Exception {
+        Event event = saveEvent(false);
+
+        AtomicInteger confirmed = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        runConcurrently(requesters.stream()
+                .<Callable<Void>>map(user -> () -> {
+                    try {
+                        service.createRequest(user.getId(), event.getId());
+                        confirmed.incrementAndGet();
+                    } catch (ConflictException e) {
+                        refused.incrementAndGet();
+                    }
+                    return null;
+                })
+                .toList());
+
+        assertThat(confirmed.get()).isEqualTo(LIMIT);
+        assertThat(refused.get()).isEqualTo(REQUESTERS - LIMIT);
+        assertSeatsMatchRequests(event.getId(), LIMIT);
+    }
+
+    @Test
+    void cancelRequest_freesSeatForNextRequester() {
+        Event event = saveEvent(false);
+        List<ParticipationRequestDto> created = new ArrayList<>();
+        for (int i = 0; i < LIMIT; i++) {
+            created.add(service.createRequest(requesters.get(i).getId(), event.getId()));
+        }
+
+        service.cancelRequest(requesters.get(0).getId(), created.get(0).getId());
+        service.createRequest(requesters.get(LIMIT).getId(), event.getId());
+
+        assertSeatsMatchRequests(event.getId(), LIMIT);
+    }
+
+    @Test
+    void updateRequests_parallelConfirmationsNeverOversubscribe() throws Exception {
+        Event event = saveEvent(true);
+        List<Long> pending = requesters.stream()
+                .map(user -> service.createRequest(user.getId(), event.getId()).getId())
+                .toList();
+
+        // Инициатор подтверждает заявки пачками по 5 из множества потоков одновременно
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int from = 0; from < pending.size(); from += 5) {
+            EventRequestStatusUpdateRequest update = new EventRequestStatusUpdateRequest();
+            update.setRequestIds(pending.subList(from, from + 5));
+            update.setStatus(RequestStatus.CONFIRMED);
+            tasks.add(() -> {
+                try {
+                    service.updateRequests(initiator.getId(), event.getId(), update);
+                } catch (ConflictException e) {
+                    // лимит исчерпан раньше, и заявки пачки уже отклонены автоматически
+                }
+                return null;
+            });
+        }
+        runConcurrently(tasks);
+
+        assertSeatsMatchRequests(event.getId(), LIMIT);
+        assertThat(requestRepository.findAllByEventId(event.getId()))
+                .noneMatch(r -> r.getStatus() == RequestStatus.PENDING);
+    }
+
+    @Test
+    void updateRequests_confirmsUpToLimitAndRejectsTheRest() {
+        Event event = saveEvent(true);
+        List<Long> pending = requesters.stream()
+                .map(user -> service.createRequest(user.getId(), event.getId()).getId())
+                .toList();
+
+        EventRequestStatusUpdateRequest update = new EventRequestStatusUpdateRequest();
+        update.setRequestIds(pending.subList(0, LIMIT + 10));
+        update.setStatus(RequestStatus.CONFIRMED);
+        EventRequestStatusUpdateResult result = service.updateRequests(initiator.getId(), event.getId(), update);
+
+        assertThat(result.getConfirmedRequests()).extracting(ParticipationRequestDto::getId)
+                .containsExactlyElementsOf(pending.subList(0, LIMIT));
+        assertThat(result.getRejectedRequests()).extracting(ParticipationRequestDto::getId)
+                .containsExactlyElementsOf(pending.subList(LIMIT, LIMIT + 10));
+        assertSeatsMatchRequests(event.getId(), LIMIT);
+        // Не вошедшие в пачку ожидающие заявки отклоняются, как только лимит исчерпан
+        assertThat(requestRepository.findAllByEventId(event.getId()))
+                .noneMatch(r -> r.getStatus() == RequestStatus.PENDING);
+
+        update.setRequestIds(pending.subList(LIMIT + 10, LIMIT + 11));
+        assertThatThrownBy(() -> service.updateRequests(initiator.getId(), event.getId(), update))
+                .isInstanceOf(ConflictException.class);
+    }
+
+    @Test
+    void updateRequests_thousandsOfIdsInOneCall() {
+        int requests = 3_000;
+        int limit = 2_500;
+        Event event = saveEvent(true, limit);
+        List<User> users = userRepository.saveAll(IntStream.range(0, requests)
+                .mapToObj(i -> User.builder().name("Bulk " + i).email("bulk" + i + "@example.com").build())
+                .toList());
+        List<Long> pending = requestRepository.saveAll(users.stream()
+                        .map(user -> ParticipationRequest.builder()
+                                .event(event)
+                                .requester(user)
+                                .status(RequestStatus.PENDING)
+                                .created(LocalDateTime.now())
+                                .build())
+                        .toList()).stream()
+                .map(ParticipationRequest::getId)
+                .toList();
+
+        EventRequestStatusUpdateRequest update = new EventRequestStatusUpdateRequest();
+        update.setRequestIds(pending);
+        update.setStatus(RequestStatus.CONFIRMED);
+        EventRequestStatusUpdateResult result = service.updateRequests(initiator.getId(), event.getId(), update);
+
+        assertThat(result.getConfirmedRequests()).hasSize(limit);
+        assertThat(result.getRejectedRequests()).hasSize(requests - limit);
+        assertSeatsMatchRequests(event.getId(), limit);
+    }
+
+    private void assertSeatsMatchRequests(Long eventId, int expected) {
+        long confirmedRequests = requestRepository.findAllByEventId(eventId).stream()
+                .filter(r -> r.getStatus() == RequestStatus.CONFIRMED)
+                .count();
+        assertThat(confirmedRequests).isEqualTo(expected);
+        assertThat(eventRepository.findById(eventId).orElseThrow().getConfirmedRequests()).isEqualTo(expected);
+    }
+
+    // Все задачи стартуют одновременно по общему сигналу
+    private void runConcurrently(List<Callable<Void>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (Callable<Void> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Event saveEvent(boolean requestModeration) {
+        return saveEvent(requestModeration, LIMIT);
+    }
+
+    private Event saveEvent(boolean requestModeration, int participantLimit) {
+        return eventRepository.save(EventFixtures.publishedEvent("Popular event", category, initiator)
+                .participantLimit(participantLimit)
+                .requestModeration(requestModeration)
+                .build());
+    }
+}
@@ -0,0 +1,278 @@
+package ru.practicum.ewm.test;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.practicum.ewm.EwmServiceApplication;
+import ru.practicum.ewm.controller.pub.PublicEventController;
+import ru.practicum.ewm.model.Category;
+import ru.practicum.ewm.model.Event;
+import ru.practicum.ewm.model.User;
+import ru.practicum.ewm.repository.CategoryRepository;
+import ru.practicum.ewm.repository.CompilationRepository;
+import ru.practicum.ewm.repository.EventRatingCounterRepository;
+import ru.practicum.ewm.repository.EventRatingRepository;
+import ru.practicum.ewm.repository.EventRepository;
+import ru.practicum.ewm.repository.ParticipationRequestRepository;
+import ru.practicum.ewm.repository.UserRepository;
+import ru.practicum.ewm.service.CompilationCache;
+import ru.practicum.stats.client.StatsClient;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Публичный поиск событий: keyset-пагинация по курсору из заголовка X-Next-Cursor
+// и фильтр onlyAvailable, который считается в SQL до разбиения на страницы
+@SpringBootTest(classes = EwmServiceApplication.class)
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class PublicEventSearchTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CompilationRepository compilationRepository;
+
+    @Autowired
+    private CompilationCache compilationCache;
+
+    @Autowired
+    private ParticipationRequestRepository requestRepository;
+
+    @Autowired
+    private EventRatingRepository ratingRepository;
+
+    @Autowired
+    private EventRatingCounterRepository ratingCounterRepository;
+
+    @MockBean
+    private StatsClient statsClient;
+
+    private Category category;
+    private User initiator;
+
+    @BeforeEach
+    void setup() {
+        compilationRepository.deleteAll();
+        compilationCache.invalidate();
+        requestRepository.deleteAll();
+        ratingRepository.deleteAll();
+        ratingCounterRepository.deleteAll();
+        eventRepository.deleteAll();
+        userRepository.deleteAll();
+        categoryRepository.deleteAll();
+
+        category = categoryRepository.save(Category.builder().name("Concerts").build());
+        initiator = userRepository.save(User.builder().name("Initiator").email("initiator@example.com").build());
+    }
+
+    @Test
+    void cursorWalk_returnsEveryEventOnceInDateOrder() throws Exception {
+        // Три события на одну дату и два на другую: курсор должен различать их по id
+        LocalDateTime base = LocalDateTime.now().plusDays(3).truncatedTo(ChronoUnit.SECONDS);
+        List<LocalDateTime> dates = List.of(base.plusDays(2), base, base, base.plusDays(1), base, base.plusDays(2),
+                base.plusDays(3));
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < dates.size(); i++) {
+            events.add(eventRepository.save(EventFixtures.publishedEvent("Event " + i, category, initiator)
+                    .eventDate(dates.get(i))
+                    .build()));
+        }
+        List<Long> expected = events.stream()
+                .sorted(Comparator.comparing(Event::getEventDate).thenComparing(Event::getId))
+                .map(Event::getId)
+                .toList();
+
+        List<Long> walked = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            MockHttpServletRequestBuilder request = get("/events").param("size", "2");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            MvcResult result = mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn();
+            walked.addAll(ids(result));
+            cursor = result.getResponse().getHeader(PublicEventController.NEXT_CURSOR_HEADER);
+            pages++;
+        } while (cursor != null && pages < 10);
+
+        assertThat(walked).containsExactlyElementsOf(expected);
+        assertThat(pages).isEqualTo(4);
+    }
+
+    @Test
+    void lastFullPage_hasNoNextCursor() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            eventRepository.save(EventFixtures.publishedEvent("Event " + i, category, initiator).build());
+        }
+
+        mockMvc.perform(get("/events").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(PublicEventController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void malformedCursor_badRequest() throws Exception {
+        List<String> cursors = List.of(
+                "not a cursor",
+                "bm90LWEtY3Vyc29y",
+                encode("v2|2030-01-01T10:00|5"),
+                encode("v1|tomorrow|5"),
+                encode("v1|2030-01-01T10:00|five"),
+                encode("v1|2030-01-01T10:00"));
+        for (String cursor : cursors) {
+            mockMvc.perform(get("/events").param("cursor", cursor))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Test
+    void cursorWithViewsOrRelevanceSort_badRequest() throws Exception {
+        String cursor = encode("v1|2030-01-01T10:00|5");
+
+        mockMvc.perform(get("/events").param("sort", "VIEWS").param("cursor", cursor))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/events").param("sort", "RELEVANCE").param("text", "event").param("cursor", cursor))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void viewsAndRelevanceSort_noNextCursor() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            eventRepository.save(EventFixtures.publishedEvent("Event " + i, category, initiator).build());
+        }
+
+        mockMvc.perform(get("/events").param("sort", "VIEWS").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(PublicEventController.NEXT_CURSOR_HEADER));
+        mockMvc.perform(get("/events").param("sort", "RELEVANCE").param("text", "event").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(PublicEventController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void onlyAvailable_fullEventsFirst_pageStillFull() throws Exception {
+        LocalDateTime base = LocalDateTime.now().plusDays(3).truncatedTo(ChronoUnit.SECONDS);
+        // Самые ранние события заполнены и попали бы на первую страницу без фильтра
+        for (int i = 0; i < 3; i++) {
+            eventRepository.save(EventFixtures.publishedEvent("Full " + i, category, initiator)
+                    .eventDate(base.plusHours(i))
+                    .participantLimit(2)
+                    .confirmedRequests(2L)
+                    .build());
+        }
+        Event unlimited = eventRepository.save(EventFixtures.publishedEvent("Unlimited", category, initiator)
+                .eventDate(base.plusDays(1))
+                .participantLimit(0)
+                .build());
+        Event almostFull = eventRepository.save(EventFixtures.publishedEvent("Almost full", category, initiator)
+                .eventDate(base.plusDays(2))
+                .participantLimit(3)
+                .confirmedRequests(2L)
+                .build());
+        Event free = eventRepository.save(EventFixtures.publishedEvent("Free", category, initiator)
+                .eventDate(base.plusDays(3))
+                .participantLimit(10)
+                .confirmedRequests(0L)
+                .build());
+        Event later = eventRepository.save(EventFixtures.publishedEvent("Later", category, initiator)
+                .eventDate(base.plusDays(4))
+                .participantLimit(0)
+                .build());
+
+        MvcResult first = mockMvc.perform(get("/events")
+                        .param("onlyAvailable", "true")
+                        .param("size", "3"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertThat(ids(first)).containsExactly(unlimited.getId(), almostFull.getId(), free.getId());
+
+        MvcResult second = mockMvc.perform(get("/events")
+                        .param("onlyAvailable", "true")
+                        .param("from", "3")
+                        .param("size", "3"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertThat(ids(second)).containsExactly(later.getId());
+
+        MvcResult unfiltered = mockMvc.perform(get("/events").param("size", "10"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertThat(ids(unfiltered)).hasSize(7);
+    }
+
+    @Test
+    void onlyAvailable_cursorWalk_skipsFullEvents() throws Exception {
+        LocalDateTime base = LocalDateTime.now().plusDays(3).truncatedTo(ChronoUnit.SECONDS);
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            boolean full = i % 2 == 0;
+            Event event = eventRepository.save(EventFixtures.publishedEvent("Event " + i, category, initiator)
+                    .eventDate(base.plusHours(i))
+                    .participantLimit(full ? 1 : 0)
+                    .confirmedRequests(full ? 1L : 0L)
+                    .build());
+            if (!full) {
+                expected.add(event.getId());
+            }
+        }
+
+        MvcResult first = mockMvc.perform(get("/events")
+                        .param("onlyAvailable", "true")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(PublicEventController.NEXT_CURSOR_HEADER))
+                .andReturn();
+        MvcResult second = mockMvc.perform(get("/events")
+                        .param("onlyAvailable", "true")
+                        .param("size", "2")
+                        .param("cursor", first.getResponse().getHeader(PublicEventController.NEXT_CURSOR_HEADER)))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(PublicEventController.NEXT_CURSOR_HEADER))
+                .andReturn();
+
+        List<Long> walked = new ArrayList<>(ids(first));
+        walked.addAll(ids(second));
+        assertThat(walked).containsExactlyElementsOf(expected);
+    }
+
+    private static List<Long> ids(MvcResult result) throws Exception {
+        List<Number> ids = JsonPath.read(result.getResponse().getContentAsString(), "$[*].id");
+        return ids.stream().map(Number::longValue).toList();
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,87 @@
+package ru.practicum.ewm.test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.practicum.ewm.service.ViewCountCache;
+import ru.practicum.stats.client.StatsClient;
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Промахи кэша просмотров: параллельные запросы нового события ждут одну загрузку из stats-server,
+// в том числе те, что не дождались её и отдали 0
+class ViewCountCacheTest {
+
+    private final StatsClient statsClient = mock(StatsClient.class);
+    private final CountDownLatch statsGate = new CountDownLatch(1);
+
+    private ViewCountCache cache;
+
+    @BeforeEach
+    void setUp() {
+        when(statsClient.getStats(any(), any(), anyBoolean(), anyList())).thenAnswer(invocation -> {
+            statsGate.await(10, TimeUnit.SECONDS);
+            return List.of(new ViewStatsDto("ewm-main-service", "/events/1", 7L));
+        });
+        cache = new ViewCountCache(statsClient, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "refreshAfterMs", 60_000L);
+        ReflectionTestUtils.setField(cache, "expireAfterAccessMs", 600_000L);
+        ReflectionTestUtils.setField(cache, "maxSize", 1000);
+        ReflectionTestUtils.setField(cache, "refreshBatchSize", 200);
+        ReflectionTestUtils.setField(cache, "refreshIntervalMs", 3_600_000L);
+        ReflectionTestUtils.setField(cache, "missWaitMs", 20L);
+        ReflectionTestUtils.invokeMethod(cache, "start");
+    }
+
+    @AfterEach
+    void tearDown() {
+        statsGate.countDown();
+        ReflectionTestUtils.invokeMethod(cache, "stop");
+    }
+
+    @Test
+    void concurrentMisses_shareOneLoad() throws Exception {
+        int requests = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        try {
+            List<Future<Long>> views = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                views.add(executor.submit(() -> cache.getViews("/events/1")));
+            }
+            // Загрузка ещё не завершилась: запросы отдают 0, не дождавшись её
+            for (Future<Long> view : views) {
+                assertThat(view.get(10, TimeUnit.SECONDS)).isZero();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        statsGate.countDown();
+        verify(statsClient, timeout(5_000)).getStats(any(), any(), anyBoolean(), anyList());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cache.getViews("/events/1") != 7L) {
+            assertThat(System.nanoTime()).as("views not loaded in 5 s").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+        verify(statsClient, times(1)).getStats(any(), any(), anyBoolean(), anyList());
+    }
+}
@@ -0,0 +1,199 @@
+package ru.practicum.stats.client;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.stats.dto.EndpointHitDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// Ограниченная очередь хитов с фоновым сбросом пачками по размеру или по времени
+@Slf4j
+public class HitBuffer implements AutoCloseable {
+
+    private static final long CLOSE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    // Как часто фоновый поток, ожидая хиты, проверяет, не закрыт ли буфер
+    private static final long CLOSE_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final BlockingQueue<EndpointHitDto> queue;
+    private final Consumer<List<EndpointHitDto>> sink;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutMs;
+    private final long shutdownTimeoutMs;
+    private final Thread flusher;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    // Начатые вызовы offer: close ждёт, пока принятые до закрытия хиты лягут в очередь
+    private final AtomicInteger offering = new AtomicInteger();
+    // Отправка в sink: фоновый поток и финальный слив в close не работают одновременно
+    private final ReentrantLock sendLock = new ReentrantLock();
+
+    private volatile boolean accepting = true;
+    private volatile boolean closed;
+
+    public HitBuffer(Consumer<List<EndpointHitDto>> sink,
+                     int capacity,
+                     int batchSize,
+                     long flushIntervalMs,
+                     OverflowPolicy overflowPolicy,
+                     long blockTimeoutMs,
+                     long shutdownTimeoutMs) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.sink = sink;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+
+        this.flusher = new Thread(this::runFlusher, "stats-hit-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    // Возвращает false, если хит отброшен (буфер закрыт или переполнен)
+    public boolean offer(EndpointHitDto hit) {
+        offering.incrementAndGet();
+        boolean accepted;
+        try {
+            if (!accepting) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            accepted = overflowPolicy == OverflowPolicy.BLOCK
+                    ? queue.offer(hit, blockTimeoutMs, TimeUnit.MILLISECONDS)
+                    : queue.offer(hit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        } finally {
+            offering.decrementAndGet();
+        }
+
+        if (!accepted) {
+            long total = dropped.incrementAndGet();
+            log.warn("Stats hit buffer is full, hit dropped (total dropped={})", total);
+        }
+        return accepted;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    private void runFlusher() {
+        List<EndpointHitDto> batch = new ArrayList<>(batchSize);
+        long idleNanos = Math.min(TimeUnit.MILLISECONDS.toNanos(flushIntervalMs), CLOSE_CHECK_NANOS);
+
+        while (!closed) {
+            try {
+                EndpointHitDto first = queue.poll(idleNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Копим пачку до batchSize, но не дольше flushInterval с момента первого хита
+                // и не после закрытия буфера: остаток очереди тогда отправляет close
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize && !closed) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    EndpointHitDto next = queue.poll(Math.min(remaining, idleNanos), TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+
+                send(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        send(batch);
+    }
+
+    private void send(List<EndpointHitDto> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        sendLock.lock();
+        try {
+            sink.accept(List.copyOf(batch));
+            sent.addAndGet(batch.size());
+        } catch (Exception e) {
+            failed.addAndGet(batch.size());
+            log.warn("Failed to flush {} hits to stats server: {}", batch.size(), e.getMessage());
+        } finally {
+            batch.clear();
+            sendLock.unlock();
+        }
+    }
+
+    // Перестаём принимать хиты и дожидаемся уже начатых offer, затем останавливаем фоновый поток
+    // и отправляем остаток очереди. Остаток отправляется под sendLock, то есть не параллельно с пачкой
+    // фонового потока, даже если тот не завершился за shutdownTimeout
+    @Override
+    public void close() {
+        accepting = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shutdownTimeoutMs);
+        while (offering.get() > 0 && System.nanoTime() - deadline < 0) {
+            LockSupport.parkNanos(CLOSE_PARK_NANOS);
+        }
+
+        closed = true;
+        boolean locked;
+        try {
+            flusher.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            locked = sendLock.tryLock(shutdownTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            locked = false;
+        }
+        if (!locked) {
+            int left = queue.size();
+            dropped.addAndGet(left);
+            log.warn("Stats hit flusher did not finish its batch, {} buffered hits dropped", left);
+            return;
+        }
+
+        try {
+            List<EndpointHitDto> batch = new ArrayList<>(batchSize);
+            while (queue.drainTo(batch, batchSize) > 0) {
+                send(batch);
+            }
+        } finally {
+            sendLock.unlock();
+        }
+        log.info("Stats hit buffer closed: sent={}, dropped={}, failed={}", sent.get(), dropped.get(), failed.get());
+    }
+}
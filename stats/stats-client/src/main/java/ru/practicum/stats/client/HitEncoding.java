@@ -0,0 +1,9 @@
+package ru.practicum.stats.client;
+
+// Формат тела POST /hit и /hits
+public enum HitEncoding {
+    // JSON, как в остальном API
+    JSON,
+    // Компактный бинарный кадр HitBinaryCodec; сервер без его поддержки (415) переводит клиента на JSON
+    BINARY
+}
@@ -0,0 +1,9 @@
+package ru.practicum.stats.client;
+
+// Поведение буфера хитов при переполнении
+public enum OverflowPolicy {
+    // Новый хит отбрасывается сразу
+    DROP,
+    // Поток запроса ждёт освобождения места не дольше block-timeout, затем хит отбрасывается
+    BLOCK
+}
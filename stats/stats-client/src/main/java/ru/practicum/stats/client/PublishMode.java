@@ -0,0 +1,9 @@
+package ru.practicum.stats.client;
+
+// Режим отправки хитов на сервер статистики
+public enum PublishMode {
+    // Блокирующий POST /hit на каждый хит в потоке запроса
+    SYNC,
+    // Хит кладётся в ограниченную очередь, фоновый поток отправляет пачками в POST /hits
+    ASYNC
+}
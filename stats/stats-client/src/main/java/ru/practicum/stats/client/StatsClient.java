@@ -1,14 +1,23 @@
 package ru.practicum.stats.client;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.HitBatchResultDto;
+import ru.practicum.stats.dto.MultiHitDto;
 import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.dto.codec.HitBinaryCodec;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
@@ -26,11 +35,62 @@ public class StatsClient {
     @Value("${stats.server.url}")
     private String serverUrl;
 
+    @Value("${stats.client.publish-mode:SYNC}")
+    private PublishMode publishMode;
+
+    @Value("${stats.client.encoding:JSON}")
+    private volatile HitEncoding encoding;
+
+    @Value("${stats.client.buffer.capacity:10000}")
+    private int bufferCapacity;
+
+    @Value("${stats.client.buffer.batch-size:500}")
+    private int bufferBatchSize;
+
+    @Value("${stats.client.buffer.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${stats.client.buffer.overflow-policy:DROP}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${stats.client.buffer.block-timeout-ms:50}")
+    private long blockTimeoutMs;
+
+    @Value("${stats.client.buffer.shutdown-timeout-ms:5000}")
+    private long shutdownTimeoutMs;
+
+    private HitBuffer hitBuffer;
+
     private static final DateTimeFormatter FORMATTER =
             DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
+    private static final MediaType BINARY_HITS = MediaType.parseMediaType(HitBinaryCodec.MEDIA_TYPE);
+
+    @PostConstruct
+    void initPublisher() {
+        if (publishMode == PublishMode.ASYNC) {
+            hitBuffer = new HitBuffer(this::sendHits, bufferCapacity, bufferBatchSize,
+                    flushIntervalMs, overflowPolicy, blockTimeoutMs, shutdownTimeoutMs);
+            log.info("Stats hits are published asynchronously: capacity={}, batchSize={}, flushInterval={}ms, policy={}",
+                    bufferCapacity, bufferBatchSize, flushIntervalMs, overflowPolicy);
+        }
+    }
+
+    // При остановке приложения досылаем всё, что осталось в буфере
+    @PreDestroy
+    void shutdownPublisher() {
+        if (hitBuffer != null) {
+            hitBuffer.close();
+        }
+    }
+
     // Отправка события о посещении на сервер статистики
     public void saveHit(EndpointHitDto hit) {
+        if (hitBuffer != null) {
+            hitBuffer.offer(hit);
+            return;
+        }
+
         log.info("Sending hit to stats server: {}", hit);
         try {
             // Преобразуем timestamp в строку с кодировкой
@@ -46,13 +106,78 @@ public class StatsClient {
                     .timestamp(hit.getTimestamp()) // можно оставить LocalDateTime, если сервер умеет
                     .build();
 
-            restTemplate.postForEntity(serverUrl + "/hit", encodedHit, Void.class);
+            if (encoding != HitEncoding.BINARY || postBinary("/hit", List.of(encodedHit), Void.class) == null) {
+                restTemplate.postForEntity(serverUrl + "/hit", encodedHit, Void.class);
+            }
         } catch (Exception e) {
             log.error("Failed to send hit: {}", e.getMessage());
             throw new RuntimeException("Stats server is unavailable", e);
         }
     }
 
+    // Пакетная отправка хитов одним запросом POST /hits
+    public void sendHits(List<EndpointHitDto> hits) {
+        log.debug("Sending {} hits to stats server", hits.size());
+
+        ResponseEntity<HitBatchResultDto> response = encoding == HitEncoding.BINARY
+                ? postBinary("/hits", hits, HitBatchResultDto.class)
+                : null;
+        HitBatchResultDto result = response != null
+                ? response.getBody()
+                : restTemplate.postForObject(serverUrl + "/hits", hits, HitBatchResultDto.class);
+
+        if (result != null && result.getRejected() > 0) {
+            log.warn("Stats server rejected {} of {} hits", result.getRejected(), hits.size());
+        }
+    }
+
+    // Хиты бинарным кадром; null — сервер не знает формат (415), клиент переключился на JSON
+    private <T> ResponseEntity<T> postBinary(String path, List<EndpointHitDto> hits, Class<T> responseType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(BINARY_HITS);
+        try {
+            return restTemplate.postForEntity(serverUrl + path,
+                    new HttpEntity<>(HitBinaryCodec.encode(hits), headers), responseType);
+        } catch (HttpClientErrorException.UnsupportedMediaType e) {
+            log.warn("Stats server does not accept {}, switching to JSON", HitBinaryCodec.MEDIA_TYPE);
+            encoding = HitEncoding.JSON;
+            return null;
+        }
+    }
+
+    // Несколько URI одного клиента одним запросом POST /hits/multi
+    public void saveHits(String app, String ip, List<String> uris) {
+        if (uris.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime timestamp = LocalDateTime.now();
+
+        if (hitBuffer != null) {
+            uris.forEach(uri -> hitBuffer.offer(EndpointHitDto.builder()
+                    .app(app)
+                    .uri(uri)
+                    .ip(ip)
+                    .timestamp(timestamp)
+                    .build()));
+            return;
+        }
+
+        MultiHitDto multiHit = MultiHitDto.builder()
+                .app(app)
+                .ip(ip)
+                .timestamp(timestamp)
+                .uris(uris)
+                .build();
+
+        log.info("Sending {} hits for ip={} to stats server", uris.size(), ip);
+        HitBatchResultDto result = restTemplate.postForObject(serverUrl + "/hits/multi", multiHit, HitBatchResultDto.class);
+
+        if (result != null && result.getRejected() > 0) {
+            log.warn("Stats server rejected {} of {} hits", result.getRejected(), uris.size());
+        }
+    }
+
     // Получение статистики за заданный период для заданных URIs
     // В StatsClient
     public List<ViewStatsDto> getStats(LocalDateTime start,
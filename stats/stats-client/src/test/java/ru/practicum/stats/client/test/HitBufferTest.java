@@ -0,0 +1,197 @@
+package ru.practicum.stats.client.test;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.stats.client.HitBuffer;
+import ru.practicum.stats.client.OverflowPolicy;
+import ru.practicum.stats.dto.EndpointHitDto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Буфер хитов асинхронной отправки: сброс по размеру и по времени, политики переполнения DROP и BLOCK,
+// отправка остатка при закрытии
+class HitBufferTest {
+
+    private final BlockingQueue<List<EndpointHitDto>> batches = new LinkedBlockingQueue<>();
+    private final CountDownLatch sinkGate = new CountDownLatch(1);
+    private final CountDownLatch sinkEntered = new CountDownLatch(1);
+
+    private HitBuffer buffer;
+
+    @AfterEach
+    void tearDown() {
+        sinkGate.countDown();
+        if (buffer != null) {
+            buffer.close();
+        }
+    }
+
+    @Test
+    void fullBatch_flushedBeforeInterval() throws Exception {
+        buffer = new HitBuffer(batches::add, 100, 5, 60_000, OverflowPolicy.DROP, 0, 5_000);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(buffer.offer(hit(i))).isTrue();
+        }
+
+        List<EndpointHitDto> batch = batches.poll(5, TimeUnit.SECONDS);
+        assertThat(batch).as("batch not flushed on size").hasSize(5);
+        assertThat(buffer.getSent()).isEqualTo(5);
+    }
+
+    @Test
+    void partialBatch_flushedAfterInterval() throws Exception {
+        buffer = new HitBuffer(batches::add, 100, 100, 100, OverflowPolicy.DROP, 0, 5_000);
+
+        for (int i = 0; i < 3; i++) {
+            buffer.offer(hit(i));
+        }
+
+        List<EndpointHitDto> batch = batches.poll(5, TimeUnit.SECONDS);
+        assertThat(batch).as("batch not flushed on interval").hasSize(3);
+    }
+
+    @Test
+    void dropPolicy_fullBuffer_dropsNewHit() throws Exception {
+        buffer = new HitBuffer(this::blockingSink, 2, 1, 60_000, OverflowPolicy.DROP, 0, 5_000);
+        occupyFlusher();
+
+        assertThat(buffer.offer(hit(1))).isTrue();
+        assertThat(buffer.offer(hit(2))).isTrue();
+        assertThat(buffer.offer(hit(3))).isFalse();
+        assertThat(buffer.getDropped()).isEqualTo(1);
+
+        sinkGate.countDown();
+        buffer.close();
+        assertThat(buffer.getSent()).isEqualTo(3);
+    }
+
+    @Test
+    void blockPolicy_fullBuffer_waitsForFreeSlot() throws Exception {
+        buffer = new HitBuffer(this::blockingSink, 1, 1, 60_000, OverflowPolicy.BLOCK, 10_000, 5_000);
+        occupyFlusher();
+        assertThat(buffer.offer(hit(1))).isTrue();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> blocked = executor.submit(() -> buffer.offer(hit(2)));
+            Thread.sleep(100);
+            assertThat(blocked).isNotDone();
+
+            sinkGate.countDown();
+            assertThat(blocked.get(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(buffer.getDropped()).isZero();
+    }
+
+    @Test
+    void blockPolicy_bufferStaysFull_dropsAfterTimeout() throws Exception {
+        buffer = new HitBuffer(this::blockingSink, 1, 1, 60_000, OverflowPolicy.BLOCK, 50, 5_000);
+        occupyFlusher();
+        assertThat(buffer.offer(hit(1))).isTrue();
+
+        long start = System.nanoTime();
+        assertThat(buffer.offer(hit(2))).isFalse();
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+        assertThat(buffer.getDropped()).isEqualTo(1);
+    }
+
+    @Test
+    void close_sendsBufferedHitsAndRejectsNewOnes() {
+        List<EndpointHitDto> received = Collections.synchronizedList(new ArrayList<>());
+        buffer = new HitBuffer(received::addAll, 100, 100, 60_000, OverflowPolicy.DROP, 0, 5_000);
+
+        for (int i = 0; i < 10; i++) {
+            buffer.offer(hit(i));
+        }
+        buffer.close();
+
+        assertThat(received).hasSize(10);
+        assertThat(buffer.offer(hit(11))).isFalse();
+        assertThat(buffer.getSent()).isEqualTo(10);
+        assertThat(buffer.getDropped()).isEqualTo(1);
+    }
+
+    @Test
+    void closeUnderLoad_sendsEveryAcceptedHitOnce() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger overlapped = new AtomicInteger();
+        List<EndpointHitDto> received = Collections.synchronizedList(new ArrayList<>());
+        buffer = new HitBuffer(batch -> {
+            if (inFlight.incrementAndGet() > 1) {
+                overlapped.incrementAndGet();
+            }
+            received.addAll(batch);
+            inFlight.decrementAndGet();
+        }, 1 << 16, 64, 10, OverflowPolicy.DROP, 0, 5_000);
+
+        int producers = 8;
+        CountDownLatch started = new CountDownLatch(producers);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        List<Future<Integer>> producing = new ArrayList<>();
+        try {
+            for (int p = 0; p < producers; p++) {
+                producing.add(executor.submit(() -> {
+                    started.countDown();
+                    int accepted = 0;
+                    for (int i = 0; buffer.offer(hit(i)); i++) {
+                        accepted++;
+                    }
+                    return accepted;
+                }));
+            }
+            started.await(10, TimeUnit.SECONDS);
+            Thread.sleep(50);
+            buffer.close();
+
+            int accepted = 0;
+            for (Future<Integer> future : producing) {
+                accepted += future.get(10, TimeUnit.SECONDS);
+            }
+            assertThat(accepted).isPositive();
+            assertThat(received).hasSize(accepted);
+            assertThat(buffer.getSent()).isEqualTo(accepted);
+            assertThat(overlapped).hasValue(0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Фоновый поток забирает первый хит и зависает в отправке, пока тест не откроет sinkGate
+    private void occupyFlusher() throws InterruptedException {
+        assertThat(buffer.offer(hit(0))).isTrue();
+        assertThat(sinkEntered.await(5, TimeUnit.SECONDS)).as("flusher did not start sending").isTrue();
+    }
+
+    private void blockingSink(List<EndpointHitDto> batch) {
+        sinkEntered.countDown();
+        try {
+            sinkGate.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        batches.add(batch);
+    }
+
+    private static EndpointHitDto hit(int i) {
+        return EndpointHitDto.builder()
+                .app("ewm-main-service")
+                .uri("/events/" + i)
+                .ip("10.0.0.1")
+                .build();
+    }
+}
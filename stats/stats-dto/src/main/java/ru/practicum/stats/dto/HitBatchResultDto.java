@@ -0,0 +1,22 @@
+package ru.practicum.stats.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class HitBatchResultDto {
+
+    private int accepted;
+
+    private int rejected;
+
+    // Результат по каждому элементу пакета в порядке их следования
+    private List<HitItemResultDto> items;
+}
@@ -0,0 +1,25 @@
+package ru.practicum.stats.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class HitItemResultDto {
+
+    // Позиция элемента в пакете (с нуля)
+    private int index;
+
+    private boolean accepted;
+
+    // Ошибки валидации в формате "поле -> сообщение", только для отклонённых
+    private Map<String, String> errors;
+}
@@ -0,0 +1,35 @@
+package ru.practicum.stats.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PastOrPresent;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Несколько посещённых URI одного клиента в один момент времени — один запрос вместо N
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MultiHitDto {
+
+    @NotBlank(message = "App cannot be blank")
+    private String app;
+
+    // Формат IP проверяется на каждом развёрнутом хите
+    @NotBlank(message = "IP cannot be blank")
+    private String ip;
+
+    @NotNull(message = "Timestamp cannot be null")
+    @PastOrPresent(message = "Timestamp must be in the past or present")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime timestamp;
+
+    @NotEmpty(message = "URIs cannot be empty")
+    private List<String> uris;
+}
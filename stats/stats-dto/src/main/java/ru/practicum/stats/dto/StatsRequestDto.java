@@ -29,6 +29,9 @@ public class StatsRequestDto {
     private List<String> uris;
     private Boolean unique = false;
 
+    // Приближённый подсчёт уникальных через HyperLogLog (ошибка ≈1.6%); null — по настройке сервера
+    private Boolean approximate;
+
     @AssertTrue(message = "End date must be after start date")
     public boolean isEndAfterStart() {
         return start == null || end == null || !end.isBefore(start);
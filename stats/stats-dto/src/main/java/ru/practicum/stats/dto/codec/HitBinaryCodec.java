@@ -0,0 +1,278 @@
+package ru.practicum.stats.dto.codec;
+
+import ru.practicum.stats.dto.EndpointHitDto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Компактный бинарный кадр для приёма хитов (POST /hit и /hits с Content-Type MEDIA_TYPE).
+// Кадр: magic, версия, varint числа хитов, затем хиты:
+//   app, uri — varint-ссылка на словарь кадра: 0 — строка следует (varint длины+1, 0 — null, затем UTF-8)
+//              и добавляется в словарь, k — k-я ранее встреченная строка;
+//   флаги    — младшие два бита: вид ip (null, 4 байта IPv4, 16 байт IPv6, строка), бит 2 — есть timestamp;
+//   ip       — упакованные байты адреса или строка, если адрес записан не в каноническом виде;
+//   timestamp — zigzag-varint разницы epoch millis (время как UTC) с предыдущим хитом кадра.
+// Упаковка ip без потерь: байты пишутся, только если адрес восстанавливается в ту же строку
+public final class HitBinaryCodec {
+
+    public static final String MEDIA_TYPE = "application/x-ewm-hits";
+
+    private static final byte MAGIC = (byte) 0xEB;
+    private static final byte VERSION = 1;
+
+    private static final int IP_NULL = 0;
+    private static final int IP_V4 = 1;
+    private static final int IP_V6 = 2;
+    private static final int IP_TEXT = 3;
+    private static final int IP_MASK = 0b11;
+    private static final int HAS_TIMESTAMP = 0b100;
+
+    // Ссылка на app, ссылка на uri и флаги — минимум на хит
+    private static final int MIN_HIT_SIZE = 3;
+
+    private HitBinaryCodec() {
+    }
+
+    public static byte[] encode(List<EndpointHitDto> hits) {
+        Writer out = new Writer(16 + hits.size() * 16);
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+        out.writeVarLong(hits.size());
+
+        Map<String, Integer> apps = new HashMap<>();
+        Map<String, Integer> uris = new HashMap<>();
+        long previousMillis = 0;
+        for (EndpointHitDto hit : hits) {
+            writeInterned(out, apps, hit.getApp());
+            writeInterned(out, uris, hit.getUri());
+
+            byte[] packed = pack(hit.getIp());
+            int ipKind = hit.getIp() == null ? IP_NULL : packed == null ? IP_TEXT : packed.length == 4 ? IP_V4 : IP_V6;
+            out.writeByte(ipKind | (hit.getTimestamp() != null ? HAS_TIMESTAMP : 0));
+            if (packed != null) {
+                out.writeBytes(packed);
+            } else if (ipKind == IP_TEXT) {
+                out.writeString(hit.getIp());
+            }
+
+            if (hit.getTimestamp() != null) {
+                long millis = hit.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli();
+                long delta = millis - previousMillis;
+                out.writeVarLong((delta << 1) ^ (delta >> 63));
+                previousMillis = millis;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static List<EndpointHitDto> decode(byte[] frame) throws HitFrameException {
+        Reader in = new Reader(frame);
+        if (in.readByte() != MAGIC) {
+            throw new HitFrameException("Not a binary hit frame");
+        }
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new HitFrameException("Unsupported binary hit frame version " + version);
+        }
+        long count = in.readVarLong();
+        if (count < 0 || count > in.remaining() / MIN_HIT_SIZE) {
+            throw new HitFrameException("Hit count " + count + " does not match frame size");
+        }
+
+        List<EndpointHitDto> hits = new ArrayList<>((int) count);
+        List<String> apps = new ArrayList<>();
+        List<String> uris = new ArrayList<>();
+        long previousMillis = 0;
+        for (int i = 0; i < count; i++) {
+            String app = readInterned(in, apps);
+            String uri = readInterned(in, uris);
+
+            int flags = in.readByte();
+            if ((flags & ~(IP_MASK | HAS_TIMESTAMP)) != 0) {
+                throw new HitFrameException("Unknown hit flags " + flags);
+            }
+            String ip = switch (flags & IP_MASK) {
+                case IP_V4 -> IpAddresses.formatIpv4(in.readBytes(4));
+                case IP_V6 -> IpAddresses.formatIpv6(in.readBytes(16));
+                case IP_TEXT -> in.readString();
+                default -> null;
+            };
+
+            LocalDateTime timestamp = null;
+            if ((flags & HAS_TIMESTAMP) != 0) {
+                long zigzag = in.readVarLong();
+                long millis = previousMillis + ((zigzag >>> 1) ^ -(zigzag & 1));
+                timestamp = LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000),
+                        (int) Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC);
+                previousMillis = millis;
+            }
+
+            hits.add(EndpointHitDto.builder().app(app).uri(uri).ip(ip).timestamp(timestamp).build());
+        }
+        if (in.remaining() != 0) {
+            throw new HitFrameException(in.remaining() + " unexpected bytes after the last hit");
+        }
+        return hits;
+    }
+
+    private static void writeInterned(Writer out, Map<String, Integer> dictionary, String value) {
+        Integer index = value != null ? dictionary.get(value) : null;
+        if (index != null) {
+            out.writeVarLong(index + 1);
+            return;
+        }
+        out.writeVarLong(0);
+        out.writeString(value);
+        if (value != null) {
+            dictionary.put(value, dictionary.size());
+        }
+    }
+
+    private static String readInterned(Reader in, List<String> dictionary) throws HitFrameException {
+        long reference = in.readVarLong();
+        if (reference == 0) {
+            String value = in.readString();
+            if (value != null) {
+                dictionary.add(value);
+            }
+            return value;
+        }
+        if (reference < 0 || reference > dictionary.size()) {
+            throw new HitFrameException("Dictionary reference " + reference + " is out of range");
+        }
+        return dictionary.get((int) reference - 1);
+    }
+
+    // null — адрес не упаковывается без потерь и передаётся строкой: кадр хранит только байты адреса,
+    // поэтому пакуется лишь каноническая запись, которую декодер восстановит в точности. Разбор — без DNS
+    private static byte[] pack(String ip) {
+        byte[] address = IpAddresses.parse(ip);
+        if (address == null) {
+            return null;
+        }
+        String canonical = IpAddresses.format(address);
+        if (!canonical.equals(ip)) {
+            return null;
+        }
+        // IPv4 разбирается в IPv4-mapped — в кадр идут последние четыре байта
+        if (canonical.indexOf(':') < 0) {
+            return Arrays.copyOfRange(address, IpAddresses.LENGTH - 4, IpAddresses.LENGTH);
+        }
+        return address;
+    }
+
+    private static final class Writer {
+
+        private byte[] buffer;
+        private int position;
+
+        Writer(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        // Беззнаковый LEB128: по 7 бит, старший бит — «дальше ещё байт»
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1L);
+            writeBytes(bytes);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensure(int size) {
+            if (position + size > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + size));
+            }
+        }
+    }
+
+    private static final class Reader {
+
+        private final byte[] buffer;
+        private int position;
+
+        Reader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        int remaining() {
+            return buffer.length - position;
+        }
+
+        byte readByte() throws HitFrameException {
+            require(1);
+            return buffer[position++];
+        }
+
+        byte[] readBytes(int length) throws HitFrameException {
+            require(length);
+            byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        long readVarLong() throws HitFrameException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new HitFrameException("Varint is longer than 10 bytes");
+        }
+
+        String readString() throws HitFrameException {
+            long raw = readVarLong();
+            if (raw == 0) {
+                return null;
+            }
+            long length = raw - 1;
+            if (length < 0 || length > remaining()) {
+                throw new HitFrameException("String of " + length + " bytes exceeds the frame");
+            }
+            String value = new String(buffer, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            return value;
+        }
+
+        private void require(int length) throws HitFrameException {
+            if (length > remaining()) {
+                throw new HitFrameException("Binary hit frame is truncated at byte " + position);
+            }
+        }
+    }
+}
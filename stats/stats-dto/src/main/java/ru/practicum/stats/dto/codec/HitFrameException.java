@@ -0,0 +1,10 @@
+package ru.practicum.stats.dto.codec;
+
+import java.io.IOException;
+
+// Повреждённый или усечённый бинарный кадр хитов
+public class HitFrameException extends IOException {
+    public HitFrameException(String message) {
+        super(message);
+    }
+}
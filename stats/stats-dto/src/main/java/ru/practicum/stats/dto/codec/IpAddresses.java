@@ -0,0 +1,142 @@
+package ru.practicum.stats.dto.codec;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+
+// Разбор и каноническая запись IP-адресов без обращения к DNS — для бинарного кадра и хранения хитов.
+// Адрес в виде 16 байт: IPv6 как есть, IPv4 — IPv4-mapped (::ffff:a.b.c.d), поэтому обе записи одного
+// IPv4-адреса совпадают
+public final class IpAddresses {
+
+    public static final int LENGTH = 16;
+
+    private static final byte[] IPV4_MAPPED_PREFIX = {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, (byte) 0xFF, (byte) 0xFF};
+
+    private IpAddresses() {
+    }
+
+    // 16 байт адреса; null — строка не литерал IP (имена хостов не разрешаются). Зона IPv6 (%eth0) отбрасывается:
+    // она имеет смысл только на принявшем запрос узле
+    public static byte[] parse(String ip) {
+        if (ip == null || ip.isBlank()) {
+            return null;
+        }
+        int zone = ip.indexOf('%');
+        String literal = zone >= 0 ? ip.substring(0, zone) : ip;
+        if (literal.indexOf(':') < 0) {
+            byte[] ipv4 = parseIpv4(literal);
+            return ipv4 != null ? mapIpv4(ipv4) : null;
+        }
+        try {
+            // В квадратных скобках строка разбирается только как литерал IPv6
+            InetAddress address = InetAddress.getByName("[" + literal + "]");
+            // IPv4-mapped запись Java сразу возвращает как IPv4
+            return address instanceof Inet4Address ? mapIpv4(address.getAddress()) : address.getAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    // IPv4 и IPv4-mapped — четыре десятичных октета, остальные адреса — по RFC 5952
+    public static String format(byte[] address) {
+        if (address.length == 4) {
+            return formatIpv4(address);
+        }
+        if (address.length != LENGTH) {
+            throw new IllegalArgumentException("IP address must be 4 or 16 bytes long, got " + address.length);
+        }
+        return isIpv4Mapped(address) ? formatIpv4(Arrays.copyOfRange(address, 12, LENGTH)) : formatIpv6(address);
+    }
+
+    // Каноническая запись адреса; null — строка не литерал IP
+    public static String canonical(String ip) {
+        byte[] address = parse(ip);
+        return address != null ? format(address) : null;
+    }
+
+    private static boolean isIpv4Mapped(byte[] address) {
+        return address.length == LENGTH
+                && Arrays.equals(address, 0, IPV4_MAPPED_PREFIX.length, IPV4_MAPPED_PREFIX, 0, IPV4_MAPPED_PREFIX.length);
+    }
+
+    private static byte[] mapIpv4(byte[] ipv4) {
+        byte[] address = Arrays.copyOf(IPV4_MAPPED_PREFIX, LENGTH);
+        System.arraycopy(ipv4, 0, address, IPV4_MAPPED_PREFIX.length, 4);
+        return address;
+    }
+
+    // Только каноническая запись: четыре десятичных октета без ведущих нулей
+    static byte[] parseIpv4(String ip) {
+        byte[] bytes = new byte[4];
+        int octet = 0;
+        int value = 0;
+        int digits = 0;
+        for (int i = 0; i <= ip.length(); i++) {
+            char c = i < ip.length() ? ip.charAt(i) : '.';
+            if (c == '.') {
+                if (digits == 0 || octet == 4) {
+                    return null;
+                }
+                bytes[octet++] = (byte) value;
+                value = 0;
+                digits = 0;
+            } else if (c >= '0' && c <= '9') {
+                if (digits > 0 && value == 0) {
+                    return null;
+                }
+                value = value * 10 + (c - '0');
+                if (++digits > 3 || value > 255) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+        }
+        return octet == 4 ? bytes : null;
+    }
+
+    static String formatIpv4(byte[] bytes) {
+        return (bytes[0] & 0xFF) + "." + (bytes[1] & 0xFF) + "." + (bytes[2] & 0xFF) + "." + (bytes[3] & 0xFF);
+    }
+
+    // Каноническая запись RFC 5952: строчные цифры без ведущих нулей, самая длинная (первая из равных)
+    // серия из двух и более нулевых групп сжимается в "::"
+    static String formatIpv6(byte[] bytes) {
+        int[] groups = new int[8];
+        for (int i = 0; i < 8; i++) {
+            groups[i] = (bytes[2 * i] & 0xFF) << 8 | (bytes[2 * i + 1] & 0xFF);
+        }
+        int bestStart = -1;
+        int bestLength = 1;
+        for (int i = 0; i < 8; ) {
+            if (groups[i] != 0) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < 8 && groups[i] == 0) {
+                i++;
+            }
+            if (i - start > bestLength) {
+                bestStart = start;
+                bestLength = i - start;
+            }
+        }
+
+        StringBuilder text = new StringBuilder(39);
+        for (int i = 0; i < 8; i++) {
+            if (i == bestStart) {
+                text.append("::");
+                i += bestLength - 1;
+                continue;
+            }
+            if (!text.isEmpty() && text.charAt(text.length() - 1) != ':') {
+                text.append(':');
+            }
+            text.append(Integer.toHexString(groups[i]));
+        }
+        return text.toString();
+    }
+}
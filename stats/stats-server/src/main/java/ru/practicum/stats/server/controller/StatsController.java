@@ -1,16 +1,34 @@
 package ru.practicum.stats.server.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.HitBatchResultDto;
+import ru.practicum.stats.dto.MultiHitDto;
 import ru.practicum.stats.dto.StatsRequestDto;
 import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.dto.codec.HitBinaryCodec;
+import ru.practicum.stats.dto.codec.HitFrameException;
 import ru.practicum.stats.server.service.StatsService;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 @Slf4j
 @RestController
@@ -18,18 +36,100 @@ import java.util.List;
 @RequestMapping
 public class StatsController {
 
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
     private final StatsService service;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
 
     @PostMapping("/hit")
-    @ResponseStatus(HttpStatus.CREATED)
-    public EndpointHitDto save(@RequestBody @Valid EndpointHitDto hitDto) {
-        log.info("Received new hit: {}", hitDto);
-        return service.save(hitDto);
+    public ResponseEntity<EndpointHitDto> save(@RequestBody @Valid EndpointHitDto hitDto) {
+        log.debug("Received new hit: {}", hitDto);
+        return accept(hitDto);
+    }
+
+    // Один хит в бинарном кадре HitBinaryCodec
+    @PostMapping(value = "/hit", consumes = HitBinaryCodec.MEDIA_TYPE)
+    public ResponseEntity<EndpointHitDto> saveBinary(InputStream body) throws IOException {
+        List<EndpointHitDto> hits = HitBinaryCodec.decode(body.readAllBytes());
+        if (hits.size() != 1) {
+            throw new HitFrameException("Expected a single hit, got " + hits.size());
+        }
+        EndpointHitDto hitDto = hits.get(0);
+        Set<ConstraintViolation<EndpointHitDto>> violations = validator.validate(hitDto);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+        log.debug("Received new binary hit: {}", hitDto);
+        return accept(hitDto);
+    }
+
+    // Пакетное сохранение: JSON-массив хитов
+    @PostMapping(value = "/hits", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public HitBatchResultDto saveAll(@RequestBody List<EndpointHitDto> hits) {
+        log.info("Received hit batch of size {}", hits.size());
+        return service.saveAll(hits);
+    }
+
+    // Пакетное сохранение: NDJSON-поток, по одному хиту на строку
+    @PostMapping(value = "/hits", consumes = NDJSON_VALUE)
+    public HitBatchResultDto saveAllNdjson(InputStream body) throws IOException {
+        List<EndpointHitDto> hits = readNdjson(body);
+        log.info("Received NDJSON hit batch of size {}", hits.size());
+        return service.saveAll(hits);
+    }
+
+    // Пакетное сохранение: бинарный кадр HitBinaryCodec
+    @PostMapping(value = "/hits", consumes = HitBinaryCodec.MEDIA_TYPE)
+    public HitBatchResultDto saveAllBinary(InputStream body) throws IOException {
+        List<EndpointHitDto> hits = HitBinaryCodec.decode(body.readAllBytes());
+        log.info("Received binary hit batch of size {}", hits.size());
+        return service.saveAll(hits);
+    }
+
+    // Несколько URI одного клиента в одном конверте
+    @PostMapping("/hits/multi")
+    public HitBatchResultDto saveMulti(@RequestBody @Valid MultiHitDto multiHit) {
+        log.info("Received multi-hit for ip={} with {} uris", multiHit.getIp(), multiHit.getUris().size());
+        return service.saveMulti(multiHit);
     }
 
     @GetMapping("/stats")
     public List<ViewStatsDto> getStats(@Valid @ModelAttribute StatsRequestDto request) {
-        log.info("Request stats from {} to {}, unique={}", request.getStart(), request.getEnd(), request.getUnique());
-        return service.getStats(request.getStart(), request.getEnd(), request.getUris(), request.getUnique());
+        log.info("Request stats from {} to {}, unique={}, approximate={}",
+                request.getStart(), request.getEnd(), request.getUnique(), request.getApproximate());
+        if (request.getApproximate() == null) {
+            return service.getStats(request.getStart(), request.getEnd(), request.getUris(), request.getUnique());
+        }
+        return service.getStats(request.getStart(), request.getEnd(), request.getUris(), request.getUnique(),
+                request.getApproximate());
+    }
+
+    // При отложенной записи хит только принят в очередь — 202 без id, иначе сохранён — 201
+    private ResponseEntity<EndpointHitDto> accept(EndpointHitDto hitDto) {
+        if (service.isWriteBehind()) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(service.enqueue(hitDto));
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(service.save(hitDto));
+    }
+
+    // Нечитаемая строка не роняет весь пакет: она попадает в результат как отклонённый элемент (null)
+    private List<EndpointHitDto> readNdjson(InputStream body) throws IOException {
+        List<EndpointHitDto> hits = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                hits.add(objectMapper.readValue(line, EndpointHitDto.class));
+            } catch (JsonProcessingException e) {
+                log.warn("Skipping malformed NDJSON line {}: {}", hits.size(), e.getOriginalMessage());
+                hits.add(null);
+            }
+        }
+        return hits;
     }
 }
@@ -0,0 +1,7 @@
+package ru.practicum.stats.server.exception;
+
+public class BatchSizeExceededException extends RuntimeException {
+    public BatchSizeExceededException(String message) {
+        super(message);
+    }
+}
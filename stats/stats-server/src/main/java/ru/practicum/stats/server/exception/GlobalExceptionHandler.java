@@ -3,6 +3,7 @@ package ru.practicum.stats.server.exception;
 import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -12,6 +13,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import ru.practicum.stats.dto.codec.HitFrameException;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -121,6 +123,17 @@ public class GlobalExceptionHandler {
         return build(HttpStatus.BAD_REQUEST, errors);
     }
 
+    @ExceptionHandler(HitFrameException.class)
+    public ResponseEntity<Map<String, Object>> handleHitFrame(HitFrameException ex) {
+
+        log.warn("Malformed binary hit frame: {}", ex.getMessage());
+
+        Map<String, String> errors = new HashMap<>();
+        errors.put("body", "Malformed binary hit frame: " + ex.getMessage());
+
+        return build(HttpStatus.BAD_REQUEST, errors);
+    }
+
     @ExceptionHandler(MissingServletRequestParameterException.class)
     public ResponseEntity<Map<String, Object>> handleMissingParam(MissingServletRequestParameterException ex) {
 
@@ -153,6 +166,32 @@ public class GlobalExceptionHandler {
         return error;
     }
 
+    @ExceptionHandler(BatchSizeExceededException.class)
+    public ResponseEntity<Map<String, Object>> handleBatchSize(BatchSizeExceededException ex) {
+
+        log.warn("Hit batch rejected: {}", ex.getMessage());
+
+        Map<String, String> errors = new HashMap<>();
+        errors.put("hits", ex.getMessage());
+
+        return build(HttpStatus.PAYLOAD_TOO_LARGE, errors);
+    }
+
+    // Буфер отложенной записи полон — клиенту стоит повторить запрос чуть позже
+    @ExceptionHandler(HitBufferFullException.class)
+    public ResponseEntity<Map<String, Object>> handleBufferFull(HitBufferFullException ex) {
+
+        log.debug("Hit rejected: {}", ex.getMessage());
+
+        Map<String, String> errors = new HashMap<>();
+        errors.put("hit", ex.getMessage());
+
+        ResponseEntity<Map<String, Object>> response = build(HttpStatus.TOO_MANY_REQUESTS, errors);
+        return ResponseEntity.status(response.getStatusCode())
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(response.getBody());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleUnexpected(Exception ex) {
         log.error("Unexpected error", ex);
@@ -0,0 +1,7 @@
+package ru.practicum.stats.server.exception;
+
+public class HitBufferFullException extends RuntimeException {
+    public HitBufferFullException(String message) {
+        super(message);
+    }
+}
@@ -3,6 +3,10 @@ package ru.practicum.stats.server.mapper;
 import org.springframework.stereotype.Component;
 import ru.practicum.stats.server.model.EndpointHit;
 import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.MultiHitDto;
+import ru.practicum.stats.dto.codec.IpAddresses;
+
+import java.util.List;
 
 @Component
 public class EndpointHitMapper {
@@ -14,7 +18,7 @@ public class EndpointHitMapper {
                 .id(dto.getId())
                 .app(dto.getApp())
                 .uri(dto.getUri())
-                .ip(dto.getIp())
+                .ip(canonicalIp(dto.getIp()))
                 .timestamp(dto.getTimestamp())
                 .build();
     }
@@ -30,4 +34,23 @@ public class EndpointHitMapper {
                 .timestamp(entity.getTimestamp())
                 .build();
     }
+
+    // Разворачивает конверт в отдельные хиты с общими app, ip и timestamp
+    public List<EndpointHitDto> toDtos(MultiHitDto multiHit) {
+        return multiHit.getUris().stream()
+                .map(uri -> EndpointHitDto.builder()
+                        .app(multiHit.getApp())
+                        .uri(uri)
+                        .ip(multiHit.getIp())
+                        .timestamp(multiHit.getTimestamp())
+                        .build())
+                .toList();
+    }
+
+    // Адрес в той записи, в которой его вернёт хранилище: по ней же считаются скетчи уникальных IP.
+    // Строка, не разобранная как адрес, остаётся как есть — её отклонит валидация
+    private static String canonicalIp(String ip) {
+        String canonical = IpAddresses.canonical(ip);
+        return canonical != null ? canonical : ip;
+    }
 }
@@ -10,30 +10,45 @@ import lombok.Setter;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import ru.practicum.stats.server.service.HitDictionaryListener;
+import ru.practicum.stats.server.service.HitRollupListener;
 import ru.practicum.stats.server.validation.ValidIp;
 
 import java.time.LocalDateTime;
 
+// app и uri хранятся ключами словарей hit_app и hit_uri: строки заполняет и переводит в ключи HitDictionary.
+// ip хранится адресом (см. IpAddressConverter)
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 @Entity
+@EntityListeners({HitDictionaryListener.class, HitRollupListener.class})
 public class EndpointHit {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @Column(name = "app_id", nullable = false)
+    private Integer appId;
+
+    @Column(name = "uri_id", nullable = false)
+    private Integer uriId;
+
+    @Transient
     @NotBlank(message = "App cannot be blank")
     private String app;
 
+    @Transient
     @NotBlank(message = "URI cannot be blank")
     private String uri;
 
     @ValidIp
     @NotBlank(message = "IP cannot be blank")
+    @Convert(converter = IpAddressConverter.class)
+    @Column(nullable = false)
     private String ip;
 
     @NotNull(message = "Timestamp cannot be null")
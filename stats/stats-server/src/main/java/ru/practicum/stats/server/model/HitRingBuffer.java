@@ -0,0 +1,95 @@
+package ru.practicum.stats.server.model;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Ограниченная lock-free очередь хитов (или записей с хитом) для многих производителей и потребителей (схема Вьюкова):
+// у каждой ячейки свой номер последовательности, и поток, выигравший CAS позиции, работает с ячейкой
+// без блокировок. Ёмкость округляется вверх до степени двойки. Переполнение не ждёт — offer возвращает false
+public class HitRingBuffer<T> {
+
+    private final int mask;
+    private final AtomicReferenceArray<T> items;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    public HitRingBuffer(int capacity) {
+        if (capacity < 2 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Ring buffer capacity must be between 2 and 2^30");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.items = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public boolean offer(T hit) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    items.set(index, hit);
+                    // Публикация ячейки потребителям
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // Ячейка ещё не освобождена потребителем с прошлого круга — буфер полон
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    public T poll() {
+        long position = head.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    T hit = items.get(index);
+                    items.set(index, null);
+                    // Ячейка свободна для производителя следующего круга
+                    sequences.set(index, position + mask + 1);
+                    return hit;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    public int drainTo(List<? super T> target, int max) {
+        int drained = 0;
+        T hit;
+        while (drained < max && (hit = poll()) != null) {
+            target.add(hit);
+            drained++;
+        }
+        return drained;
+    }
+
+    // Приблизительный размер: позиции читаются не атомарно вместе
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
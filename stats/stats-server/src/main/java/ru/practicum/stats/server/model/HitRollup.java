@@ -0,0 +1,47 @@
+package ru.practicum.stats.server.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Количество хитов по (app, uri) в одном временном бакете заданной гранулярности
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "hit_rollup", uniqueConstraints = @UniqueConstraint(
+        name = "uq_hit_rollup_bucket",
+        columnNames = {"granularity", "bucket_start", "uri", "app"}))
+public class HitRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private RollupGranularity granularity;
+
+    @Column(nullable = false)
+    private String app;
+
+    @Column(nullable = false)
+    private String uri;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(nullable = false)
+    private Long hits;
+
+    // Сериализованный HyperLogLog уникальных IP; только для часовых и дневных бакетов
+    @Column(name = "ip_sketch", length = HyperLogLog.MAX_BYTES)
+    private byte[] ipSketch;
+}
@@ -0,0 +1,28 @@
+package ru.practicum.stats.server.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Словарь адресов (endpoint_hit.uri_id); ключи выдаёт и кеширует HitDictionary
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "hit_uri", uniqueConstraints = @UniqueConstraint(
+        name = "uq_hit_uri_name",
+        columnNames = "name"))
+public class HitUri {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(nullable = false)
+    private String name;
+}
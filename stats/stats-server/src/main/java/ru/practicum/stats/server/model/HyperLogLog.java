@@ -0,0 +1,172 @@
+package ru.practicum.stats.server.model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// HyperLogLog-скетч уникальных IP: 2^12 регистров, стандартная ошибка 1.04 / sqrt(4096) ≈ 1.6%
+// (≈95% оценок в пределах ±3.3%, ≈99% — в пределах ±4.9%). Малые множества считаются практически точно.
+// Оценка — улучшенный estimator Ertl (2017), без таблиц коррекции смещения.
+public class HyperLogLog {
+
+    public static final int PRECISION = 12;
+    public static final int REGISTERS = 1 << PRECISION;
+    public static final int MAX_BYTES = 1 + REGISTERS;
+
+    private static final byte FORMAT_SPARSE = 0;
+    private static final byte FORMAT_DENSE = 1;
+    private static final int SPARSE_ENTRY_BYTES = 3;
+    private static final int MAX_RANK = 64 - PRECISION + 1;
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this.registers = new byte[REGISTERS];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    public void add(String value) {
+        long hash = hash(value);
+        int index = (int) (hash >>> (64 - PRECISION));
+        int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    public void merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public long estimate() {
+        int[] histogram = new int[MAX_RANK + 1];
+        for (byte register : registers) {
+            histogram[register]++;
+        }
+        if (histogram[0] == REGISTERS) {
+            return 0;
+        }
+
+        double m = REGISTERS;
+        double z = m * tau(1 - histogram[MAX_RANK] / m);
+        for (int k = MAX_RANK - 1; k >= 1; k--) {
+            z = 0.5 * (z + histogram[k]);
+        }
+        z += m * sigma(histogram[0] / m);
+        return Math.round(m * m / (2 * Math.log(2) * z));
+    }
+
+    // Разреженный формат (индекс, ранг) для малозаполненных скетчей, иначе — все регистры подряд
+    public byte[] toBytes() {
+        int nonZero = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                nonZero++;
+            }
+        }
+
+        if (nonZero * SPARSE_ENTRY_BYTES < REGISTERS) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 + nonZero * SPARSE_ENTRY_BYTES);
+            buffer.put(FORMAT_SPARSE);
+            for (int i = 0; i < REGISTERS; i++) {
+                if (registers[i] != 0) {
+                    buffer.putShort((short) i);
+                    buffer.put(registers[i]);
+                }
+            }
+            return buffer.array();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_BYTES);
+        buffer.put(FORMAT_DENSE);
+        buffer.put(registers);
+        return buffer.array();
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        HyperLogLog sketch = new HyperLogLog(new byte[REGISTERS]);
+        sketch.merge(bytes);
+        return sketch;
+    }
+
+    // Объединение с сериализованным скетчем без промежуточного объекта: разреженный обходится по записям
+    public void merge(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte format = buffer.get();
+        if (format == FORMAT_DENSE) {
+            for (int i = 0; i < REGISTERS; i++) {
+                byte rank = buffer.get();
+                if (rank > registers[i]) {
+                    registers[i] = rank;
+                }
+            }
+        } else if (format == FORMAT_SPARSE) {
+            while (buffer.remaining() >= SPARSE_ENTRY_BYTES) {
+                int index = Short.toUnsignedInt(buffer.getShort());
+                byte rank = buffer.get();
+                if (rank > registers[index]) {
+                    registers[index] = rank;
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown HyperLogLog format: " + format);
+        }
+    }
+
+    // FNV-1a с финализатором MurmurHash3: равномерные 64 бита даже для похожих адресов
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static double sigma(double x) {
+        if (x == 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double y = 1;
+        double z = x;
+        double previous;
+        do {
+            x *= x;
+            previous = z;
+            z += x * y;
+            y += y;
+        } while (z != previous);
+        return z;
+    }
+
+    private static double tau(double x) {
+        if (x == 0 || x == 1) {
+            return 0;
+        }
+        double y = 1;
+        double z = 1 - x;
+        double previous;
+        do {
+            x = Math.sqrt(x);
+            previous = z;
+            y *= 0.5;
+            z -= Math.pow(1 - x, 2) * y;
+        } while (z != previous);
+        return z / 3;
+    }
+}
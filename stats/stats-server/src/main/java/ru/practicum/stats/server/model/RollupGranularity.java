@@ -0,0 +1,43 @@
+package ru.practicum.stats.server.model;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+// Размер временного бакета предагрегированных счётчиков, от мелкого к крупному
+public enum RollupGranularity {
+    MINUTE(ChronoUnit.MINUTES, false),
+    HOUR(ChronoUnit.HOURS, true),
+    DAY(ChronoUnit.DAYS, true);
+
+    private final ChronoUnit unit;
+    // Хранит ли бакет HyperLogLog-скетч IP (минутные не хранят: их слишком много для такого объёма)
+    private final boolean sketched;
+
+    RollupGranularity(ChronoUnit unit, boolean sketched) {
+        this.unit = unit;
+        this.sketched = sketched;
+    }
+
+    public boolean isSketched() {
+        return sketched;
+    }
+
+    public LocalDateTime plus(LocalDateTime time) {
+        return time.plus(1, unit);
+    }
+
+    public LocalDateTime floor(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    public LocalDateTime ceil(LocalDateTime time) {
+        LocalDateTime floor = floor(time);
+        return floor.equals(time) ? floor : plus(floor);
+    }
+
+    // Следующая (более крупная) гранулярность или null для самой крупной
+    public RollupGranularity coarser() {
+        RollupGranularity[] values = values();
+        return ordinal() + 1 < values.length ? values[ordinal() + 1] : null;
+    }
+}
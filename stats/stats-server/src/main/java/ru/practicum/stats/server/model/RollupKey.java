@@ -0,0 +1,9 @@
+package ru.practicum.stats.server.model;
+
+import java.time.LocalDateTime;
+
+public record RollupKey(RollupGranularity granularity,
+                        String app,
+                        String uri,
+                        LocalDateTime bucketStart) {
+}
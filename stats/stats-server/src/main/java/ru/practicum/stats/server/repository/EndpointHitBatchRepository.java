@@ -0,0 +1,14 @@
+package ru.practicum.stats.server.repository;
+
+import ru.practicum.stats.server.model.EndpointHit;
+
+import java.util.List;
+
+public interface EndpointHitBatchRepository {
+
+    // Пакетная вставка хитов одним JDBC batch, без участия persistence context
+    void batchInsert(List<EndpointHit> hits);
+
+    // Вставка через COPY FROM STDIN — только PostgreSQL
+    void copyInsert(List<EndpointHit> hits);
+}
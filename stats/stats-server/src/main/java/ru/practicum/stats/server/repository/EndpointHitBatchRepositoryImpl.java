@@ -0,0 +1,108 @@
+package ru.practicum.stats.server.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.IpAddressConverter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class EndpointHitBatchRepositoryImpl implements EndpointHitBatchRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO endpoint_hit (app_id, uri_id, ip, timestamp) VALUES (?, ?, ?, ?)";
+
+    private static final String COPY_SQL =
+            "COPY endpoint_hit (app_id, uri_id, ip, timestamp) FROM STDIN WITH (FORMAT csv)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final HitDictionary dictionary;
+    // Хиты пишутся в столбец ip уже после его перевода в inet
+    private final HitIpMigration ipMigration;
+    private final IpAddressConverter ipConverter = new IpAddressConverter();
+
+    private volatile Boolean postgres;
+
+    @Value("${stats.hits.jdbc-batch-size:500}")
+    private int jdbcBatchSize;
+
+    @Override
+    public void batchInsert(List<EndpointHit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+
+        dictionary.resolveAllKeys(hits);
+        jdbcTemplate.batchUpdate(INSERT_SQL, hits, jdbcBatchSize, (ps, hit) -> {
+            // Без ключа (пустой app или uri) строку отклонит NOT NULL, как и раньше
+            ps.setObject(1, hit.getAppId(), Types.INTEGER);
+            ps.setObject(2, hit.getUriId(), Types.INTEGER);
+            bindIp(ps, 3, hit.getIp());
+            ps.setTimestamp(4, Timestamp.valueOf(hit.getTimestamp()));
+        });
+    }
+
+    @Override
+    public void copyInsert(List<EndpointHit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+
+        dictionary.resolveAllKeys(hits);
+        StringBuilder csv = new StringBuilder(hits.size() * 48);
+        for (EndpointHit hit : hits) {
+            csv.append(hit.getAppId()).append(',')
+                    .append(hit.getUriId()).append(',')
+                    .append(ipConverter.convertToDatabaseColumn(hit.getIp()).getHostAddress()).append(',')
+                    .append(hit.getTimestamp()).append('\n');
+        }
+        jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI()
+                        .copyIn(COPY_SQL, new StringReader(csv.toString()));
+            } catch (IOException e) {
+                throw new SQLException("Cannot stream hits to COPY", e);
+            }
+        });
+    }
+
+    // Так же, как IpAddressConverter при сохранении через JPA: PostgreSQL принимает inet текстом,
+    // остальные СУБД хранят байты адреса
+    private void bindIp(PreparedStatement ps, int index, String ip) throws SQLException {
+        InetAddress address = ipConverter.convertToDatabaseColumn(ip);
+        if (address == null) {
+            ps.setNull(index, isPostgres() ? Types.OTHER : Types.VARBINARY);
+        } else if (isPostgres()) {
+            ps.setObject(index, address.getHostAddress(), Types.OTHER);
+        } else {
+            ps.setBytes(index, address.getAddress());
+        }
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            try {
+                String product = JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(),
+                        DatabaseMetaData::getDatabaseProductName);
+                postgres = "PostgreSQL".equalsIgnoreCase(product);
+            } catch (MetaDataAccessException e) {
+                postgres = false;
+            }
+        }
+        return postgres;
+    }
+}
@@ -0,0 +1,258 @@
+package ru.practicum.stats.server.repository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.server.model.EndpointHit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Словари app и uri для endpoint_hit: каждое значение хранится один раз в hit_app/hit_uri, хит ссылается
+// на него целым ключом — строка хита короче, а статистика группируется по int. Оба направления (значение → ключ
+// при приёме, ключ → значение при чтении статистики) кешируются в памяти без вытеснения: словари малы
+// (несколько app, ограниченный набор uri событий) и только пополняются, поэтому кеш не устаревает.
+// Новое значение вставляется в отдельной транзакции: ключ должен пережить откат пачки хитов. Поэтому пути приёма
+// разрешают ключи до начала своей транзакции — иначе вставка ждала бы второе соединение пула. Гонку вставок
+// (в том числе между экземплярами сервера) разрешает уникальность name — проигравший перечитывает ключ
+@Slf4j
+@Repository
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class HitDictionary {
+
+    // Значений в одном IN при поиске ключей пачки
+    private static final int LOOKUP_CHUNK = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    private final Dictionary apps = new Dictionary("hit_app");
+    private final Dictionary uris = new Dictionary("hit_uri");
+
+    private TransactionTemplate newTransaction;
+
+    @PostConstruct
+    void start() {
+        newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        migrateInlineColumns();
+        apps.preload();
+        uris.preload();
+    }
+
+    // Ключи для app и uri хита; пустые значения остаются без ключа — их отклонит валидация
+    public void resolveKeys(EndpointHit hit) {
+        hit.setAppId(apps.idOf(hit.getApp()));
+        hit.setUriId(uris.idOf(hit.getUri()));
+    }
+
+    // Ключи для пачки хитов: новые значения ищутся и добавляются по словарю разом, а не отдельной
+    // транзакцией на каждое — иначе первая пачка с тысячей новых uri стоила бы тысячи фиксаций
+    public void resolveAllKeys(Collection<EndpointHit> hits) {
+        apps.addAll(hits.stream().map(EndpointHit::getApp).toList());
+        uris.addAll(hits.stream().map(EndpointHit::getUri).toList());
+        hits.forEach(this::resolveKeys);
+    }
+
+    public void resolveNames(EndpointHit hit) {
+        hit.setApp(app(hit.getAppId()));
+        hit.setUri(uri(hit.getUriId()));
+    }
+
+    public String app(Integer id) {
+        return apps.nameOf(id);
+    }
+
+    public String uri(Integer id) {
+        return uris.nameOf(id);
+    }
+
+    // Ключи уже известных uri, без пополнения словаря: хитов по неизвестным uri нет
+    public List<Integer> findUriIds(Collection<String> values) {
+        return uris.findAll(values);
+    }
+
+    // Хиты, сохранённые до появления словарей, хранят app и uri строками: значения переносятся в словари,
+    // хиты без ключей получают их, прежние столбцы удаляются вместе с индексами на них (новые строит HitIndexInitializer).
+    // Таблица переписывается целиком — один раз, при первом старте после обновления
+    public void migrateInlineColumns() {
+        Integer inline = jdbcTemplate.queryForObject("""
+                SELECT COUNT(*) FROM information_schema.columns
+                WHERE table_schema = CURRENT_SCHEMA AND LOWER(table_name) = 'endpoint_hit'
+                AND LOWER(column_name) IN ('app', 'uri')
+                """, Integer.class);
+        if (inline == null || inline == 0) {
+            return;
+        }
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.execute("ALTER TABLE endpoint_hit ADD COLUMN IF NOT EXISTS app_id INTEGER");
+            jdbcTemplate.execute("ALTER TABLE endpoint_hit ADD COLUMN IF NOT EXISTS uri_id INTEGER");
+            for (String column : List.of("app", "uri")) {
+                jdbcTemplate.update("""
+                        INSERT INTO hit_%1$s (name)
+                        SELECT DISTINCT h.%1$s FROM endpoint_hit h
+                        WHERE h.%1$s IS NOT NULL
+                        AND NOT EXISTS (SELECT 1 FROM hit_%1$s d WHERE d.name = h.%1$s)
+                        """.formatted(column));
+            }
+            int migrated = jdbcTemplate.update("""
+                    UPDATE endpoint_hit
+                    SET app_id = COALESCE(app_id, (SELECT d.id FROM hit_app d WHERE d.name = endpoint_hit.app)),
+                        uri_id = COALESCE(uri_id, (SELECT d.id FROM hit_uri d WHERE d.name = endpoint_hit.uri))
+                    WHERE app_id IS NULL OR uri_id IS NULL
+                    """);
+            jdbcTemplate.execute("ALTER TABLE endpoint_hit ALTER COLUMN app_id SET NOT NULL");
+            jdbcTemplate.execute("ALTER TABLE endpoint_hit ALTER COLUMN uri_id SET NOT NULL");
+            jdbcTemplate.execute("ALTER TABLE endpoint_hit DROP COLUMN IF EXISTS app");
+            jdbcTemplate.execute("ALTER TABLE endpoint_hit DROP COLUMN IF EXISTS uri");
+            log.info("Moved app and uri of {} endpoint hits into dictionaries", migrated);
+        });
+    }
+
+    private final class Dictionary {
+
+        private final String table;
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private final Map<Integer, String> names = new ConcurrentHashMap<>();
+
+        private Dictionary(String table) {
+            this.table = table;
+        }
+
+        private void preload() {
+            RowCallbackHandler loader = rs -> remember(rs.getInt(1), rs.getString(2));
+            jdbcTemplate.query("SELECT id, name FROM " + table, loader);
+        }
+
+        // Значения добавляются в одном порядке, чтобы параллельные пачки не ждали друг друга по кругу.
+        // Если часть уже добавило другое соединение, вставка откатывается целиком — такие значения
+        // разрешит idOf по одному
+        private void addAll(Collection<String> values) {
+            List<String> missing = unknown(values);
+            if (missing.isEmpty()) {
+                return;
+            }
+            loadExisting(missing);
+            List<String> added = unknown(missing);
+            if (added.isEmpty()) {
+                return;
+            }
+            try {
+                newTransaction.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                        "INSERT INTO " + table + " (name) VALUES (?)", added, added.size(),
+                        (ps, name) -> ps.setString(1, name)));
+            } catch (DataIntegrityViolationException e) {
+                log.debug("Some of {} new values were added to {} concurrently", added.size(), table);
+                return;
+            }
+            loadExisting(added);
+        }
+
+        private List<String> unknown(Collection<String> values) {
+            return values.stream()
+                    .filter(name -> name != null && !name.isBlank() && !ids.containsKey(name))
+                    .distinct()
+                    .sorted()
+                    .toList();
+        }
+
+        private void loadExisting(List<String> names) {
+            RowCallbackHandler loader = rs -> remember(rs.getInt(1), rs.getString(2));
+            for (int from = 0; from < names.size(); from += LOOKUP_CHUNK) {
+                List<String> chunk = names.subList(from, Math.min(from + LOOKUP_CHUNK, names.size()));
+                jdbcTemplate.query("SELECT id, name FROM " + table + " WHERE name IN ("
+                        + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")", loader, chunk.toArray());
+            }
+        }
+
+        // Значения, которых нет в кеше, ищутся одним запросом на LOOKUP_CHUNK значений, а не по одному:
+        // фильтр статистики может перечислять сотни uri событий без хитов
+        private List<Integer> findAll(Collection<String> values) {
+            List<String> missing = unknown(values);
+            if (!missing.isEmpty()) {
+                loadExisting(missing);
+            }
+            List<Integer> found = new ArrayList<>(values.size());
+            for (String value : values) {
+                Integer id = value != null ? ids.get(value) : null;
+                if (id != null) {
+                    found.add(id);
+                }
+            }
+            return found;
+        }
+
+        private Integer idOf(String name) {
+            if (name == null || name.isBlank()) {
+                return null;
+            }
+            Integer id = find(name);
+            return id != null ? id : insert(name);
+        }
+
+        private Integer find(String name) {
+            Integer id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            // Значение могло добавить другое соединение или экземпляр сервера
+            List<Integer> stored = jdbcTemplate.queryForList("SELECT id FROM " + table + " WHERE name = ?",
+                    Integer.class, name);
+            if (stored.isEmpty()) {
+                return null;
+            }
+            remember(stored.get(0), name);
+            return stored.get(0);
+        }
+
+        private String nameOf(Integer id) {
+            if (id == null) {
+                return null;
+            }
+            String name = names.get(id);
+            if (name != null) {
+                return name;
+            }
+            List<String> stored = jdbcTemplate.queryForList("SELECT name FROM " + table + " WHERE id = ?",
+                    String.class, id);
+            if (stored.isEmpty()) {
+                throw new IllegalStateException("Unknown " + table + " key " + id);
+            }
+            remember(id, stored.get(0));
+            return stored.get(0);
+        }
+
+        private Integer insert(String name) {
+            try {
+                newTransaction.executeWithoutResult(status ->
+                        jdbcTemplate.update("INSERT INTO " + table + " (name) VALUES (?)", name));
+            } catch (DataIntegrityViolationException e) {
+                log.debug("Value {} was added to {} concurrently", name, table);
+            }
+            Integer id = find(name);
+            if (id == null) {
+                throw new IllegalStateException("Cannot add " + name + " to " + table);
+            }
+            return id;
+        }
+
+        private void remember(int id, String name) {
+            ids.put(name, id);
+            names.put(id, name);
+        }
+    }
+}
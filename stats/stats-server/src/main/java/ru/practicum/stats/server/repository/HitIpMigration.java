@@ -0,0 +1,83 @@
+package ru.practicum.stats.server.repository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.DatabaseMetaData;
+
+// Хиты, сохранённые до перехода на inet, хранят ip строкой: Hibernate тип существующего столбца не меняет,
+// поэтому столбец переводится здесь — один раз, при первом старте после обновления (таблица и индексы
+// переписываются целиком). Запись приводится к той же, что даёт IpAddressConverter: зона IPv6 отбрасывается,
+// IPv4-mapped адрес становится IPv4. Строки, не разобранные как адрес (прежняя проверка пропускала имена хостов),
+// получают неопределённый адрес "::" — хит остаётся в статистике просмотров
+@Slf4j
+@Repository
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class HitIpMigration {
+
+    private static final String UNSPECIFIED_ADDRESS = "::";
+
+    private static final String CREATE_PARSER_SQL = """
+            CREATE OR REPLACE FUNCTION pg_temp.hit_ip(value TEXT) RETURNS INET LANGUAGE plpgsql IMMUTABLE AS $$
+            DECLARE
+                address INET;
+            BEGIN
+                address := split_part(value, '%', 1)::INET;
+                IF family(address) = 6 AND address << '::ffff:0.0.0.0/96'::INET THEN
+                    RETURN '0.0.0.0'::INET + (address - '::ffff:0.0.0.0'::INET);
+                END IF;
+                RETURN address;
+            EXCEPTION WHEN invalid_text_representation THEN
+                RETURN NULL;
+            END
+            $$
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @PostConstruct
+    public void migrate() {
+        if (!isPostgres()) {
+            return;
+        }
+        String type = jdbcTemplate.query("""
+                        SELECT data_type FROM information_schema.columns
+                        WHERE table_schema = current_schema() AND table_name = 'endpoint_hit' AND column_name = 'ip'
+                        """,
+                rs -> rs.next() ? rs.getString(1) : null);
+        if (type == null || "inet".equals(type)) {
+            return;
+        }
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.execute(CREATE_PARSER_SQL);
+            Long unparsed = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM endpoint_hit WHERE pg_temp.hit_ip(ip) IS NULL", Long.class);
+            jdbcTemplate.execute("ALTER TABLE endpoint_hit ALTER COLUMN ip TYPE INET USING COALESCE(pg_temp.hit_ip(ip), '"
+                    + UNSPECIFIED_ADDRESS + "')");
+            jdbcTemplate.execute("DROP FUNCTION pg_temp.hit_ip(TEXT)");
+            log.info("Endpoint hit ip column converted from {} to inet, {} hits without a valid address stored as {}",
+                    type, unparsed, UNSPECIFIED_ADDRESS);
+        });
+    }
+
+    private boolean isPostgres() {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(),
+                    DatabaseMetaData::getDatabaseProductName);
+            return "PostgreSQL".equalsIgnoreCase(product);
+        } catch (MetaDataAccessException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package ru.practicum.stats.server.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.model.HitRollup;
+import ru.practicum.stats.server.model.RollupGranularity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface HitRollupRepository extends JpaRepository<HitRollup, Long>, HitRollupUpsertRepository {
+
+    interface SketchView {
+        String getApp();
+
+        String getUri();
+
+        byte[] getIpSketch();
+    }
+
+    // Сумма хитов по бакетам с началом в [from, to); обнулённые удалением пары (app, uri) отбрасываются
+    @Query("SELECT new ru.practicum.stats.dto.ViewStatsDto(" +
+            "r.app, " +
+            "r.uri, " +
+            "SUM(r.hits)) " +
+            "FROM HitRollup r " +
+            "WHERE r.granularity = :granularity " +
+            "AND r.bucketStart >= :from AND r.bucketStart < :to " +
+            "AND (:uris IS NULL OR r.uri IN :uris) " +
+            "GROUP BY r.uri, r.app " +
+            "HAVING SUM(r.hits) > 0")
+    List<ViewStatsDto> sumHits(RollupGranularity granularity,
+                               LocalDateTime from,
+                               LocalDateTime to,
+                               List<String> uris);
+
+    @Query("SELECT r.app AS app, r.uri AS uri, r.ipSketch AS ipSketch " +
+            "FROM HitRollup r " +
+            "WHERE r.granularity = :granularity " +
+            "AND r.bucketStart >= :from AND r.bucketStart < :to " +
+            "AND r.hits > 0 " +
+            "AND (:uris IS NULL OR r.uri IN :uris)")
+    List<SketchView> findSketches(RollupGranularity granularity,
+                                  LocalDateTime from,
+                                  LocalDateTime to,
+                                  List<String> uris);
+
+    boolean existsByGranularityAndIpSketchIsNull(RollupGranularity granularity);
+}
@@ -0,0 +1,22 @@
+package ru.practicum.stats.server.repository;
+
+import ru.practicum.stats.server.model.HyperLogLog;
+import ru.practicum.stats.server.model.RollupKey;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface HitRollupUpsertRepository {
+
+    // Атомарно прибавляет delta к счётчикам бакетов, создавая недостающие строки
+    void increment(Map<RollupKey, Long> deltas);
+
+    // Объединяет скетчи с уже сохранёнными; строки бакетов должны существовать (после increment)
+    void mergeSketches(Map<RollupKey, HyperLogLog> sketches);
+
+    // Пересчитывает скетчи бакетов по сырым хитам — HyperLogLog не умеет удалять элементы
+    void rebuildSketches(Collection<RollupKey> keys);
+
+    // Полностью пересчитывает агрегаты и скетчи по сырым хитам
+    void rebuildFromHits();
+}
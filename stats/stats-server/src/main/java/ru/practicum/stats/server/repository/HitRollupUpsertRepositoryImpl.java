@@ -0,0 +1,231 @@
+package ru.practicum.stats.server.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import ru.practicum.stats.dto.codec.IpAddresses;
+import ru.practicum.stats.server.model.HyperLogLog;
+import ru.practicum.stats.server.model.RollupGranularity;
+import ru.practicum.stats.server.model.RollupKey;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class HitRollupUpsertRepositoryImpl implements HitRollupUpsertRepository {
+
+    private static final String POSTGRES_UPSERT_SQL = """
+            INSERT INTO hit_rollup (granularity, bucket_start, uri, app, hits)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (granularity, bucket_start, uri, app)
+            DO UPDATE SET hits = hit_rollup.hits + EXCLUDED.hits
+            """;
+
+    private static final String MERGE_UPSERT_SQL = """
+            MERGE INTO hit_rollup r
+            USING (SELECT CAST(? AS VARCHAR(10)) AS granularity,
+                          CAST(? AS TIMESTAMP) AS bucket_start,
+                          CAST(? AS VARCHAR(255)) AS uri,
+                          CAST(? AS VARCHAR(255)) AS app,
+                          CAST(? AS BIGINT) AS hits) d
+            ON (r.granularity = d.granularity AND r.bucket_start = d.bucket_start
+                AND r.uri = d.uri AND r.app = d.app)
+            WHEN MATCHED THEN UPDATE SET hits = r.hits + d.hits
+            WHEN NOT MATCHED THEN INSERT (granularity, bucket_start, uri, app, hits)
+                VALUES (d.granularity, d.bucket_start, d.uri, d.app, d.hits)
+            """;
+
+    // %s — выражение усечения времени до бакета, у PostgreSQL и H2 оно записывается по-разному
+    private static final String REBUILD_SQL = """
+            INSERT INTO hit_rollup (granularity, bucket_start, uri, app, hits)
+            SELECT ?, %1$s, u.name, a.name, COUNT(*)
+            FROM endpoint_hit h
+            JOIN hit_uri u ON u.id = h.uri_id
+            JOIN hit_app a ON a.id = h.app_id
+            GROUP BY %1$s, h.uri_id, h.app_id, u.name, a.name
+            """;
+
+    private static final String SELECT_SKETCH_FOR_UPDATE_SQL = """
+            SELECT ip_sketch FROM hit_rollup
+            WHERE granularity = ? AND bucket_start = ? AND uri = ? AND app = ?
+            FOR UPDATE
+            """;
+
+    private static final String UPDATE_SKETCH_SQL = """
+            UPDATE hit_rollup SET ip_sketch = ?
+            WHERE granularity = ? AND bucket_start = ? AND uri = ? AND app = ?
+            """;
+
+    private static final String SELECT_BUCKET_IPS_SQL = """
+            SELECT DISTINCT h.ip FROM endpoint_hit h
+            JOIN hit_app a ON a.id = h.app_id
+            JOIN hit_uri u ON u.id = h.uri_id
+            WHERE a.name = ? AND u.name = ? AND h.timestamp >= ? AND h.timestamp < ?
+            """;
+
+    private static final String SELECT_DAY_HITS_SQL = """
+            SELECT a.name, u.name, h.ip, h.timestamp FROM endpoint_hit h
+            JOIN hit_app a ON a.id = h.app_id
+            JOIN hit_uri u ON u.id = h.uri_id
+            WHERE h.timestamp >= ? AND h.timestamp < ?
+            """;
+
+    // Единый порядок строк во всех транзакциях, чтобы параллельные пачки не ловили deadlock
+    private static final Comparator<RollupKey> LOCK_ORDER = Comparator
+            .comparing(RollupKey::granularity)
+            .thenComparing(RollupKey::bucketStart)
+            .thenComparing(RollupKey::uri)
+            .thenComparing(RollupKey::app);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Boolean postgres;
+
+    @Override
+    public void increment(Map<RollupKey, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        List<RollupKey> keys = new ArrayList<>(deltas.keySet());
+        keys.sort(LOCK_ORDER);
+
+        jdbcTemplate.batchUpdate(upsertSql(), keys, keys.size(), (ps, key) -> {
+            ps.setString(1, key.granularity().name());
+            ps.setTimestamp(2, Timestamp.valueOf(key.bucketStart()));
+            ps.setString(3, key.uri());
+            ps.setString(4, key.app());
+            ps.setLong(5, deltas.get(key));
+        });
+    }
+
+    // Read-modify-write под блокировкой строки: increment в этой же транзакции уже взял её в том же порядке
+    @Override
+    public void mergeSketches(Map<RollupKey, HyperLogLog> sketches) {
+        if (sketches.isEmpty()) {
+            return;
+        }
+
+        List<RollupKey> keys = new ArrayList<>(sketches.keySet());
+        keys.sort(LOCK_ORDER);
+
+        Map<RollupKey, HyperLogLog> merged = new HashMap<>();
+        for (RollupKey key : keys) {
+            List<byte[]> stored = jdbcTemplate.query(SELECT_SKETCH_FOR_UPDATE_SQL,
+                    (rs, rowNum) -> rs.getBytes(1),
+                    key.granularity().name(), Timestamp.valueOf(key.bucketStart()), key.uri(), key.app());
+            HyperLogLog sketch = sketches.get(key);
+            sketch.merge(stored.isEmpty() ? null : stored.get(0));
+            merged.put(key, sketch);
+        }
+        updateSketches(keys, merged);
+    }
+
+    @Override
+    public void rebuildSketches(Collection<RollupKey> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        List<RollupKey> sorted = new ArrayList<>(keys);
+        sorted.sort(LOCK_ORDER);
+
+        Map<RollupKey, HyperLogLog> rebuilt = new HashMap<>();
+        for (RollupKey key : sorted) {
+            HyperLogLog sketch = new HyperLogLog();
+            RowCallbackHandler collector = rs -> sketch.add(readIp(rs, 1));
+            jdbcTemplate.query(SELECT_BUCKET_IPS_SQL, collector,
+                    key.app(), key.uri(),
+                    Timestamp.valueOf(key.bucketStart()),
+                    Timestamp.valueOf(key.granularity().plus(key.bucketStart())));
+            rebuilt.put(key, sketch);
+        }
+        updateSketches(sorted, rebuilt);
+    }
+
+    @Override
+    public void rebuildFromHits() {
+        jdbcTemplate.update("DELETE FROM hit_rollup");
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            String unit = granularity.name();
+            String truncated = isPostgres()
+                    ? "date_trunc('" + unit.toLowerCase() + "', h.timestamp)"
+                    : "DATE_TRUNC(" + unit + ", h.timestamp)";
+            jdbcTemplate.update(REBUILD_SQL.formatted(truncated), unit);
+        }
+
+        // Скетчи строим по одному дню, чтобы память не зависела от объёма истории
+        List<Timestamp> bounds = jdbcTemplate.query("SELECT MIN(timestamp), MAX(timestamp) FROM endpoint_hit",
+                (rs, rowNum) -> List.of(rs.getTimestamp(1), rs.getTimestamp(2))).get(0);
+        if (bounds.get(0) == null) {
+            return;
+        }
+
+        LocalDate last = bounds.get(1).toLocalDateTime().toLocalDate();
+        for (LocalDate day = bounds.get(0).toLocalDateTime().toLocalDate(); !day.isAfter(last); day = day.plusDays(1)) {
+            Map<RollupKey, HyperLogLog> sketches = new HashMap<>();
+            RowCallbackHandler collector = rs -> {
+                LocalDateTime timestamp = rs.getTimestamp(4).toLocalDateTime();
+                for (RollupGranularity granularity : RollupGranularity.values()) {
+                    if (granularity.isSketched()) {
+                        RollupKey key = new RollupKey(granularity, rs.getString(1), rs.getString(2),
+                                granularity.floor(timestamp));
+                        sketches.computeIfAbsent(key, k -> new HyperLogLog()).add(readIp(rs, 3));
+                    }
+                }
+            };
+            jdbcTemplate.query(SELECT_DAY_HITS_SQL, collector,
+                    Timestamp.valueOf(day.atStartOfDay()), Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+
+            List<RollupKey> keys = new ArrayList<>(sketches.keySet());
+            keys.sort(LOCK_ORDER);
+            updateSketches(keys, sketches);
+        }
+    }
+
+    private void updateSketches(List<RollupKey> keys, Map<RollupKey, HyperLogLog> sketches) {
+        jdbcTemplate.batchUpdate(UPDATE_SKETCH_SQL, keys, keys.size(), (ps, key) -> {
+            ps.setBytes(1, sketches.get(key).toBytes());
+            ps.setString(2, key.granularity().name());
+            ps.setTimestamp(3, Timestamp.valueOf(key.bucketStart()));
+            ps.setString(4, key.uri());
+            ps.setString(5, key.app());
+        });
+    }
+
+    // Адрес в записи сохранённого хита (см. IpAddressConverter), иначе скетч посчитал бы один IP дважды:
+    // PostgreSQL отдаёт inet текстом, остальные СУБД — байтами адреса
+    private String readIp(ResultSet rs, int column) throws SQLException {
+        return isPostgres() ? IpAddresses.canonical(rs.getString(column)) : IpAddresses.format(rs.getBytes(column));
+    }
+
+    // PostgreSQL: INSERT ... ON CONFLICT безопасен при конкурентных вставках; остальные БД — стандартный MERGE
+    private String upsertSql() {
+        return isPostgres() ? POSTGRES_UPSERT_SQL : MERGE_UPSERT_SQL;
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            try {
+                String product = JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(),
+                        DatabaseMetaData::getDatabaseProductName);
+                postgres = "PostgreSQL".equalsIgnoreCase(product);
+            } catch (MetaDataAccessException e) {
+                postgres = false;
+            }
+        }
+        return postgres;
+    }
+}
@@ -0,0 +1,31 @@
+package ru.practicum.stats.server.repository;
+
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface StatsQueryRepository {
+
+    interface VisitorView {
+        String getApp();
+
+        String getUri();
+
+        String getIp();
+    }
+
+    // Хиты по uri за [start, end] с MIN(app), по убыванию числа хитов; uris == null — без фильтра
+    List<ViewStatsDto> findStats(LocalDateTime start, LocalDateTime end, List<String> uris);
+
+    // Уникальные IP по (app, uri) за [start, end], по убыванию
+    List<ViewStatsDto> findStatsUnique(LocalDateTime start, LocalDateTime end, List<String> uris);
+
+    // Хиты в полуинтервале [from, to) — края диапазона при чтении через агрегаты
+    List<ViewStatsDto> findStatsBefore(LocalDateTime from, LocalDateTime to, List<String> uris);
+
+    // Уникальные (app, uri, ip) на краях диапазона для приближённого подсчёта: [from, to) и [from, to]
+    List<VisitorView> findVisitorsBefore(LocalDateTime from, LocalDateTime to, List<String> uris);
+
+    List<VisitorView> findVisitors(LocalDateTime from, LocalDateTime to, List<String> uris);
+}
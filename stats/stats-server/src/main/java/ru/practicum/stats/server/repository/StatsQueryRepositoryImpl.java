@@ -0,0 +1,120 @@
+package ru.practicum.stats.server.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Хиты группируются по целым ключам словарей app и uri (см. HitDictionary), строки подставляются из кеша
+// словаря уже в готовый результат. Фильтр по uri переводится в ключи заранее. Запросы с фильтром и без
+// собираются по отдельности: условие (:uris IS NULL OR h.uriId IN :uris) не даёт планировщику выбрать индекс
+// по (uri_id, timestamp). COUNT(*) вместо COUNT(h.id): запросам хватает столбцов покрывающих индексов
+// (см. HitIndexInitializer)
+@RequiredArgsConstructor
+public class StatsQueryRepositoryImpl implements StatsQueryRepository {
+
+    private static final String HITS_QUERY =
+            "SELECT h.appId, h.uriId, COUNT(*) FROM EndpointHit h WHERE %s GROUP BY h.uriId, h.appId";
+
+    private static final String UNIQUE_QUERY =
+            "SELECT h.appId, h.uriId, COUNT(DISTINCT h.ip) FROM EndpointHit h WHERE %s GROUP BY h.appId, h.uriId";
+
+    private static final String VISITORS_QUERY =
+            "SELECT DISTINCT h.appId, h.uriId, h.ip FROM EndpointHit h WHERE %s";
+
+    private static final String URI_FILTER = "h.uriId IN :uriIds AND ";
+    private static final String CLOSED_RANGE = "h.timestamp BETWEEN :from AND :to";
+    private static final String HALF_OPEN_RANGE = "h.timestamp >= :from AND h.timestamp < :to";
+
+    private final EntityManager entityManager;
+    private final HitDictionary dictionary;
+
+    @Value
+    private static class Visitor implements VisitorView {
+        String app;
+        String uri;
+        String ip;
+    }
+
+    @Override
+    public List<ViewStatsDto> findStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        return hitsPerUri(query(HITS_QUERY, CLOSED_RANGE, start, end, uris));
+    }
+
+    @Override
+    public List<ViewStatsDto> findStatsUnique(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        return sortedByHits(query(UNIQUE_QUERY, CLOSED_RANGE, start, end, uris).stream()
+                .map(this::toStats)
+                .toList());
+    }
+
+    @Override
+    public List<ViewStatsDto> findStatsBefore(LocalDateTime from, LocalDateTime to, List<String> uris) {
+        return hitsPerUri(query(HITS_QUERY, HALF_OPEN_RANGE, from, to, uris));
+    }
+
+    @Override
+    public List<VisitorView> findVisitorsBefore(LocalDateTime from, LocalDateTime to, List<String> uris) {
+        return toVisitors(query(VISITORS_QUERY, HALF_OPEN_RANGE, from, to, uris));
+    }
+
+    @Override
+    public List<VisitorView> findVisitors(LocalDateTime from, LocalDateTime to, List<String> uris) {
+        return toVisitors(query(VISITORS_QUERY, CLOSED_RANGE, from, to, uris));
+    }
+
+    // Строки (appId, uriId, значение); фильтр только из неизвестных uri сразу даёт пустой результат
+    private List<Object[]> query(String template, String range, LocalDateTime from, LocalDateTime to,
+                                 List<String> uris) {
+        List<Integer> uriIds = uris != null ? dictionary.findUriIds(uris) : null;
+        if (uriIds != null && uriIds.isEmpty()) {
+            return List.of();
+        }
+
+        TypedQuery<Object[]> query = entityManager
+                .createQuery(template.formatted((uriIds != null ? URI_FILTER : "") + range), Object[].class)
+                .setParameter("from", from)
+                .setParameter("to", to);
+        if (uriIds != null) {
+            query.setParameter("uriIds", uriIds);
+        }
+        return query.getResultList();
+    }
+
+    // Группы (uri, app) сводятся по uri с наименьшим app — как MIN(app) при группировке по строкам
+    private List<ViewStatsDto> hitsPerUri(List<Object[]> rows) {
+        Map<Integer, ViewStatsDto> totals = new HashMap<>();
+        for (Object[] row : rows) {
+            totals.merge((Integer) row[1], toStats(row), (left, right) -> new ViewStatsDto(
+                    left.getApp().compareTo(right.getApp()) <= 0 ? left.getApp() : right.getApp(),
+                    left.getUri(),
+                    left.getHits() + right.getHits()));
+        }
+        return sortedByHits(totals.values());
+    }
+
+    private ViewStatsDto toStats(Object[] row) {
+        return new ViewStatsDto(dictionary.app((Integer) row[0]), dictionary.uri((Integer) row[1]), (Long) row[2]);
+    }
+
+    private List<VisitorView> toVisitors(List<Object[]> rows) {
+        return rows.stream()
+                .<VisitorView>map(row -> new Visitor(dictionary.app((Integer) row[0]), dictionary.uri((Integer) row[1]),
+                        (String) row[2]))
+                .toList();
+    }
+
+    private static List<ViewStatsDto> sortedByHits(Collection<ViewStatsDto> stats) {
+        return stats.stream()
+                .sorted(Comparator.comparing(ViewStatsDto::getHits).reversed())
+                .toList();
+    }
+}
@@ -0,0 +1,29 @@
+package ru.practicum.stats.server.service;
+
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PrePersist;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.repository.HitDictionary;
+
+// Ключи словарей для хитов, сохраняемых через JPA, и строки app/uri для загруженных
+// (пакетная вставка и COPY получают ключи в репозитории)
+@Component
+@RequiredArgsConstructor
+public class HitDictionaryListener {
+
+    // Лениво: слушатель создаётся вместе с EntityManagerFactory, раньше словаря
+    private final ObjectProvider<HitDictionary> dictionary;
+
+    @PrePersist
+    public void onPersist(EndpointHit hit) {
+        dictionary.getObject().resolveKeys(hit);
+    }
+
+    @PostLoad
+    public void onLoad(EndpointHit hit) {
+        dictionary.getObject().resolveNames(hit);
+    }
+}
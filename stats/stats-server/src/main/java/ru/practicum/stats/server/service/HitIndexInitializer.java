@@ -0,0 +1,121 @@
+package ru.practicum.stats.server.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.server.repository.HitDictionary;
+
+import java.sql.DatabaseMetaData;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Индексы endpoint_hit под запросы StatsRepository: диапазон времени без фильтра и список uri за диапазон
+// (app и uri — ключи словарей, см. HitDictionary).
+// На PostgreSQL оба покрывающие (INCLUDE), и запросы, включая COUNT(DISTINCT ip), читают только индекс.
+// Строятся CONCURRENTLY, не останавливая приём хитов; у секционированной таблицы — по секциям с подключением
+// к индексу родителя, новые секции получают их автоматически. На других СУБД — составные индексы из тех же столбцов.
+// Схему создаёт Hibernate, поэтому индексы не описаны через @Index: индексы секционированной таблицы
+// он не видит и пытался бы создавать их заново при каждом старте
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HitIndexInitializer implements ApplicationRunner {
+
+    // Прежний индекс по timestamp, перекрытый покрывающим
+    private static final String OBSOLETE_INDEX = "idx_endpoint_hit_timestamp";
+
+    private static final List<HitIndex> INDEXES = List.of(
+            new HitIndex("idx_endpoint_hit_timestamp_cover",
+                    "(timestamp) INCLUDE (uri_id, app_id, ip)", "(timestamp, uri_id, app_id, ip)"),
+            new HitIndex("idx_endpoint_hit_uri_timestamp_cover",
+                    "(uri_id, timestamp) INCLUDE (app_id, ip)", "(uri_id, timestamp, app_id, ip)"));
+
+    private final JdbcTemplate jdbcTemplate;
+    // Секционирование таблицы должно завершиться раньше
+    private final HitPartitionManager partitionManager;
+    // Как и перенос app и uri в словари: индексы строятся по столбцам ключей
+    private final HitDictionary dictionary;
+
+    private record HitIndex(String name, String postgresColumns, String columns) {
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!isPostgres()) {
+            INDEXES.forEach(index -> jdbcTemplate.execute(
+                    "CREATE INDEX IF NOT EXISTS " + index.name() + " ON endpoint_hit " + index.columns()));
+        } else {
+            boolean partitioned = "p".equals(jdbcTemplate.queryForObject(
+                    "SELECT relkind::text FROM pg_class WHERE oid = 'endpoint_hit'::regclass", String.class));
+            for (HitIndex index : INDEXES) {
+                try {
+                    if (partitioned) {
+                        createPartitionedIndex(index);
+                    } else {
+                        createIndexConcurrently(index.name(), "endpoint_hit", index.postgresColumns());
+                    }
+                } catch (Exception e) {
+                    log.warn("Cannot create endpoint hit index {}: {}", index.name(), e.getMessage());
+                }
+            }
+        }
+        jdbcTemplate.execute("DROP INDEX IF EXISTS " + OBSOLETE_INDEX);
+    }
+
+    // Индекс родителя создаётся ON ONLY и становится валидным, когда к нему подключены индексы всех секций
+    private void createPartitionedIndex(HitIndex index) {
+        if (!exists(index.name())) {
+            jdbcTemplate.execute("CREATE INDEX " + index.name() + " ON ONLY endpoint_hit " + index.postgresColumns());
+        }
+        for (HitPartitionManager.Partition partition : partitionManager.partitions()) {
+            Integer attached = jdbcTemplate.queryForObject("""
+                            SELECT COUNT(*) FROM pg_inherits i
+                            JOIN pg_index x ON x.indexrelid = i.inhrelid
+                            WHERE i.inhparent = to_regclass(?) AND x.indrelid = to_regclass(?)
+                            """,
+                    Integer.class, index.name(), partition.name());
+            if (attached != null && attached > 0) {
+                continue;
+            }
+            String partitionIndex = HitPartitionManager.partitionIndexName(partition.name(), index.name());
+            createIndexConcurrently(partitionIndex, partition.name(), index.postgresColumns());
+            jdbcTemplate.execute("ALTER INDEX " + index.name() + " ATTACH PARTITION " + partitionIndex);
+        }
+    }
+
+    // Прерванная сборка CONCURRENTLY оставляет невалидный индекс — он пересоздаётся
+    private void createIndexConcurrently(String name, String table, String columns) {
+        Boolean valid = jdbcTemplate.query("SELECT indisvalid FROM pg_index WHERE indexrelid = to_regclass(?)",
+                rs -> rs.next() ? rs.getBoolean(1) : null, name);
+        if (Boolean.TRUE.equals(valid)) {
+            return;
+        }
+        if (valid != null) {
+            jdbcTemplate.execute("DROP INDEX CONCURRENTLY " + name);
+        }
+        long started = System.nanoTime();
+        jdbcTemplate.execute("CREATE INDEX CONCURRENTLY " + name + " ON " + table + " " + columns);
+        log.info("Endpoint hit index {} built in {} ms", name,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private boolean exists(String name) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL",
+                Boolean.class, name));
+    }
+
+    private boolean isPostgres() {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(),
+                    DatabaseMetaData::getDatabaseProductName);
+            return "PostgreSQL".equalsIgnoreCase(product);
+        } catch (MetaDataAccessException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package ru.practicum.stats.server.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.server.exception.HitBufferFullException;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.HitRingBuffer;
+import ru.practicum.stats.server.repository.EndpointHitRepository;
+import ru.practicum.stats.server.repository.HitDictionary;
+
+import java.nio.file.Path;
+import java.sql.DatabaseMetaData;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Отложенная запись хитов: POST /hit подтверждается сразу после постановки в кольцевой буфер, а группа
+// потоков-писателей забирает хиты пачками и сохраняет многострочной вставкой (на PostgreSQL — COPY)
+// вместе с агрегатами. Полный буфер не ждёт — запрос отклоняется с 429, клиент повторяет позже.
+// Если задан каталог журнала, хит до ответа дописывается в HitJournal, а после сохранения в БД отмечается
+// в нём как сохранённый; при старте несохранённые хиты журнала дописываются в БД
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HitIngestionPipeline {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long INITIAL_RETRY_DELAY_MS = 100;
+    private static final long MAX_RETRY_DELAY_MS = 5_000;
+
+    private final EndpointHitRepository repository;
+    private final HitDictionary dictionary;
+    private final HitRollupService rollupService;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${stats.ingest.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${stats.ingest.write-behind.capacity:65536}")
+    private int capacity;
+
+    @Value("${stats.ingest.write-behind.writers:2}")
+    private int writers;
+
+    @Value("${stats.ingest.write-behind.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${stats.ingest.write-behind.copy:true}")
+    private boolean copy;
+
+    @Value("${stats.ingest.write-behind.journal:}")
+    private String journalPath;
+
+    @Value("${stats.ingest.write-behind.journal-segment-size:67108864}")
+    private int journalSegmentSize;
+
+    @Value("${stats.ingest.write-behind.journal-fsync:true}")
+    private boolean journalFsync;
+
+    @Value("${stats.ingest.write-behind.shutdown-timeout-ms:30000}")
+    private long shutdownTimeoutMs;
+
+    private HitRingBuffer<Pending> buffer;
+    private HitJournal journal;
+    private TransactionTemplate transactionTemplate;
+    private ExecutorService writerPool;
+    private boolean useCopy;
+
+    private volatile boolean running;
+    private volatile boolean accepting;
+    // Писатели, забирающие или записывающие пачку
+    private final AtomicInteger busyWriters = new AtomicInteger();
+    // Вызовы submit, прошедшие проверку accepting и ещё не положившие хит в буфер
+    private final AtomicInteger submitting = new AtomicInteger();
+
+    private Counter acceptedCounter;
+    private Counter rejectedCounter;
+    private Counter writtenCounter;
+    private Counter droppedCounter;
+
+    // Хит в буфере и сегмент журнала, где он записан (null без журнала)
+    private record Pending(EndpointHit hit, HitJournal.Segment segment) {
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        buffer = new HitRingBuffer<>(capacity);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        useCopy = copy && isPostgres();
+
+        meterRegistry.gauge("stats.ingest.buffer.size", buffer, HitRingBuffer::size);
+        acceptedCounter = meterRegistry.counter("stats.ingest.hits", "result", "accepted");
+        rejectedCounter = meterRegistry.counter("stats.ingest.hits", "result", "rejected");
+        writtenCounter = meterRegistry.counter("stats.ingest.hits", "result", "written");
+        droppedCounter = meterRegistry.counter("stats.ingest.hits", "result", "dropped");
+
+        // Повтор журнала тоже пишет с повторами при сбое БД — до запуска писателей и приёма хитов
+        running = true;
+        if (!journalPath.isBlank()) {
+            journal = new HitJournal(Path.of(journalPath), journalSegmentSize, journalFsync);
+            replayJournal();
+        }
+
+        accepting = true;
+        AtomicInteger threadNumber = new AtomicInteger();
+        writerPool = Executors.newFixedThreadPool(writers, runnable -> {
+            Thread thread = new Thread(runnable, "hit-writer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < writers; i++) {
+            writerPool.execute(this::drain);
+        }
+        log.info("Write-behind hit ingestion started: capacity={}, writers={}, batchSize={}, copy={}, journal={}",
+                buffer.capacity(), writers, batchSize, useCopy, journal != null ? journalPath : "none");
+    }
+
+    // Остановка: новые хиты не принимаются, писатели дописывают буфер до конца. Писатели выходят, только когда
+    // дождались уже начатых submit: иначе хит, подтверждённый после их последнего забора, остался бы в буфере
+    @PreDestroy
+    void stop() {
+        if (!enabled || writerPool == null) {
+            return;
+        }
+        accepting = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shutdownTimeoutMs);
+        while (submitting.get() > 0 && System.nanoTime() - deadline < 0) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        running = false;
+        writerPool.shutdown();
+        try {
+            if (!writerPool.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Write-behind writers did not finish in {} ms, {} hits left in buffer",
+                        shutdownTimeoutMs, buffer.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Счётчик поднимается до проверки accepting, а stop() снимает accepting до чтения счётчика: вызов,
+    // который stop() не увидел, увидит снятый accepting
+    public void submit(EndpointHit hit) {
+        submitting.incrementAndGet();
+        try {
+            if (!accepting) {
+                rejectedCounter.increment();
+                throw new HitBufferFullException("Hit ingestion is not accepting hits");
+            }
+            enqueue(hit);
+        } finally {
+            submitting.decrementAndGet();
+        }
+    }
+
+    public int bufferedHits() {
+        return buffer != null ? buffer.size() : 0;
+    }
+
+    // Буфер пуст и ни один писатель не держит пачку. Счётчик поднимается до забора из буфера, поэтому
+    // хит не бывает невидим ни в буфере, ни у писателя
+    public boolean isIdle() {
+        return bufferedHits() == 0 && busyWriters.get() == 0;
+    }
+
+    private void enqueue(EndpointHit hit) {
+        if (journal == null) {
+            offer(new Pending(hit, null));
+            return;
+        }
+
+        // При полном буфере хит не журналируется; если место заняли между проверкой и offer, запись в журнале
+        // сразу отмечается обработанной
+        if (buffer.size() >= buffer.capacity()) {
+            reject();
+        }
+        HitJournal.Segment segment = journal.append(hit);
+        try {
+            offer(new Pending(hit, segment));
+        } catch (HitBufferFullException e) {
+            journal.commit(segment, 1);
+            throw e;
+        }
+        journal.sync();
+    }
+
+    private void offer(Pending pending) {
+        if (!buffer.offer(pending)) {
+            reject();
+        }
+        acceptedCounter.increment();
+    }
+
+    private void reject() {
+        rejectedCounter.increment();
+        throw new HitBufferFullException("Hit buffer is full (" + buffer.capacity() + " hits)");
+    }
+
+    private void drain() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        List<EndpointHit> hits = new ArrayList<>(batchSize);
+        while (running || buffer.size() > 0) {
+            busyWriters.incrementAndGet();
+            if (buffer.drainTo(batch, batchSize) == 0) {
+                busyWriters.decrementAndGet();
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            batch.forEach(pending -> hits.add(pending.hit()));
+            // Пачка, отброшенная при остановке, не отмечается в журнале — её хиты повторятся при следующем старте.
+            // Неожиданная ошибка не завершает писателя: пул не запускает его заново, и буфер перестал бы разбираться
+            try {
+                if (write(hits)) {
+                    committed(batch);
+                }
+            } catch (Exception e) {
+                log.error("Hit writer failed on a batch of {} hits{}", hits.size(),
+                        journal != null ? ", they stay in the journal" : "", e);
+                droppedCounter.increment(hits.size());
+            } finally {
+                busyWriters.decrementAndGet();
+                batch.clear();
+                hits.clear();
+            }
+        }
+    }
+
+    // Сбой БД не теряет хиты: пачка повторяется с нарастающей паузой, а буфер тем временем заполняется
+    // и приём отвечает 429. Хиты, которые БД отвергает по ограничениям, записываются по одному и отбрасываются.
+    // Возвращает false, если пачка не сохранена из-за сбоя при остановке
+    private boolean write(List<EndpointHit> batch) {
+        long delay = INITIAL_RETRY_DELAY_MS;
+        while (true) {
+            try {
+                insert(batch);
+                writtenCounter.increment(batch.size());
+                return true;
+            } catch (DataIntegrityViolationException e) {
+                return writeOneByOne(batch);
+            } catch (Exception e) {
+                if (!retryAfter(e, batch.size(), delay)) {
+                    return false;
+                }
+                delay = Math.min(delay * 2, MAX_RETRY_DELAY_MS);
+            }
+        }
+    }
+
+    // Сбой БД посреди поштучной записи повторяет текущий хит так же, как write() — пачку
+    private boolean writeOneByOne(List<EndpointHit> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            EndpointHit hit = batch.get(i);
+            long delay = INITIAL_RETRY_DELAY_MS;
+            while (true) {
+                try {
+                    insert(List.of(hit));
+                    writtenCounter.increment();
+                    break;
+                } catch (DataIntegrityViolationException e) {
+                    log.warn("Dropping hit rejected by database: {}: {}", hit, e.getMostSpecificCause().getMessage());
+                    droppedCounter.increment();
+                    break;
+                } catch (Exception e) {
+                    if (!retryAfter(e, batch.size() - i, delay)) {
+                        return false;
+                    }
+                    delay = Math.min(delay * 2, MAX_RETRY_DELAY_MS);
+                }
+            }
+        }
+        return true;
+    }
+
+    // Пауза перед повтором; при остановке хиты не повторяются, а отбрасываются — false
+    private boolean retryAfter(Exception e, int hits, long delay) {
+        if (!running) {
+            log.error("Dropping {} hits after write failure during shutdown{}: {}", hits,
+                    journal != null ? ", they stay in the journal" : "", e.getMessage());
+            droppedCounter.increment(hits);
+            return false;
+        }
+        log.warn("Writing {} hits failed, retrying in {} ms: {}", hits, delay, e.getMessage());
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(delay));
+        return true;
+    }
+
+    // Ключи словарей — до транзакции пачки, как и в StatsServiceImpl
+    private void insert(List<EndpointHit> hits) {
+        dictionary.resolveAllKeys(hits);
+        transactionTemplate.executeWithoutResult(status -> {
+            if (useCopy) {
+                repository.copyInsert(hits);
+            } else {
+                repository.batchInsert(hits);
+            }
+            rollupService.record(hits);
+        });
+    }
+
+    // Пачка обычно целиком из одного сегмента — отметки идут сериями
+    private void committed(List<Pending> batch) {
+        if (journal == null) {
+            return;
+        }
+        int from = 0;
+        for (int i = 1; i <= batch.size(); i++) {
+            if (i == batch.size() || batch.get(i).segment() != batch.get(from).segment()) {
+                journal.commit(batch.get(from).segment(), i - from);
+                from = i;
+            }
+        }
+    }
+
+    private void replayJournal() {
+        List<EndpointHit> hits = journal.readAll();
+        if (hits.isEmpty()) {
+            journal.releaseRecovered();
+            return;
+        }
+        boolean persisted = true;
+        for (int from = 0; from < hits.size(); from += batchSize) {
+            persisted &= write(hits.subList(from, Math.min(from + batchSize, hits.size())));
+        }
+        if (!persisted) {
+            log.warn("Hit journal {} replay was interrupted, segments are kept for the next start", journalPath);
+            return;
+        }
+        journal.releaseRecovered();
+        log.info("Replayed {} hits from journal {}", hits.size(), journalPath);
+    }
+
+    private boolean isPostgres() {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(),
+                    DatabaseMetaData::getDatabaseProductName);
+            return "PostgreSQL".equalsIgnoreCase(product);
+        } catch (MetaDataAccessException e) {
+            return false;
+        }
+    }
+}
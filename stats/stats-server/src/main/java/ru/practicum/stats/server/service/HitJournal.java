@@ -0,0 +1,298 @@
+package ru.practicum.stats.server.service;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.stats.server.model.EndpointHit;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Журнал отложенной записи из сегментов фиксированного размера, отображённых в память: дописывание хита —
+// копирование байтов в страницы сегмента без системных вызовов, поэтому падение процесса (kill -9) записи
+// не теряет. С fsync запись до ответа ещё и сбрасывается на диск — групповым force на все накопившиеся записи,
+// что переживает и падение ОС. Запись — длина, CRC32C и поля хита; чтение сегмента останавливается на нулевой
+// длине (конец записей) или на первой повреждённой записи.
+// Каждый сегмент считает хиты, ещё не сохранённые в БД. Заполненный сегмент удаляется, когда его хиты сохранены;
+// у текущего в заголовке сдвигается отметка, до которой записи повторять не нужно. Повтор — «хотя бы один раз»:
+// хиты, сохранённые в БД перед самым сбоем, могут быть записаны повторно
+@Slf4j
+public class HitJournal implements AutoCloseable {
+
+    private static final int MAGIC = 0x45574d4a;
+    // magic, резерв, отметка сохранённого (long)
+    private static final int HEADER_SIZE = 16;
+    private static final int CHECKPOINT_OFFSET = 8;
+    // длина и CRC32C
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean fsync;
+    private final Object syncLock = new Object();
+
+    // Сегменты прошлого запуска — только для повтора
+    private final List<Path> recovered;
+    private long nextSegmentId;
+    private Segment active;
+
+    // Логические позиции растут монотонно через все сегменты
+    private long appended;
+    private volatile long synced;
+
+    public static final class Segment {
+
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private int pending;
+        private boolean sealed;
+        // Записи до этого смещения уже сброшены на диск (доступ — под syncLock)
+        private int forced = HEADER_SIZE;
+
+        private Segment(Path path, MappedByteBuffer buffer) {
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+
+    public HitJournal(Path directory, int segmentSize, boolean fsync) {
+        if (segmentSize < 4096) {
+            throw new IllegalArgumentException("Journal segment size must be at least 4096 bytes");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                recovered = files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                        .sorted()
+                        .toList();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open hit journal " + directory, e);
+        }
+        nextSegmentId = recovered.isEmpty() ? 1 : segmentId(recovered.get(recovered.size() - 1)) + 1;
+    }
+
+    // Возвращает сегмент, в который попал хит: его передают в commit после сохранения хита в БД
+    public synchronized Segment append(EndpointHit hit) {
+        byte[] body = encode(hit);
+        int size = RECORD_HEADER_SIZE + body.length;
+        if (size > segmentSize - HEADER_SIZE) {
+            throw new IllegalArgumentException("Hit record of " + size + " bytes does not fit a journal segment");
+        }
+        if (active == null || active.buffer.remaining() < size) {
+            roll();
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        MappedByteBuffer buffer = active.buffer;
+        int position = buffer.position();
+        // Длина пишется последней: пока её нет, читатель видит на этом месте конец записей
+        buffer.putInt(position + Integer.BYTES, (int) crc.getValue());
+        buffer.put(position + RECORD_HEADER_SIZE, body);
+        buffer.putInt(position, body.length);
+        buffer.position(position + size);
+
+        active.pending++;
+        appended += size;
+        return active;
+    }
+
+    // Групповой сброс на диск: один force покрывает все записи, дописанные к его началу
+    public void sync() {
+        if (!fsync) {
+            return;
+        }
+        long target;
+        synchronized (this) {
+            target = appended;
+        }
+        if (synced >= target) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (synced >= target) {
+                return;
+            }
+            Segment segment;
+            int end;
+            synchronized (this) {
+                target = appended;
+                segment = active;
+                end = segment.buffer.position();
+            }
+            // Заполненные сегменты сброшены при переключении; у текущего — только новые записи
+            if (end > segment.forced) {
+                segment.buffer.force(segment.forced, end - segment.forced);
+                segment.forced = end;
+            }
+            synced = target;
+        }
+    }
+
+    public synchronized void commit(Segment segment, int count) {
+        segment.pending -= count;
+        if (segment.pending > 0) {
+            return;
+        }
+        if (segment.sealed) {
+            delete(segment.path);
+        } else {
+            segment.buffer.putLong(CHECKPOINT_OFFSET, segment.buffer.position());
+        }
+    }
+
+    // Хиты прошлого запуска, не отмеченные как сохранённые
+    public List<EndpointHit> readAll() {
+        List<EndpointHit> hits = new ArrayList<>();
+        for (Path file : recovered) {
+            readSegment(file, hits);
+        }
+        return hits;
+    }
+
+    // Хиты прошлого запуска сохранены — их сегменты больше не нужны
+    public void releaseRecovered() {
+        recovered.forEach(HitJournal::delete);
+    }
+
+    // Полностью сохранённый текущий сегмент удаляется, иначе остаётся для повтора при следующем старте
+    @Override
+    public synchronized void close() {
+        if (active == null) {
+            return;
+        }
+        if (active.pending == 0) {
+            delete(active.path);
+        } else if (fsync) {
+            active.buffer.force();
+        }
+        active = null;
+    }
+
+    private void roll() {
+        if (active != null) {
+            active.sealed = true;
+            if (fsync) {
+                active.buffer.force();
+            }
+            if (active.pending == 0) {
+                delete(active.path);
+            }
+        }
+        Path path = directory.resolve(String.format("%020d%s", nextSegmentId++, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            buffer.putInt(0, MAGIC);
+            buffer.putLong(CHECKPOINT_OFFSET, HEADER_SIZE);
+            buffer.position(HEADER_SIZE);
+            active = new Segment(path, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create hit journal segment " + path, e);
+        }
+    }
+
+    private void readSegment(Path file, List<EndpointHit> hits) {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read hit journal segment " + file, e);
+        }
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            log.warn("Skipping hit journal segment {} without a valid header", file);
+            return;
+        }
+
+        long checkpoint = buffer.getLong(CHECKPOINT_OFFSET);
+        int position = checkpoint >= HEADER_SIZE && checkpoint <= buffer.limit() ? (int) checkpoint : HEADER_SIZE;
+        CRC32C crc = new CRC32C();
+        while (position + RECORD_HEADER_SIZE <= buffer.limit()) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                return;
+            }
+            if (length < 0 || position + RECORD_HEADER_SIZE + length > buffer.limit()) {
+                log.warn("Hit journal segment {} has a broken record at offset {}, rest of segment ignored",
+                        file, position);
+                return;
+            }
+            byte[] body = new byte[length];
+            buffer.get(position + RECORD_HEADER_SIZE, body);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES)) {
+                log.warn("Hit journal segment {} has a record with a bad checksum at offset {}, rest of segment "
+                        + "ignored", file, position);
+                return;
+            }
+            hits.add(decode(body));
+            position += RECORD_HEADER_SIZE + length;
+        }
+    }
+
+    private static long segmentId(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Cannot delete hit journal segment {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static byte[] encode(EndpointHit hit) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeUTF(hit.getApp());
+            out.writeUTF(hit.getUri());
+            out.writeUTF(hit.getIp());
+            out.writeLong(hit.getTimestamp().toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(hit.getTimestamp().getNano());
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static EndpointHit decode(byte[] body) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+            return EndpointHit.builder()
+                    .app(in.readUTF())
+                    .uri(in.readUTF())
+                    .ip(in.readUTF())
+                    .timestamp(LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC))
+                    .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
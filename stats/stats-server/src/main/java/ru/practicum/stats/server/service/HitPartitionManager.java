@@ -0,0 +1,298 @@
+package ru.practicum.stats.server.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.DatabaseMetaData;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Секционирование endpoint_hit по диапазонам timestamp (только PostgreSQL): запросы статистики с фильтром
+// по времени читают лишь секции своего диапазона, а старые данные уходят целыми секциями без DELETE.
+// При старте обычная таблица, созданная Hibernate, превращается в секционированную: накопленные хиты
+// подключаются без копирования как секция endpoint_hit_legacy (от MINVALUE до конца своего периода).
+// Фоновый поток заранее создаёт секции на precreate периодов вперёд и удаляет (DROP) или отключает (DETACH)
+// секции, целиком вышедшие за retention периодов. Хиты вне готовых секций попадают в endpoint_hit_default.
+// Агрегаты hit_rollup при этом сохраняются: неуникальная и приближённая статистика за удалённые периоды
+// остаётся, точный COUNT(DISTINCT ip) считается только по хранимым хитам.
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class HitPartitionManager {
+
+    private static final String TABLE = "endpoint_hit";
+    private static final String LEGACY_PARTITION = "endpoint_hit_legacy";
+    private static final String DEFAULT_PARTITION = "endpoint_hit_default";
+
+    private static final Pattern RANGE = Pattern.compile("FROM \\((.+)\\) TO \\((.+)\\)");
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${stats.partitioning.enabled:true}")
+    private boolean enabled;
+
+    @Value("${stats.partitioning.interval:MONTH}")
+    private Interval interval;
+
+    @Value("${stats.partitioning.precreate:3}")
+    private int precreate;
+
+    @Value("${stats.partitioning.retention:0}")
+    private int retention;
+
+    @Value("${stats.partitioning.retention-mode:DROP}")
+    private RetentionMode retentionMode;
+
+    @Value("${stats.partitioning.maintenance-interval-ms:3600000}")
+    private long maintenanceIntervalMs;
+
+    public enum Interval {
+        DAY(ChronoUnit.DAYS, "yyyyMMdd"),
+        MONTH(ChronoUnit.MONTHS, "yyyyMM");
+
+        private final ChronoUnit unit;
+        private final DateTimeFormatter suffix;
+
+        Interval(ChronoUnit unit, String suffix) {
+            this.unit = unit;
+            this.suffix = DateTimeFormatter.ofPattern(suffix);
+        }
+
+        public LocalDateTime floor(LocalDateTime timestamp) {
+            LocalDateTime day = timestamp.truncatedTo(ChronoUnit.DAYS);
+            return this == MONTH ? day.withDayOfMonth(1) : day;
+        }
+
+        public LocalDateTime plus(LocalDateTime start, long periods) {
+            return start.plus(periods, unit);
+        }
+
+        public String partitionName(LocalDateTime start) {
+            return TABLE + "_p" + suffix.format(start);
+        }
+    }
+
+    public enum RetentionMode {
+        // секция удаляется вместе с данными
+        DROP,
+        // секция отключается и остаётся отдельной таблицей — её можно выгрузить в архив и удалить вручную
+        DETACH
+    }
+
+    // Секция с границами [from, to); null — MINVALUE/MAXVALUE, у секции по умолчанию обе границы null
+    public record Partition(String name, LocalDateTime from, LocalDateTime to, boolean isDefault) {
+    }
+
+    private ScheduledExecutorService scheduler;
+    private boolean active;
+
+    @PostConstruct
+    void start() {
+        if (enabled && isPostgres()) {
+            partitionTable();
+            maintain();
+            active = true;
+
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "hit-partition-maintenance");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::maintainSafely,
+                    maintenanceIntervalMs, maintenanceIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    // Создание секций на precreate периодов вперёд и применение политики хранения
+    public synchronized void maintain() {
+        LocalDateTime current = interval.floor(LocalDateTime.now());
+        // Продолжаем от последней секции; пропущенный за время простоя прошлый период тоже закрывается
+        LocalDateTime previous = interval.plus(current, -1);
+        LocalDateTime from = partitions().stream()
+                .filter(p -> !p.isDefault() && p.to() != null && p.to().isAfter(previous))
+                .map(Partition::to)
+                .max(LocalDateTime::compareTo)
+                .orElse(previous);
+        for (LocalDateTime start = from; !start.isAfter(interval.plus(current, precreate));
+             start = interval.plus(start, 1)) {
+            createPartition(start);
+        }
+
+        if (retention > 0) {
+            LocalDateTime cutoff = interval.plus(current, -retention);
+            for (Partition partition : partitions()) {
+                if (!partition.isDefault() && partition.to() != null && !partition.to().isAfter(cutoff)) {
+                    removePartition(partition);
+                }
+            }
+        }
+    }
+
+    // Имя индекса секции для индекса родителя: idx_endpoint_hit_uri_timestamp_cover в секции
+    // endpoint_hit_p202501 — endpoint_hit_p202501_uri_timestamp_cover
+    public static String partitionIndexName(String partition, String parentIndex) {
+        return partition + parentIndex.substring(("idx_" + TABLE).length());
+    }
+
+    public List<Partition> partitions() {
+        return jdbcTemplate.query("""
+                        SELECT c.relname, pg_get_expr(c.relpartbound, c.oid)
+                        FROM pg_inherits i
+                        JOIN pg_class c ON c.oid = i.inhrelid
+                        WHERE i.inhparent = 'endpoint_hit'::regclass
+                        ORDER BY c.relname
+                        """,
+                (rs, rowNum) -> toPartition(rs.getString(1), rs.getString(2)));
+    }
+
+    private void maintainSafely() {
+        try {
+            maintain();
+        } catch (Exception e) {
+            log.warn("Endpoint hit partition maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    // Переименованная таблица подключается секцией целиком: хиты не копируются, блокировка держится только
+    // на время проверки границ. Пустая таблица просто удаляется
+    private void partitionTable() {
+        String kind = jdbcTemplate.queryForObject(
+                "SELECT relkind::text FROM pg_class WHERE oid = 'endpoint_hit'::regclass", String.class);
+        if ("p".equals(kind)) {
+            return;
+        }
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.execute("LOCK TABLE endpoint_hit IN ACCESS EXCLUSIVE MODE");
+            jdbcTemplate.execute("ALTER TABLE endpoint_hit RENAME TO " + LEGACY_PARTITION);
+            // Индексы старой таблицы получают имена индексов секции — HitIndexInitializer подключит их
+            // к индексам родителя без перестроения; прежний индекс по timestamp больше не нужен
+            jdbcTemplate.execute("DROP INDEX IF EXISTS idx_endpoint_hit_timestamp");
+            jdbcTemplate.queryForList("""
+                            SELECT indexname FROM pg_indexes
+                            WHERE schemaname = current_schema() AND tablename = ? AND indexname LIKE 'idx\\_endpoint\\_hit\\_%'
+                            """, String.class, LEGACY_PARTITION)
+                    .forEach(index -> jdbcTemplate.execute("ALTER INDEX " + index + " RENAME TO "
+                            + partitionIndexName(LEGACY_PARTITION, index)));
+            jdbcTemplate.execute("""
+                    CREATE TABLE endpoint_hit (
+                        LIKE endpoint_hit_legacy INCLUDING DEFAULTS INCLUDING IDENTITY,
+                        PRIMARY KEY (id, timestamp)
+                    ) PARTITION BY RANGE (timestamp)
+                    """);
+            jdbcTemplate.execute("CREATE TABLE " + DEFAULT_PARTITION + " PARTITION OF endpoint_hit DEFAULT");
+
+            // IDENTITY копируется с новой последовательностью, BIGSERIAL — со ссылкой на старую:
+            // её нужно отвязать от старой таблицы, иначе удаление секции потянет за собой и её
+            String sequence = jdbcTemplate.queryForObject(
+                    "SELECT pg_get_serial_sequence('endpoint_hit', 'id')", String.class);
+            String legacySequence = jdbcTemplate.queryForObject(
+                    "SELECT pg_get_serial_sequence('" + LEGACY_PARTITION + "', 'id')", String.class);
+            if (sequence == null && legacySequence != null) {
+                jdbcTemplate.execute("ALTER SEQUENCE " + legacySequence + " OWNED BY endpoint_hit.id");
+            }
+
+            Timestamp last = jdbcTemplate.queryForObject(
+                    "SELECT MAX(timestamp) FROM " + LEGACY_PARTITION, Timestamp.class);
+            if (last == null) {
+                jdbcTemplate.execute("DROP TABLE " + LEGACY_PARTITION);
+                log.info("Endpoint hit table is empty, recreated it as a partitioned table");
+                return;
+            }
+
+            if (sequence != null) {
+                jdbcTemplate.queryForObject("SELECT setval(?::regclass, (SELECT MAX(id) FROM "
+                        + LEGACY_PARTITION + "))", Long.class, sequence);
+            }
+            jdbcTemplate.execute("ALTER TABLE " + LEGACY_PARTITION + " ALTER COLUMN timestamp SET NOT NULL");
+            jdbcTemplate.execute("ALTER TABLE " + LEGACY_PARTITION
+                    + " ADD CONSTRAINT " + LEGACY_PARTITION + "_id_timestamp_key UNIQUE (id, timestamp)");
+            LocalDateTime to = interval.plus(interval.floor(last.toLocalDateTime()), 1);
+            jdbcTemplate.execute("ALTER TABLE endpoint_hit ATTACH PARTITION " + LEGACY_PARTITION
+                    + " FOR VALUES FROM (MINVALUE) TO ('" + BOUND_FORMAT.format(to) + "')");
+            log.info("Endpoint hit table converted to a partitioned table, existing hits up to {} kept in {}",
+                    to, LEGACY_PARTITION);
+        });
+    }
+
+    // Хиты нового диапазона, успевшие попасть в секцию по умолчанию, PostgreSQL не даст оставить там —
+    // такая секция не создаётся до ручного переноса
+    private void createPartition(LocalDateTime start) {
+        String name = interval.partitionName(start);
+        LocalDateTime end = interval.plus(start, 1);
+        try {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF endpoint_hit"
+                    + " FOR VALUES FROM ('" + BOUND_FORMAT.format(start) + "') TO ('" + BOUND_FORMAT.format(end) + "')");
+            log.debug("Endpoint hit partition {} is ready for [{}, {})", name, start, end);
+        } catch (Exception e) {
+            log.warn("Cannot create endpoint hit partition {}: {}", name, e.getMessage());
+        }
+    }
+
+    private void removePartition(Partition partition) {
+        if (retentionMode == RetentionMode.DETACH) {
+            jdbcTemplate.execute("ALTER TABLE endpoint_hit DETACH PARTITION " + partition.name());
+        } else {
+            jdbcTemplate.execute("DROP TABLE " + partition.name());
+        }
+        log.info("Endpoint hit partition {} up to {} removed by retention policy ({})",
+                partition.name(), partition.to(), retentionMode);
+    }
+
+    private static Partition toPartition(String name, String bound) {
+        Matcher matcher = RANGE.matcher(bound);
+        if (!matcher.find()) {
+            return new Partition(name, null, null, true);
+        }
+        return new Partition(name, parseBound(matcher.group(1)), parseBound(matcher.group(2)), false);
+    }
+
+    private static LocalDateTime parseBound(String value) {
+        if (!value.startsWith("'")) {
+            return null;
+        }
+        return LocalDateTime.parse(value.substring(1, value.length() - 1), BOUND_FORMAT);
+    }
+
+    private boolean isPostgres() {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(),
+                    DatabaseMetaData::getDatabaseProductName);
+            return "PostgreSQL".equalsIgnoreCase(product);
+        } catch (MetaDataAccessException e) {
+            return false;
+        }
+    }
+}
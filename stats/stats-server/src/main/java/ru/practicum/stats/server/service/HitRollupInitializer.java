@@ -0,0 +1,35 @@
+package ru.practicum.stats.server.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.server.model.RollupGranularity;
+import ru.practicum.stats.server.repository.EndpointHitRepository;
+import ru.practicum.stats.server.repository.HitRollupRepository;
+
+// Первичное заполнение агрегатов и скетчей для хитов, накопленных до их появления
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HitRollupInitializer implements ApplicationRunner {
+
+    private final HitRollupService rollupService;
+    private final HitRollupRepository rollupRepository;
+    private final EndpointHitRepository hitRepository;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!rollupService.isEnabled() || hitRepository.count() == 0) {
+            return;
+        }
+        // Пустые агрегаты или часовые бакеты без скетчей (созданные до их появления)
+        if (rollupRepository.count() > 0
+                && !rollupRepository.existsByGranularityAndIpSketchIsNull(RollupGranularity.HOUR)) {
+            return;
+        }
+        log.info("Hit rollups are missing or incomplete, building them from existing hits");
+        rollupService.rebuild();
+    }
+}
@@ -0,0 +1,29 @@
+package ru.practicum.stats.server.service;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.server.model.EndpointHit;
+
+import java.util.List;
+
+// Поддерживает агрегаты при сохранении/удалении хитов через JPA (пакетная вставка идёт мимо — её учитывает сервис)
+@Component
+@RequiredArgsConstructor
+public class HitRollupListener {
+
+    // Лениво: слушатель создаётся вместе с EntityManagerFactory, раньше репозиториев
+    private final ObjectProvider<HitRollupService> rollupService;
+
+    @PostPersist
+    public void onPersist(EndpointHit hit) {
+        rollupService.getObject().record(List.of(hit));
+    }
+
+    @PostRemove
+    public void onRemove(EndpointHit hit) {
+        rollupService.getObject().unrecord(List.of(hit));
+    }
+}
@@ -0,0 +1,141 @@
+package ru.practicum.stats.server.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.HyperLogLog;
+import ru.practicum.stats.server.model.RollupGranularity;
+import ru.practicum.stats.server.model.RollupKey;
+import ru.practicum.stats.server.repository.HitRollupRepository;
+import ru.practicum.stats.server.repository.StatsRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class HitRollupService {
+
+    private final HitRollupRepository rollupRepository;
+    private final StatsRepository statsRepository;
+
+    @Value("${stats.rollup.enabled:true}")
+    private boolean enabled;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void record(Collection<EndpointHit> hits) {
+        apply(hits, 1);
+    }
+
+    public void unrecord(Collection<EndpointHit> hits) {
+        apply(hits, -1);
+    }
+
+    public void rebuild() {
+        rollupRepository.rebuildFromHits();
+        log.info("Hit rollups rebuilt from raw hits");
+    }
+
+    // Результат совпадает с StatsRepository.findStats: MIN(app) по uri, сортировка по хитам
+    @Transactional(readOnly = true)
+    public List<ViewStatsDto> findStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        Map<String, ViewStatsDto> totals = new HashMap<>();
+
+        for (RollupQueryPlanner.Segment segment : RollupQueryPlanner.plan(start, end)) {
+            List<ViewStatsDto> part;
+            if (segment.granularity() != null) {
+                part = rollupRepository.sumHits(segment.granularity(), segment.from(), segment.to(), uris);
+            } else if (segment.endInclusive()) {
+                part = statsRepository.findStats(segment.from(), segment.to(), uris);
+            } else {
+                part = statsRepository.findStatsBefore(segment.from(), segment.to(), uris);
+            }
+            part.forEach(stat -> totals.merge(stat.getUri(), stat, HitRollupService::combine));
+        }
+
+        return totals.values().stream()
+                .sorted(Comparator.comparing(ViewStatsDto::getHits).reversed())
+                .toList();
+    }
+
+    // Приближённое число уникальных IP: скетчи часовых/дневных бакетов плюс сырые края диапазона
+    @Transactional(readOnly = true)
+    public List<ViewStatsDto> findApproximateUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        List<RollupQueryPlanner.Segment> plan = RollupQueryPlanner.plan(start, end, RollupGranularity.HOUR);
+        if (plan.stream().allMatch(segment -> segment.granularity() == null)) {
+            // Диапазон короче часа — точный подсчёт здесь не дороже
+            return statsRepository.findStatsUnique(start, end, uris);
+        }
+
+        Map<AppUri, HyperLogLog> sketches = new HashMap<>();
+        for (RollupQueryPlanner.Segment segment : plan) {
+            if (segment.granularity() != null) {
+                rollupRepository.findSketches(segment.granularity(), segment.from(), segment.to(), uris)
+                        .forEach(view -> sketches
+                                .computeIfAbsent(new AppUri(view.getApp(), view.getUri()), k -> new HyperLogLog())
+                                .merge(view.getIpSketch()));
+            } else {
+                List<StatsRepository.VisitorView> visitors = segment.endInclusive()
+                        ? statsRepository.findVisitors(segment.from(), segment.to(), uris)
+                        : statsRepository.findVisitorsBefore(segment.from(), segment.to(), uris);
+                visitors.forEach(view -> sketches
+                        .computeIfAbsent(new AppUri(view.getApp(), view.getUri()), k -> new HyperLogLog())
+                        .add(view.getIp()));
+            }
+        }
+
+        return sketches.entrySet().stream()
+                .map(entry -> new ViewStatsDto(entry.getKey().app(), entry.getKey().uri(), entry.getValue().estimate()))
+                .filter(stat -> stat.getHits() > 0)
+                .sorted(Comparator.comparing(ViewStatsDto::getHits).reversed())
+                .toList();
+    }
+
+    private void apply(Collection<EndpointHit> hits, long sign) {
+        if (!enabled || hits.isEmpty()) {
+            return;
+        }
+
+        Map<RollupKey, Long> deltas = new LinkedHashMap<>();
+        Map<RollupKey, HyperLogLog> sketches = new HashMap<>();
+        for (EndpointHit hit : hits) {
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                RollupKey key = new RollupKey(granularity, hit.getApp(), hit.getUri(),
+                        granularity.floor(hit.getTimestamp()));
+                deltas.merge(key, sign, Long::sum);
+                if (granularity.isSketched()) {
+                    sketches.computeIfAbsent(key, k -> new HyperLogLog()).add(hit.getIp());
+                }
+            }
+        }
+        rollupRepository.increment(deltas);
+
+        if (sign > 0) {
+            rollupRepository.mergeSketches(sketches);
+        } else {
+            rollupRepository.rebuildSketches(sketches.keySet());
+        }
+    }
+
+    private record AppUri(String app, String uri) {
+    }
+
+    private static ViewStatsDto combine(ViewStatsDto left, ViewStatsDto right) {
+        String app = left.getApp().compareTo(right.getApp()) <= 0 ? left.getApp() : right.getApp();
+        return new ViewStatsDto(app, left.getUri(), left.getHits() + right.getHits());
+    }
+}
@@ -0,0 +1,71 @@
+package ru.practicum.stats.server.service;
+
+import lombok.experimental.UtilityClass;
+import ru.practicum.stats.server.model.RollupGranularity;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Разбивает закрытый диапазон [start, end] на сырые края и максимально крупные бакеты внутри
+@UtilityClass
+public class RollupQueryPlanner {
+
+    // granularity == null — сырые хиты; endInclusive только у правого сырого края
+    public record Segment(RollupGranularity granularity,
+                          LocalDateTime from,
+                          LocalDateTime to,
+                          boolean endInclusive) {
+    }
+
+    public List<Segment> plan(LocalDateTime start, LocalDateTime end) {
+        return plan(start, end, RollupGranularity.values()[0]);
+    }
+
+    // finest — самые мелкие бакеты, которые можно использовать; всё, что мельче, читается из сырых хитов
+    public List<Segment> plan(LocalDateTime start, LocalDateTime end, RollupGranularity finest) {
+        List<Segment> segments = new ArrayList<>();
+        if (end.isBefore(start)) {
+            return segments;
+        }
+
+        LocalDateTime alignedStart = finest.ceil(start);
+        LocalDateTime alignedEnd = finest.floor(end);
+
+        if (!alignedStart.isBefore(alignedEnd)) {
+            segments.add(new Segment(null, start, end, true));
+            return segments;
+        }
+
+        if (start.isBefore(alignedStart)) {
+            segments.add(new Segment(null, start, alignedStart, false));
+        }
+        fill(segments, finest, alignedStart, alignedEnd);
+        segments.add(new Segment(null, alignedEnd, end, true));
+        return segments;
+    }
+
+    // [from, to) выровнен по granularity: середину отдаём более крупным бакетам, хвосты — текущим
+    private void fill(List<Segment> segments, RollupGranularity granularity, LocalDateTime from, LocalDateTime to) {
+        RollupGranularity coarser = granularity.coarser();
+        if (coarser == null) {
+            segments.add(new Segment(granularity, from, to, false));
+            return;
+        }
+
+        LocalDateTime coarseFrom = coarser.ceil(from);
+        LocalDateTime coarseTo = coarser.floor(to);
+        if (!coarseFrom.isBefore(coarseTo)) {
+            segments.add(new Segment(granularity, from, to, false));
+            return;
+        }
+
+        if (from.isBefore(coarseFrom)) {
+            segments.add(new Segment(granularity, from, coarseFrom, false));
+        }
+        fill(segments, coarser, coarseFrom, coarseTo);
+        if (coarseTo.isBefore(to)) {
+            segments.add(new Segment(granularity, coarseTo, to, false));
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package ru.practicum.stats.server.service;
 
 import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.HitBatchResultDto;
+import ru.practicum.stats.dto.MultiHitDto;
 import ru.practicum.stats.dto.ViewStatsDto;
 
 import java.time.LocalDateTime;
@@ -10,8 +12,25 @@ public interface StatsService {
 
     EndpointHitDto save(EndpointHitDto dto);
 
+    // Включена ли отложенная запись одиночных хитов
+    boolean isWriteBehind();
+
+    // Постановка хита в очередь отложенной записи; при переполнении — HitBufferFullException
+    EndpointHitDto enqueue(EndpointHitDto dto);
+
+    HitBatchResultDto saveAll(List<EndpointHitDto> hits);
+
+    HitBatchResultDto saveMulti(MultiHitDto multiHit);
+
     List<ViewStatsDto> getStats(LocalDateTime start,
                                 LocalDateTime end,
                                 List<String> uris,
                                 Boolean unique);
+
+    // approximate == null — режим подсчёта уникальных берётся из конфигурации сервера
+    List<ViewStatsDto> getStats(LocalDateTime start,
+                                LocalDateTime end,
+                                List<String> uris,
+                                Boolean unique,
+                                Boolean approximate);
 }
@@ -1,9 +1,20 @@
 package ru.practicum.stats.server.service;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.dto.HitBatchResultDto;
+import ru.practicum.stats.dto.HitItemResultDto;
+import ru.practicum.stats.dto.MultiHitDto;
+import ru.practicum.stats.server.exception.BatchSizeExceededException;
 import ru.practicum.stats.server.mapper.EndpointHitMapper;
+import ru.practicum.stats.server.repository.HitDictionary;
 import ru.practicum.stats.server.repository.StatsRepository;
 import ru.practicum.stats.server.repository.EndpointHitRepository;
 import ru.practicum.stats.dto.EndpointHitDto;
@@ -11,8 +22,13 @@ import ru.practicum.stats.dto.ViewStatsDto;
 import ru.practicum.stats.server.model.EndpointHit;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 @Transactional
@@ -21,23 +37,126 @@ public class StatsServiceImpl implements StatsService {
     private final EndpointHitRepository repository;
     private final StatsRepository statsRepository;
     private final EndpointHitMapper mapper;
+    private final Validator validator;
+    private final HitRollupService rollupService;
+    private final HitIngestionPipeline ingestionPipeline;
+    private final HitDictionary dictionary;
+    private final TransactionTemplate transactionTemplate;
 
+    @Value("${stats.hits.max-batch-size:10000}")
+    private int maxBatchSize;
+
+    @Value("${stats.unique.approximate:false}")
+    private boolean approximateByDefault;
+
+    // Ключи словарей разрешаются до транзакции хита: новое значение словарь добавляет в собственной транзакции,
+    // и внутри чужой она заняла бы второе соединение пула — при пуле, занятом такими же сохранениями, приём встаёт
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public EndpointHitDto save(EndpointHitDto dto) {
         EndpointHit entity = mapper.toEntity(dto);
-        EndpointHit saved = repository.save(entity);
+        dictionary.resolveKeys(entity);
+        EndpointHit saved = transactionTemplate.execute(status -> repository.save(entity));
         return mapper.toDto(saved);
     }
 
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean isWriteBehind() {
+        return ingestionPipeline.isEnabled();
+    }
+
+    // Транзакция не нужна: хит пишет поток-писатель конвейера
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public EndpointHitDto enqueue(EndpointHitDto dto) {
+        EndpointHit entity = mapper.toEntity(dto);
+        ingestionPipeline.submit(entity);
+        return mapper.toDto(entity);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public HitBatchResultDto saveAll(List<EndpointHitDto> hits) {
+        if (hits.size() > maxBatchSize) {
+            throw new BatchSizeExceededException(
+                    "Batch contains " + hits.size() + " hits, maximum is " + maxBatchSize);
+        }
+
+        List<EndpointHit> valid = new ArrayList<>(hits.size());
+        List<HitItemResultDto> items = new ArrayList<>(hits.size());
+
+        // Один проход: валидируем каждый элемент, валидные копим для пакетной вставки
+        for (int i = 0; i < hits.size(); i++) {
+            Map<String, String> errors = validate(hits.get(i));
+            if (errors.isEmpty()) {
+                valid.add(mapper.toEntity(hits.get(i)));
+            }
+            items.add(HitItemResultDto.builder()
+                    .index(i)
+                    .accepted(errors.isEmpty())
+                    .errors(errors)
+                    .build());
+        }
+
+        dictionary.resolveAllKeys(valid);
+        transactionTemplate.executeWithoutResult(status -> {
+            repository.batchInsert(valid);
+            rollupService.record(valid);
+        });
+        log.info("Hit batch processed: accepted={}, rejected={}", valid.size(), hits.size() - valid.size());
+
+        return HitBatchResultDto.builder()
+                .accepted(valid.size())
+                .rejected(hits.size() - valid.size())
+                .items(items)
+                .build();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public HitBatchResultDto saveMulti(MultiHitDto multiHit) {
+        return saveAll(mapper.toDtos(multiHit));
+    }
+
+    private Map<String, String> validate(EndpointHitDto hit) {
+        Map<String, String> errors = new HashMap<>();
+
+        if (hit == null) {
+            errors.put("body", "Invalid hit body");
+            return errors;
+        }
+
+        Set<ConstraintViolation<EndpointHitDto>> violations = validator.validate(hit);
+        violations.forEach(v -> errors.putIfAbsent(v.getPropertyPath().toString(), v.getMessage()));
+        return errors;
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<ViewStatsDto> getStats(LocalDateTime start,
                                        LocalDateTime end,
                                        List<String> uris,
                                        Boolean unique) {
+        return getStats(start, end, uris, unique, null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ViewStatsDto> getStats(LocalDateTime start,
+                                       LocalDateTime end,
+                                       List<String> uris,
+                                       Boolean unique,
+                                       Boolean approximate) {
+
+        boolean useSketches = approximate != null ? approximate : approximateByDefault;
 
-        if (unique != null && unique) {
+        if (unique != null && unique && useSketches && rollupService.isEnabled()) {
+            return rollupService.findApproximateUniqueStats(start, end, uris);
+        } else if (unique != null && unique) {
             return statsRepository.findStatsUnique(start, end, uris);
+        } else if (rollupService.isEnabled()) {
+            return rollupService.findStats(start, end, uris);
         } else {
             return statsRepository.findStats(start, end, uris);
         }
@@ -2,23 +2,13 @@ package ru.practicum.stats.server.validation;
 
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
+import ru.practicum.stats.dto.codec.IpAddresses;
 
-import java.net.InetAddress;
-
+// Только литерал IPv4 или IPv6: хит хранит адрес, имя хоста туда не сохранить (и не разрешается через DNS)
 public class ValidIpValidator implements ConstraintValidator<ValidIp, String> {
 
     @Override
     public boolean isValid(String value, ConstraintValidatorContext context) {
-
-        if (value == null || value.isBlank()) {
-            return false;
-        }
-
-        try {
-            InetAddress.getByName(value);
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
+        return IpAddresses.parse(value) != null;
     }
 }
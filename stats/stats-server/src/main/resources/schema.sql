@@ -1,7 +1,35 @@
-CREATE TABLE IF NOT EXISTS endpoint_hit (
-    id BIGSERIAL PRIMARY KEY,
-    app VARCHAR(50) NOT NULL,
-    uri VARCHAR(200) NOT NULL,
-    ip VARCHAR(50) NOT NULL,
-    created TIMESTAMP NOT NULL
+-- Справочная схема endpoint_hit на PostgreSQL. Таблицы создаёт Hibernate, секционирование поддерживает
+-- HitPartitionManager, индексы — HitIndexInitializer, перенос прежних столбцов app и uri в словари —
+-- HitDictionary, перевод ip из строки в inet — HitIpMigration; файл отражает итоговое состояние.
+CREATE TABLE IF NOT EXISTS hit_app (
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    CONSTRAINT uq_hit_app_name UNIQUE (name)
+);
+
+CREATE TABLE IF NOT EXISTS hit_uri (
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    CONSTRAINT uq_hit_uri_name UNIQUE (name)
 );
+
+-- app_id и uri_id ссылаются на словари без внешних ключей: значения из словарей не удаляются.
+-- ip — адрес без маски, IPv4-mapped адреса хранятся как IPv4 (см. IpAddressConverter)
+CREATE TABLE IF NOT EXISTS endpoint_hit (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    app_id INTEGER NOT NULL,
+    ip INET NOT NULL,
+    timestamp TIMESTAMP(6) NOT NULL,
+    uri_id INTEGER NOT NULL,
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+-- Секции по месяцам (stats.partitioning.interval=MONTH) создаются заранее, например:
+-- CREATE TABLE endpoint_hit_p202501 PARTITION OF endpoint_hit
+--     FOR VALUES FROM ('2025-01-01 00:00:00') TO ('2025-02-01 00:00:00');
+CREATE TABLE IF NOT EXISTS endpoint_hit_default PARTITION OF endpoint_hit DEFAULT;
+
+-- Статистика без фильтра по uri: диапазон времени, покрывающий
+CREATE INDEX IF NOT EXISTS idx_endpoint_hit_timestamp_cover ON endpoint_hit (timestamp) INCLUDE (uri_id, app_id, ip);
+-- Статистика по списку uri, в том числе уникальная: покрывающий
+CREATE INDEX IF NOT EXISTS idx_endpoint_hit_uri_timestamp_cover ON endpoint_hit (uri_id, timestamp) INCLUDE (app_id, ip);
@@ -0,0 +1,154 @@
+package ru.practicum.stats.server.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.codec.HitBinaryCodec;
+import ru.practicum.stats.dto.codec.HitFrameException;
+import ru.practicum.stats.server.StatsServerApplication;
+import ru.practicum.stats.server.repository.EndpointHitRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = StatsServerApplication.class)
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class StatsBinaryIngestionTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private EndpointHitRepository repository;
+
+    private final LocalDateTime fixedNow = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @BeforeEach
+    void setup() {
+        repository.deleteAll();
+    }
+
+    private EndpointHitDto hit(String app, String uri, String ip, LocalDateTime timestamp) {
+        return EndpointHitDto.builder().app(app).uri(uri).ip(ip).timestamp(timestamp).build();
+    }
+
+    @Test
+    void codec_roundTripsHitsWithoutLoss() throws Exception {
+        List<EndpointHitDto> hits = List.of(
+                hit("ewm-main-service", "/events/1", "192.168.0.1", fixedNow),
+                hit("ewm-main-service", "/events/1", "::1", fixedNow.minusSeconds(30)),
+                hit("ewm-main-service", "/events/2", "2001:db8::ff00:42:8329", fixedNow.plusDays(400)),
+                // Неканоническая запись, адрес с зоной и не-адрес с двоеточием передаются строкой как есть
+                hit("ewm-admin", "/events/2", "2001:0db8:0000:0000:0000:ff00:0042:8329", fixedNow),
+                hit("ewm-admin", "/events/3", "fe80::1%eth0", fixedNow),
+                hit("ewm-admin", "/events/3", "010.0.0.1", fixedNow),
+                hit("ewm-admin", "/events/3", "::ffff:10.0.0.1", fixedNow),
+                hit("ewm-admin", "/events/3", "abc:1", fixedNow),
+                hit(null, "/events/ünicode", null, null));
+
+        List<EndpointHitDto> decoded = HitBinaryCodec.decode(HitBinaryCodec.encode(hits));
+
+        assertThat(decoded)
+                .extracting(EndpointHitDto::getApp, EndpointHitDto::getUri, EndpointHitDto::getIp,
+                        EndpointHitDto::getTimestamp)
+                .containsExactlyElementsOf(hits.stream()
+                        .map(h -> tuple(h.getApp(), h.getUri(), h.getIp(), h.getTimestamp()))
+                        .toList());
+    }
+
+    @Test
+    void codec_isSeveralTimesSmallerThanJson() throws Exception {
+        List<EndpointHitDto> batch = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            batch.add(hit("ewm-main-service", "/events/" + (i % 50), "10.0." + (i % 7) + "." + i % 250,
+                    fixedNow.plusSeconds(i)));
+        }
+
+        int binary = HitBinaryCodec.encode(batch).length;
+        int json = mapper.writeValueAsBytes(batch).length;
+
+        assertThat(binary * 5).isLessThan(json);
+    }
+
+    @Test
+    void codec_rejectsMalformedFrames() {
+        byte[] frame = HitBinaryCodec.encode(List.of(hit("ewm", "/events/1", "10.0.0.1", fixedNow)));
+
+        assertThatThrownBy(() -> HitBinaryCodec.decode(Arrays.copyOf(frame, frame.length - 1)))
+                .isInstanceOf(HitFrameException.class);
+        assertThatThrownBy(() -> HitBinaryCodec.decode(Arrays.copyOf(frame, frame.length + 1)))
+                .isInstanceOf(HitFrameException.class);
+        assertThatThrownBy(() -> HitBinaryCodec.decode(new byte[]{'{', '}'}))
+                .isInstanceOf(HitFrameException.class);
+    }
+
+    @Test
+    void binaryHit_isSaved() throws Exception {
+        mockMvc.perform(post("/hit")
+                        .contentType(HitBinaryCodec.MEDIA_TYPE)
+                        .content(HitBinaryCodec.encode(List.of(hit("ewm", "/events/1", "2001:db8::1", fixedNow)))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.ip").value("2001:db8::1"))
+                .andExpect(jsonPath("$.timestamp").value("2025-01-01 12:00:00"));
+
+        assertThat(repository.findAll()).singleElement()
+                .satisfies(saved -> assertThat(saved.getTimestamp()).isEqualTo(fixedNow));
+    }
+
+    @Test
+    void binaryHit_isValidatedLikeJson() throws Exception {
+        mockMvc.perform(post("/hit")
+                        .contentType(HitBinaryCodec.MEDIA_TYPE)
+                        .content(HitBinaryCodec.encode(List.of(hit("", "/events/1", "bad-ip", fixedNow)))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors.app").value("App cannot be blank"))
+                .andExpect(jsonPath("$.errors.ip").value("Invalid IP address"));
+
+        mockMvc.perform(post("/hit")
+                        .contentType(HitBinaryCodec.MEDIA_TYPE)
+                        .content(new byte[]{1, 2, 3}))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors.body").exists());
+
+        assertThat(repository.count()).isZero();
+    }
+
+    @Test
+    void binaryBatch_rejectsInvalidItemsOnly() throws Exception {
+        List<EndpointHitDto> batch = List.of(
+                hit("ewm", "/events/1", "127.0.0.1", fixedNow),
+                hit("ewm", "/events/2", "bad-ip", fixedNow),
+                hit("ewm", "/events/1", "::1", fixedNow),
+                hit("ewm", "/events/3", "10.0.0.1", null));
+
+        mockMvc.perform(post("/hits")
+                        .contentType(HitBinaryCodec.MEDIA_TYPE)
+                        .content(HitBinaryCodec.encode(batch)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.rejected").value(2))
+                .andExpect(jsonPath("$.items[1].errors.ip").value("Invalid IP address"))
+                .andExpect(jsonPath("$.items[3].errors.timestamp").value("Timestamp cannot be null"));
+
+        assertThat(repository.count()).isEqualTo(2);
+    }
+}
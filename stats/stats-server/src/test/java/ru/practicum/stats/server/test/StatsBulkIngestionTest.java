@@ -0,0 +1,191 @@
+package ru.practicum.stats.server.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.MultiHitDto;
+import ru.practicum.stats.server.StatsServerApplication;
+import ru.practicum.stats.server.controller.StatsController;
+import ru.practicum.stats.server.repository.EndpointHitRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Slf4j
+@SpringBootTest(classes = StatsServerApplication.class, properties = "stats.hits.max-batch-size=2000")
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class StatsBulkIngestionTest {
+
+    private static final int THROUGHPUT_HITS = 500;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private EndpointHitRepository repository;
+
+    private final LocalDateTime fixedNow = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @BeforeEach
+    void setup() {
+        repository.deleteAll();
+    }
+
+    private EndpointHitDto hit(String app, String uri, String ip) {
+        return EndpointHitDto.builder()
+                .app(app)
+                .uri(uri)
+                .ip(ip)
+                .timestamp(fixedNow)
+                .build();
+    }
+
+    @Test
+    void saveAll_shouldPersistValidHitsAndReportRejectedOnes() throws Exception {
+        List<EndpointHitDto> batch = List.of(
+                hit("ewm", "/events/1", "127.0.0.1"),
+                hit("", "/events/2", "127.0.0.1"),
+                hit("ewm", "/events/3", "bad-ip"),
+                hit("ewm", "/events/4", "::1")
+        );
+
+        mockMvc.perform(post("/hits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(batch)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.rejected").value(2))
+                .andExpect(jsonPath("$.items[0].accepted").value(true))
+                .andExpect(jsonPath("$.items[1].errors.app").value("App cannot be blank"))
+                .andExpect(jsonPath("$.items[2].errors.ip").value("Invalid IP address"))
+                .andExpect(jsonPath("$.items[3].index").value(3));
+
+        assertThat(repository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void saveAll_ndjson_shouldRejectMalformedLinesOnly() throws Exception {
+        String body = mapper.writeValueAsString(hit("ewm", "/events/1", "10.0.0.1")) + "\n"
+                + "{not a json}\n"
+                + "\n"
+                + mapper.writeValueAsString(hit("ewm", "/events/2", "10.0.0.2")) + "\n";
+
+        mockMvc.perform(post("/hits")
+                        .contentType(StatsController.NDJSON_VALUE)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.items[1].errors.body").value("Invalid hit body"));
+
+        assertThat(repository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void saveMulti_shouldStoreOneHitPerUri() throws Exception {
+        MultiHitDto multiHit = MultiHitDto.builder()
+                .app("ewm")
+                .ip("10.0.0.7")
+                .timestamp(fixedNow)
+                .uris(List.of("/events", "/events/1", "/events/2"))
+                .build();
+
+        mockMvc.perform(post("/hits/multi")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(multiHit)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(3))
+                .andExpect(jsonPath("$.rejected").value(0));
+
+        assertThat(repository.findAll())
+                .extracting(h -> h.getUri())
+                .containsExactlyInAnyOrder("/events", "/events/1", "/events/2");
+    }
+
+    @Test
+    void saveMulti_whenUrisEmpty_shouldReturn400() throws Exception {
+        MultiHitDto multiHit = MultiHitDto.builder()
+                .app("ewm")
+                .ip("10.0.0.7")
+                .timestamp(fixedNow)
+                .uris(List.of())
+                .build();
+
+        mockMvc.perform(post("/hits/multi")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(multiHit)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors.uris").value("URIs cannot be empty"));
+    }
+
+    @Test
+    void saveAll_whenBatchTooLarge_shouldReturn413() throws Exception {
+        List<EndpointHitDto> batch = IntStream.range(0, 2001)
+                .mapToObj(i -> hit("ewm", "/events/" + i, "127.0.0.1"))
+                .toList();
+
+        mockMvc.perform(post("/hits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(batch)))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(jsonPath("$.errors.hits").exists());
+
+        assertThat(repository.count()).isZero();
+    }
+
+    // Сравнение по времени на общем CI нестабильно, поэтому замер включается явно:
+    // mvn test -Dtest=StatsBulkIngestionTest -Dstats.benchmark=true
+    @Test
+    @EnabledIfSystemProperty(named = "stats.benchmark", matches = "true")
+    void throughput_bulkPathShouldOutperformSingleHitPath() throws Exception {
+        List<EndpointHitDto> hits = new ArrayList<>();
+        for (int i = 0; i < THROUGHPUT_HITS; i++) {
+            hits.add(hit("ewm", "/events/" + (i % 50), "192.168.0." + (i % 250)));
+        }
+
+        long singleStart = System.nanoTime();
+        for (EndpointHitDto h : hits) {
+            mockMvc.perform(post("/hit")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(h)))
+                    .andExpect(status().isCreated());
+        }
+        long singleNanos = System.nanoTime() - singleStart;
+
+        long bulkStart = System.nanoTime();
+        mockMvc.perform(post("/hits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(hits)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(THROUGHPUT_HITS));
+        long bulkNanos = System.nanoTime() - bulkStart;
+
+        log.info("Ingestion throughput for {} hits: /hit={} hits/s, /hits={} hits/s",
+                THROUGHPUT_HITS,
+                THROUGHPUT_HITS * 1_000_000_000L / singleNanos,
+                THROUGHPUT_HITS * 1_000_000_000L / bulkNanos);
+
+        assertThat(repository.count()).isEqualTo(2L * THROUGHPUT_HITS);
+        assertThat(bulkNanos).isLessThan(singleNanos);
+    }
+}
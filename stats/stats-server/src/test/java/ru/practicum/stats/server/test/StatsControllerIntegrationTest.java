@@ -48,9 +48,15 @@ class StatsControllerIntegrationTest {
     void getStats_unique_true_shouldCountDistinctIps() throws Exception {
         // сохраняем 3 хита, два с одинаковым IP
         repository.saveAll(List.of(
-                new EndpointHit(null, "ewm", "/events", "127.0.0.1", fixedNow),
-                new EndpointHit(null, "ewm", "/events", "127.0.0.1", fixedNow.plusSeconds(1)),
-                new EndpointHit(null, "ewm", "/events", "192.168.0.1", fixedNow.plusSeconds(2))
+                EndpointHit.builder()
+                        .app("ewm").uri("/events").ip("127.0.0.1").timestamp(fixedNow)
+                        .build(),
+                EndpointHit.builder()
+                        .app("ewm").uri("/events").ip("127.0.0.1").timestamp(fixedNow.plusSeconds(1))
+                        .build(),
+                EndpointHit.builder()
+                        .app("ewm").uri("/events").ip("192.168.0.1").timestamp(fixedNow.plusSeconds(2))
+                        .build()
         ));
 
         String response = mockMvc.perform(get("/stats")
@@ -71,9 +77,15 @@ class StatsControllerIntegrationTest {
     void getStats_unique_false_shouldCountAllHits() throws Exception {
         // сохраняем 3 хита, два с одинаковым IP
         repository.saveAll(List.of(
-                new EndpointHit(null, "ewm", "/events", "127.0.0.1", fixedNow),
-                new EndpointHit(null, "ewm", "/events", "127.0.0.1", fixedNow.plusSeconds(1)),
-                new EndpointHit(null, "ewm", "/events", "192.168.0.1", fixedNow.plusSeconds(2))
+                EndpointHit.builder()
+                        .app("ewm").uri("/events").ip("127.0.0.1").timestamp(fixedNow)
+                        .build(),
+                EndpointHit.builder()
+                        .app("ewm").uri("/events").ip("127.0.0.1").timestamp(fixedNow.plusSeconds(1))
+                        .build(),
+                EndpointHit.builder()
+                        .app("ewm").uri("/events").ip("192.168.0.1").timestamp(fixedNow.plusSeconds(2))
+                        .build()
         ));
 
         String response = mockMvc.perform(get("/stats")
@@ -92,7 +104,9 @@ class StatsControllerIntegrationTest {
 
     @Test
     void getStats_without_unique_shouldPassNullToService() throws Exception {
-        repository.save(new EndpointHit(null, "ewm", "/events", "127.0.0.1", fixedNow));
+        repository.save(EndpointHit.builder()
+                .app("ewm").uri("/events").ip("127.0.0.1").timestamp(fixedNow)
+                .build());
 
         // уникальный параметр не передан
         mockMvc.perform(get("/stats")
@@ -6,12 +6,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.stats.dto.ViewStatsDto;
 import ru.practicum.stats.server.controller.StatsController;
 import ru.practicum.stats.server.service.StatsService;
 
 import java.util.Collections;
+import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -48,4 +51,18 @@ class StatsControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().json("[]"));
     }
+
+    @Test
+    void testGetStats_ApproximateUnique() throws Exception {
+        when(service.getStats(any(), any(), any(), eq(true), eq(true)))
+                .thenReturn(List.of(new ViewStatsDto("ewm-main-service", "/events/1", 42L)));
+
+        mockMvc.perform(get("/stats")
+                        .param("start", "2025-01-01T00:00:00")
+                        .param("end", "2025-01-31T23:59:59")
+                        .param("unique", "true")
+                        .param("approximate", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].hits").value(42));
+    }
 }
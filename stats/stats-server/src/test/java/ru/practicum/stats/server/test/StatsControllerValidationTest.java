@@ -11,7 +11,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.practicum.stats.server.StatsServerApplication;
-import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.dto.EndpointHitDto;
 import ru.practicum.stats.server.service.StatsService;
 import ru.practicum.stats.dto.ViewStatsDto;
 
@@ -48,7 +48,9 @@ class StatsControllerValidationTest {
     // ------------------------ /hit ------------------------
     @Test
     void saveHit_whenAppValid_shouldReturn201() throws Exception {
-        var hit = new EndpointHit(null, "ewm-service", "/events", "127.0.0.1", LocalDateTime.now());
+        var hit = EndpointHitDto.builder()
+                .app("ewm-service").uri("/events").ip("127.0.0.1").timestamp(LocalDateTime.now())
+                .build();
 
         mockMvc.perform(post("/hit")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -58,7 +60,9 @@ class StatsControllerValidationTest {
 
     @Test
     void saveHit_whenAppBlank_shouldReturnErrorMessage() throws Exception {
-        var hit = new EndpointHit(null, "", "/events", "127.0.0.1", LocalDateTime.now());
+        var hit = EndpointHitDto.builder()
+                .app("").uri("/events").ip("127.0.0.1").timestamp(LocalDateTime.now())
+                .build();
 
         mockMvc.perform(post("/hit")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -69,7 +73,9 @@ class StatsControllerValidationTest {
 
     @Test
     void saveHit_whenUriBlank_shouldReturnErrorMessage() throws Exception {
-        var hit = new EndpointHit(null, "ewm", "", "127.0.0.1", LocalDateTime.now());
+        var hit = EndpointHitDto.builder()
+                .app("ewm").uri("").ip("127.0.0.1").timestamp(LocalDateTime.now())
+                .build();
 
         mockMvc.perform(post("/hit")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -80,7 +86,9 @@ class StatsControllerValidationTest {
 
     @Test
     void saveHit_whenIpInvalid_shouldReturnValidationMessage() throws Exception {
-        var hit = new EndpointHit(null, "ewm", "/events", "bad-ip", LocalDateTime.now());
+        var hit = EndpointHitDto.builder()
+                .app("ewm").uri("/events").ip("bad-ip").timestamp(LocalDateTime.now())
+                .build();
 
         mockMvc.perform(post("/hit")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -91,7 +99,9 @@ class StatsControllerValidationTest {
 
     @Test
     void saveHit_whenTimestampInFuture_shouldReturnMessage() throws Exception {
-        var hit = new EndpointHit(null, "ewm", "/events", "127.0.0.1", LocalDateTime.now().plusDays(1));
+        var hit = EndpointHitDto.builder()
+                .app("ewm").uri("/events").ip("127.0.0.1").timestamp(LocalDateTime.now().plusDays(1))
+                .build();
 
         mockMvc.perform(post("/hit")
                         .contentType(MediaType.APPLICATION_JSON)
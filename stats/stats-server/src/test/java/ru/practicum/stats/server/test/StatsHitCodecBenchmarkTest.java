@@ -0,0 +1,108 @@
+package ru.practicum.stats.server.test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.codec.HitBinaryCodec;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// JMH: кодирование и разбор пачки хитов бинарным кадром против JSON (Jackson, как в клиенте и сервере).
+// Запуск: mvn test -Dtest=StatsHitCodecBenchmarkTest -Dstats.benchmark=true
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatsHitCodecBenchmarkTest {
+
+    private static final TypeReference<List<EndpointHitDto>> HIT_LIST = new TypeReference<>() {
+    };
+
+    // Пачка клиента в режиме ASYNC — до stats.client.buffer.batch-size хитов
+    @Param({"1", "500"})
+    public int batchSize;
+
+    private ObjectMapper json;
+    private List<EndpointHitDto> hits;
+    private byte[] jsonFrame;
+    private byte[] binaryFrame;
+
+    @Setup
+    public void prepare() throws Exception {
+        json = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        Random random = new Random(42);
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 12, 0);
+        hits = new ArrayList<>();
+        for (int i = 0; i < batchSize; i++) {
+            hits.add(EndpointHitDto.builder()
+                    .app("ewm-main-service")
+                    .uri(random.nextInt(4) == 0 ? "/events" : "/events/" + random.nextInt(200))
+                    .ip(random.nextInt(10) == 0
+                            ? "2001:db8::" + Integer.toHexString(random.nextInt(65536))
+                            : "10." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256))
+                    .timestamp(start.plusSeconds(i / 10))
+                    .build());
+        }
+        jsonFrame = json.writeValueAsBytes(hits);
+        binaryFrame = HitBinaryCodec.encode(hits);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws Exception {
+        return json.writeValueAsBytes(hits);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return HitBinaryCodec.encode(hits);
+    }
+
+    @Benchmark
+    public List<EndpointHitDto> decodeJson() throws Exception {
+        return json.readValue(jsonFrame, HIT_LIST);
+    }
+
+    @Benchmark
+    public List<EndpointHitDto> decodeBinary() throws Exception {
+        return HitBinaryCodec.decode(binaryFrame);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "stats.benchmark", matches = "true")
+    void run() throws Exception {
+        batchSize = 500;
+        prepare();
+        System.out.printf("Frame size for %d hits: JSON %d bytes, binary %d bytes%n",
+                batchSize, jsonFrame.length, binaryFrame.length);
+        new Runner(new OptionsBuilder()
+                .include(StatsHitCodecBenchmarkTest.class.getName() + "\\.")
+                .jvmArgsAppend("-Djmh.ignoreLock=true")
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,223 @@
+package ru.practicum.stats.server.test;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.StatsServerApplication;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.repository.EndpointHitRepository;
+import ru.practicum.stats.server.repository.HitDictionary;
+import ru.practicum.stats.server.repository.StatsRepository;
+import ru.practicum.stats.server.service.StatsService;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+// Пул меньше числа одновременных сохранений: новое значение словаря не должно ждать второго соединения
+@SpringBootTest(classes = StatsServerApplication.class, properties = {
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "spring.datasource.hikari.connection-timeout=2000"
+})
+@ActiveProfiles("test")
+class StatsHitDictionaryTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @Autowired
+    private StatsService service;
+
+    @Autowired
+    private EndpointHitRepository repository;
+
+    @Autowired
+    private StatsRepository statsRepository;
+
+    @Autowired
+    private HitDictionary dictionary;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setup() {
+        repository.deleteAll();
+    }
+
+    private EndpointHitDto hit(String app, String uri, String ip) {
+        return EndpointHitDto.builder().app(app).uri(uri).ip(ip).timestamp(NOW).build();
+    }
+
+    private long dictionarySize(String table, String name) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE name = ?", Long.class, name);
+    }
+
+    @Test
+    void hits_storeDictionaryKeysInsteadOfStrings() {
+        service.save(hit("ewm-main-service", "/events/dict-1", "10.0.0.1"));
+        service.saveAll(List.of(
+                hit("ewm-main-service", "/events/dict-1", "10.0.0.2"),
+                hit("ewm-main-service", "/events/dict-2", "10.0.0.3")));
+
+        assertThat(dictionarySize("hit_app", "ewm-main-service")).isEqualTo(1);
+        assertThat(dictionarySize("hit_uri", "/events/dict-1")).isEqualTo(1);
+        assertThat(jdbc.queryForList("SELECT DISTINCT app_id FROM endpoint_hit", Integer.class)).hasSize(1);
+
+        // Загруженные через JPA хиты снова получают строки
+        assertThat(repository.findAll())
+                .extracting(EndpointHit::getApp, EndpointHit::getUri)
+                .containsExactlyInAnyOrder(
+                        tuple("ewm-main-service", "/events/dict-1"),
+                        tuple("ewm-main-service", "/events/dict-1"),
+                        tuple("ewm-main-service", "/events/dict-2"));
+    }
+
+    @Test
+    void stats_groupOnKeysAndResolveStrings() {
+        // Ключ "z-app" меньше, но в неуникальной статистике по uri остаётся наименьшая строка app
+        service.saveAll(List.of(
+                hit("z-app", "/events/dict-shared", "10.0.0.1"),
+                hit("a-app", "/events/dict-shared", "10.0.0.1"),
+                hit("a-app", "/events/dict-shared", "10.0.0.2"),
+                hit("a-app", "/events/dict-other", "10.0.0.3")));
+
+        List<ViewStatsDto> stats = statsRepository.findStats(NOW.minusHours(1), NOW, null);
+        assertThat(stats).extracting(ViewStatsDto::getApp, ViewStatsDto::getUri, ViewStatsDto::getHits)
+                .containsExactly(tuple("a-app", "/events/dict-shared", 3L), tuple("a-app", "/events/dict-other", 1L));
+
+        List<ViewStatsDto> unique = statsRepository.findStatsUnique(NOW.minusHours(1), NOW,
+                List.of("/events/dict-shared", "/events/never-seen"));
+        assertThat(unique).extracting(ViewStatsDto::getApp, ViewStatsDto::getUri, ViewStatsDto::getHits)
+                .containsExactly(tuple("a-app", "/events/dict-shared", 2L), tuple("z-app", "/events/dict-shared", 1L));
+
+        // Фильтр только из неизвестных uri не пополняет словарь
+        assertThat(statsRepository.findStats(NOW.minusHours(1), NOW, List.of("/events/never-seen"))).isEmpty();
+        assertThat(dictionarySize("hit_uri", "/events/never-seen")).isZero();
+    }
+
+    @Test
+    void findUriIds_looksUpUncachedValuesTogether() {
+        service.save(hit("ewm-main-service", "/events/dict-known", "10.0.0.1"));
+        // Добавлено другим экземпляром сервера: в кеше этого словаря значения нет
+        jdbc.update("INSERT INTO hit_uri (name) VALUES (?)", "/events/dict-elsewhere");
+        Integer elsewhere = jdbc.queryForObject("SELECT id FROM hit_uri WHERE name = ?", Integer.class,
+                "/events/dict-elsewhere");
+
+        List<String> filter = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            filter.add("/events/dict-missing-" + i);
+        }
+        filter.add("/events/dict-known");
+        filter.add("/events/dict-elsewhere");
+
+        assertThat(dictionary.findUriIds(filter)).hasSize(2).contains(elsewhere);
+        assertThat(dictionary.uri(elsewhere)).isEqualTo("/events/dict-elsewhere");
+        assertThat(dictionarySize("hit_uri", "/events/dict-missing-0")).isZero();
+    }
+
+    @Test
+    void resolveKeys_concurrentNewValueGetsSingleKey() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        Set<Integer> keys = ConcurrentHashMap.newKeySet();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    EndpointHit hit = EndpointHit.builder().app("ewm-race").uri("/events/race").build();
+                    dictionary.resolveKeys(hit);
+                    keys.add(hit.getUriId());
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(keys).hasSize(1);
+        assertThat(dictionarySize("hit_uri", "/events/race")).isEqualTo(1);
+    }
+
+    @Test
+    void save_newValuesConcurrentlyWithSmallPool() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int n = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    service.save(hit("ewm-pool-" + n, "/events/pool-" + n, "10.0.0.1"));
+                    service.saveAll(List.of(hit("ewm-pool-" + n, "/events/pool-batch-" + n, "10.0.0.2")));
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(repository.count()).isEqualTo(2L * threads);
+    }
+
+    // Таблица в прежнем виде — app и uri строками — переводится на ключи словарей
+    @Test
+    void migrateInlineColumns_movesStringsIntoDictionaries() {
+        service.save(hit("ewm-main-service", "/events/dict-kept", "10.0.0.1"));
+
+        jdbc.execute("ALTER TABLE endpoint_hit ALTER COLUMN app_id SET NULL");
+        jdbc.execute("ALTER TABLE endpoint_hit ALTER COLUMN uri_id SET NULL");
+        jdbc.execute("ALTER TABLE endpoint_hit ADD COLUMN app VARCHAR(255)");
+        jdbc.execute("ALTER TABLE endpoint_hit ADD COLUMN uri VARCHAR(255)");
+        for (int i = 0; i < 3; i++) {
+            jdbc.update("INSERT INTO endpoint_hit (app, uri, ip, timestamp) VALUES (?, ?, ?, ?)",
+                    "ewm-legacy", i < 2 ? "/events/legacy" : "/events/dict-kept", new byte[]{10, 0, 1, (byte) i},
+                    Timestamp.valueOf(NOW));
+        }
+
+        dictionary.migrateInlineColumns();
+
+        assertThat(jdbc.queryForObject("""
+                SELECT COUNT(*) FROM information_schema.columns
+                WHERE LOWER(table_name) = 'endpoint_hit' AND LOWER(column_name) IN ('app', 'uri')
+                """, Long.class)).isZero();
+        assertThat(dictionarySize("hit_uri", "/events/dict-kept")).isEqualTo(1);
+        assertThat(statsRepository.findStats(NOW.minusHours(1), NOW, null))
+                .extracting(ViewStatsDto::getApp, ViewStatsDto::getUri, ViewStatsDto::getHits)
+                .containsExactlyInAnyOrder(
+                        tuple("ewm-legacy", "/events/legacy", 2L),
+                        tuple("ewm-legacy", "/events/dict-kept", 2L));
+
+        // Перенесённые столбцы снова обязательны
+        service.save(hit("ewm-main-service", "/events/dict-after", "10.0.0.2"));
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM endpoint_hit WHERE app_id IS NULL OR uri_id IS NULL",
+                Long.class)).isZero();
+    }
+}
@@ -0,0 +1,124 @@
+package ru.practicum.stats.server.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.server.StatsServerApplication;
+import ru.practicum.stats.server.exception.HitBufferFullException;
+import ru.practicum.stats.server.service.StatsService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Устойчивая пропускная способность приёма хитов, хитов/с: синхронное сохранение против отложенной записи,
+// считая только дошедшие до БД хиты. Запуск (по умолчанию H2, можно PostgreSQL):
+// mvn test -Dtest=StatsIngestionBenchmarkTest -Dstats.benchmark=true
+//          [-Dstats.benchmark.jdbc-url=jdbc:postgresql://localhost:5432/stats_bench -Dstats.benchmark.username=postgres
+//           -Dstats.benchmark.threads=16 -Dstats.benchmark.seconds=20]
+@Slf4j
+@SpringBootTest(classes = StatsServerApplication.class, properties = {
+        "spring.datasource.url=${stats.benchmark.jdbc-url:jdbc:h2:mem:stats-benchmark;DB_CLOSE_DELAY=-1}",
+        "spring.datasource.username=${stats.benchmark.username:postgres}",
+        "spring.datasource.password=${stats.benchmark.password:}",
+        "spring.datasource.driver-class-name=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.sql.init.mode=never",
+        "stats.ingest.write-behind.enabled=true"
+})
+@EnabledIfSystemProperty(named = "stats.benchmark", matches = "true")
+class StatsIngestionBenchmarkTest {
+
+    private static final int THREADS = Integer.getInteger("stats.benchmark.threads", 16);
+    private static final int SECONDS = Integer.getInteger("stats.benchmark.seconds", 20);
+
+    @Autowired
+    private StatsService service;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void sustainedThroughput_syncVersusWriteBehind() throws Exception {
+        double sync = run("sync save", service::save).perSecond();
+
+        LongAdder rejected = new LongAdder();
+        Result writeBehind = run("write-behind", hit -> {
+            while (true) {
+                try {
+                    service.enqueue(hit);
+                    return;
+                } catch (HitBufferFullException e) {
+                    // Клиент на 429 повторяет запрос
+                    rejected.increment();
+                    Thread.onSpinWait();
+                }
+            }
+        });
+
+        log.info("Ingestion benchmark, {} threads x {} s: sync {} hits/s, write-behind {} hits/s ({} x faster), "
+                        + "429 responses: {}", THREADS, SECONDS, String.format("%.0f", sync),
+                String.format("%.0f", writeBehind.perSecond()), String.format("%.1f", writeBehind.perSecond() / sync),
+                rejected.sum());
+        assertThat(writeBehind.persisted()).isEqualTo(writeBehind.submitted());
+    }
+
+    private record Result(long submitted, long persisted, long nanos) {
+        double perSecond() {
+            return persisted * 1e9 / nanos;
+        }
+    }
+
+    // Время — до момента, когда все отправленные хиты сохранены в БД
+    private Result run(String label, Consumer<EndpointHitDto> ingest) throws Exception {
+        jdbc.execute("DELETE FROM endpoint_hit");
+        LongAdder submitted = new LongAdder();
+        long started = System.nanoTime();
+        long deadline = started + TimeUnit.SECONDS.toNanos(SECONDS);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    ingest.accept(EndpointHitDto.builder()
+                            .app("ewm-main-service")
+                            .uri("/events/" + random.nextInt(10_000))
+                            .ip("10.0." + random.nextInt(256) + "." + random.nextInt(256))
+                            .timestamp(LocalDateTime.now())
+                            .build());
+                    submitted.increment();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        long persisted;
+        while ((persisted = jdbc.queryForObject("SELECT COUNT(*) FROM endpoint_hit", Long.class)) < submitted.sum()
+                && System.nanoTime() - deadline < TimeUnit.SECONDS.toNanos(60)) {
+            Thread.sleep(10);
+        }
+        Result result = new Result(submitted.sum(), persisted, System.nanoTime() - started);
+        log.info("{}: {} hits submitted, {} persisted, {} hits/s", label, result.submitted(), result.persisted(),
+                String.format("%.0f", result.perSecond()));
+        return result;
+    }
+}
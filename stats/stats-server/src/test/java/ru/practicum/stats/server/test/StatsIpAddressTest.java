@@ -0,0 +1,119 @@
+package ru.practicum.stats.server.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.dto.codec.IpAddresses;
+import ru.practicum.stats.server.StatsServerApplication;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.repository.EndpointHitRepository;
+import ru.practicum.stats.server.repository.StatsRepository;
+import ru.practicum.stats.server.service.StatsService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = StatsServerApplication.class)
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class StatsIpAddressTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private StatsService service;
+
+    @Autowired
+    private EndpointHitRepository repository;
+
+    @Autowired
+    private StatsRepository statsRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setup() {
+        repository.deleteAll();
+    }
+
+    private EndpointHitDto hit(String uri, String ip) {
+        return EndpointHitDto.builder().app("ewm-main-service").uri(uri).ip(ip).timestamp(NOW).build();
+    }
+
+    @Test
+    void parse_acceptsOnlyLiteralsAndMapsIpv4() {
+        assertThat(IpAddresses.parse("10.0.0.1")).hasSize(16)
+                .isEqualTo(IpAddresses.parse("::ffff:10.0.0.1"))
+                .isEqualTo(IpAddresses.parse("::FFFF:0a00:0001"));
+        assertThat(IpAddresses.canonical("::ffff:10.0.0.1")).isEqualTo("10.0.0.1");
+        assertThat(IpAddresses.canonical("2001:0DB8:0000:0000:0000:0000:0000:0001")).isEqualTo("2001:db8::1");
+        assertThat(IpAddresses.canonical("fe80::1%eth0")).isEqualTo("fe80::1");
+
+        // Имена хостов не разрешаются, неоднозначные записи IPv4 не принимаются
+        assertThat(IpAddresses.parse("localhost")).isNull();
+        assertThat(IpAddresses.parse("example.com")).isNull();
+        assertThat(IpAddresses.parse("256.0.0.1")).isNull();
+        assertThat(IpAddresses.parse("010.0.0.1")).isNull();
+        assertThat(IpAddresses.parse("2001:db8::g")).isNull();
+        assertThat(IpAddresses.parse(" ")).isNull();
+    }
+
+    @Test
+    void hits_storeBinaryAddressAndCountMappedIpv4AsOneVisitor() {
+        service.save(hit("/events/ip", "10.0.0.1"));
+        service.saveAll(List.of(
+                hit("/events/ip", "::ffff:10.0.0.1"),
+                hit("/events/ip", "2001:0db8::0001"),
+                hit("/events/ip", "2001:db8::1")));
+
+        // В тестовой БД адрес хранится байтами: IPv4 — 4, IPv6 — 16
+        assertThat(jdbc.queryForList("SELECT ip FROM endpoint_hit", byte[].class))
+                .extracting(address -> address.length)
+                .containsExactlyInAnyOrder(4, 4, 16, 16);
+
+        assertThat(statsRepository.findStatsUnique(NOW.minusHours(1), NOW, null))
+                .extracting(ViewStatsDto::getUri, ViewStatsDto::getHits)
+                .containsExactly(tuple("/events/ip", 2L));
+        assertThat(repository.findAll()).extracting(EndpointHit::getIp)
+                .containsExactlyInAnyOrder("10.0.0.1", "10.0.0.1", "2001:db8::1", "2001:db8::1");
+    }
+
+    @Test
+    void hit_withHostNameInsteadOfAddress_isRejected() throws Exception {
+        mockMvc.perform(post("/hit")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(hit("/events/ip", "localhost"))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors.ip").value("Invalid IP address"));
+
+        mockMvc.perform(post("/hit")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(hit("/events/ip", "::ffff:10.0.0.7"))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.ip").value("10.0.0.7"));
+
+        assertThat(repository.count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,257 @@
+package ru.practicum.stats.server.test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.repository.EndpointHitRepository;
+import ru.practicum.stats.server.repository.HitDictionary;
+import ru.practicum.stats.server.service.HitIngestionPipeline;
+import ru.practicum.stats.server.service.HitJournal;
+import ru.practicum.stats.server.service.HitRollupService;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+// Сегментный журнал хитов: повтор, отметка сохранённого, удаление сегментов, повреждённые записи
+// и убийство пишущего процесса посреди нагрузки; сохранность журнала при сбое записи во время остановки
+@Slf4j
+class StatsJournalTest {
+
+    private static final int SEGMENT_SIZE = 64 * 1024;
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 1, 1, 12, 0, 0, 123_456_000);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void unsavedHits_areReplayedAfterRestart() {
+        try (HitJournal journal = new HitJournal(directory, SEGMENT_SIZE, true)) {
+            HitJournal.Segment segment = null;
+            for (int i = 0; i < 5; i++) {
+                segment = journal.append(hit(i));
+            }
+            journal.sync();
+            // Первые три сохранены в БД, но отметка сдвигается только когда сохранено всё в сегменте
+            journal.commit(segment, 3);
+        }
+
+        HitJournal restarted = new HitJournal(directory, SEGMENT_SIZE, true);
+        assertThat(restarted.readAll()).extracting(EndpointHit::getUri)
+                .containsExactly("/events/0", "/events/1", "/events/2", "/events/3", "/events/4");
+        assertThat(restarted.readAll().get(0).getTimestamp()).isEqualTo(NOW);
+
+        restarted.releaseRecovered();
+        assertThat(new HitJournal(directory, SEGMENT_SIZE, true).readAll()).isEmpty();
+    }
+
+    @Test
+    void savedSegments_areDeletedAndActiveOneIsCheckpointed() throws IOException {
+        HitJournal journal = new HitJournal(directory, SEGMENT_SIZE, false);
+        List<HitJournal.Segment> segments = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            segments.add(journal.append(hit(i)));
+        }
+        assertThat(segmentFiles()).hasSizeGreaterThan(2);
+
+        HitJournal.Segment active = segments.get(segments.size() - 1);
+        segments.stream().filter(segment -> segment != active).distinct().forEach(segment -> journal.commit(segment,
+                (int) segments.stream().filter(s -> s == segment).count()));
+        assertThat(segmentFiles()).hasSize(1);
+
+        // Пока в текущем сегменте есть несохранённые хиты, отметка не сдвигается — повторяется весь сегмент
+        int inActive = (int) segments.stream().filter(s -> s == active).count();
+        journal.commit(active, inActive - 10);
+        assertThat(new HitJournal(directory, SEGMENT_SIZE, false).readAll()).hasSize(inActive);
+
+        journal.commit(active, 10);
+        journal.append(hit(3000));
+        assertThat(new HitJournal(directory, SEGMENT_SIZE, false).readAll()).extracting(EndpointHit::getUri)
+                .containsExactly("/events/3000");
+    }
+
+    @Test
+    void corruptedRecord_stopsReplayOfItsSegment() throws IOException {
+        try (HitJournal journal = new HitJournal(directory, SEGMENT_SIZE, true)) {
+            for (int i = 0; i < 3; i++) {
+                journal.append(hit(i));
+            }
+        }
+        Path segment = segmentFiles().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(indexOf(segment, "/events/2"));
+            file.write('X');
+        }
+
+        assertThat(new HitJournal(directory, SEGMENT_SIZE, true).readAll()).extracting(EndpointHit::getUri)
+                .containsExactly("/events/0", "/events/1");
+    }
+
+    // Пачка, которую писатель не сохранил из-за сбоя БД во время остановки, не отмечается сохранённой
+    // и повторяется при следующем старте
+    @Test
+    void batchDroppedOnShutdown_staysInJournal() {
+        HitDictionary dictionary = mock(HitDictionary.class);
+        doThrow(new DataAccessResourceFailureException("database is down")).when(dictionary).resolveAllKeys(any());
+        HitIngestionPipeline pipeline = new HitIngestionPipeline(mock(EndpointHitRepository.class), dictionary,
+                mock(HitRollupService.class), mock(JdbcTemplate.class), mock(PlatformTransactionManager.class),
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(pipeline, "enabled", true);
+        ReflectionTestUtils.setField(pipeline, "capacity", 16);
+        ReflectionTestUtils.setField(pipeline, "writers", 1);
+        ReflectionTestUtils.setField(pipeline, "batchSize", 4);
+        ReflectionTestUtils.setField(pipeline, "copy", false);
+        ReflectionTestUtils.setField(pipeline, "journalPath", directory.toString());
+        ReflectionTestUtils.setField(pipeline, "journalSegmentSize", SEGMENT_SIZE);
+        ReflectionTestUtils.setField(pipeline, "journalFsync", true);
+        ReflectionTestUtils.setField(pipeline, "shutdownTimeoutMs", 10_000L);
+
+        ReflectionTestUtils.invokeMethod(pipeline, "start");
+        pipeline.submit(hit(0));
+        pipeline.submit(hit(1));
+        verify(dictionary, timeout(5_000)).resolveAllKeys(any());
+        ReflectionTestUtils.invokeMethod(pipeline, "stop");
+
+        assertThat(new HitJournal(directory, SEGMENT_SIZE, true).readAll()).extracting(EndpointHit::getUri)
+                .containsExactly("/events/0", "/events/1");
+    }
+
+    // Дочерний JVM пишет в журнал и сообщает о подтверждённых хитах; после kill -9 все подтверждённые
+    // хиты читаются из журнала без пропусков и повреждений
+    @Test
+    void killedWriter_losesNoAcknowledgedHits() throws Exception {
+        Process writer = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                JournalWriter.class.getName(), directory.toString())
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+
+        long acknowledged = 0;
+        try (BufferedReader output = new BufferedReader(
+                new InputStreamReader(writer.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while (acknowledged < 50_000 && (line = output.readLine()) != null) {
+                if (line.startsWith("acked ")) {
+                    acknowledged = Long.parseLong(line.substring("acked ".length()));
+                }
+            }
+            writer.destroyForcibly();
+            assertThat(writer.waitFor(30, TimeUnit.SECONDS)).isTrue();
+        }
+
+        List<EndpointHit> recovered = new HitJournal(directory, SEGMENT_SIZE, true).readAll();
+        log.info("Writer killed after {} acknowledged hits, {} recovered from journal", acknowledged, recovered.size());
+        assertThat(acknowledged).isGreaterThanOrEqualTo(50_000);
+        assertThat(recovered.size()).isGreaterThanOrEqualTo((int) acknowledged);
+        assertThat(IntStream.range(0, recovered.size()).allMatch(i ->
+                recovered.get(i).getUri().equals("/events/" + i))).isTrue();
+    }
+
+    // Скорость дописывания в журнал против синхронного JPA-пути (см. StatsIngestionBenchmarkTest):
+    // mvn test -Dtest=StatsJournalTest -Dstats.benchmark=true
+    @Test
+    @EnabledIfSystemProperty(named = "stats.benchmark", matches = "true")
+    void appendRate() throws Exception {
+        int threads = 8;
+        int perThread = 100_000;
+        for (boolean fsync : new boolean[]{false, true}) {
+            Path target = Files.createTempDirectory(directory, fsync ? "fsync" : "mmap");
+            try (HitJournal journal = new HitJournal(target, 64 << 20, fsync)) {
+                ExecutorService executor = Executors.newFixedThreadPool(threads);
+                long started = System.nanoTime();
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < perThread; i++) {
+                            HitJournal.Segment segment = journal.append(hit(i));
+                            // Подтверждение каждого хита, как при приёме POST /hit
+                            journal.sync();
+                            journal.commit(segment, 1);
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                executor.shutdown();
+                double perSecond = threads * (double) perThread * 1e9 / (System.nanoTime() - started);
+                log.info("Journal append rate, {} threads, fsync={}: {} hits/s", threads, fsync,
+                        String.format("%.0f", perSecond));
+            }
+        }
+    }
+
+    // Точка входа дочернего процесса для killedWriter_losesNoAcknowledgedHits
+    public static class JournalWriter {
+
+        public static void main(String[] args) {
+            HitJournal journal = new HitJournal(Path.of(args[0]), SEGMENT_SIZE, true);
+            for (int i = 0; ; i++) {
+                journal.append(hit(i));
+                if ((i + 1) % 500 == 0) {
+                    journal.sync();
+                    System.out.println("acked " + (i + 1));
+                    System.out.flush();
+                }
+            }
+        }
+    }
+
+    private static EndpointHit hit(int i) {
+        return EndpointHit.builder()
+                .app("ewm-main-service")
+                .uri("/events/" + i)
+                .ip("10.0." + (i % 256) + "." + (i / 256 % 256))
+                .timestamp(NOW)
+                .build();
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".journal")).sorted().toList();
+        }
+    }
+
+    private static long indexOf(Path segment, String uri) throws IOException {
+        byte[] content = Files.readAllBytes(segment);
+        byte[] needle = uri.getBytes(StandardCharsets.UTF_8);
+        outer:
+        for (int i = 0; i <= content.length - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (content[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        throw new IllegalStateException(uri + " not found in " + segment);
+    }
+}
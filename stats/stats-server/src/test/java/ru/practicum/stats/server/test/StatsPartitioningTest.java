@@ -0,0 +1,258 @@
+package ru.practicum.stats.server.test;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.StatsServerApplication;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.repository.EndpointHitRepository;
+import ru.practicum.stats.server.service.HitPartitionManager;
+import ru.practicum.stats.server.service.StatsService;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+// Секционирование endpoint_hit на PostgreSQL: перевод существующей таблицы, маршрутизация хитов по секциям,
+// отсечение секций в плане запроса и политика хранения.
+// Запуск: mvn test -Dstats.partitioning.jdbc-url=jdbc:postgresql://localhost:5432/stats_part
+//         [-Dstats.partitioning.username=postgres -Dstats.partitioning.password=]
+// База должна быть отдельной: endpoint_hit и hit_rollup пересоздаются.
+@SpringBootTest(classes = StatsServerApplication.class, properties = {
+        "spring.datasource.url=${stats.partitioning.jdbc-url}",
+        "spring.datasource.username=${stats.partitioning.username:postgres}",
+        "spring.datasource.password=${stats.partitioning.password:}",
+        "spring.jpa.hibernate.ddl-auto=update",
+        "spring.jpa.show-sql=false",
+        "stats.partitioning.interval=MONTH",
+        "stats.partitioning.precreate=2",
+        "stats.partitioning.retention=0",
+        "stats.partitioning.retention-mode=DETACH"
+})
+@EnabledIfSystemProperty(named = "stats.partitioning.jdbc-url", matches = ".+")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class StatsPartitioningTest {
+
+    private static final HitPartitionManager.Interval MONTH = HitPartitionManager.Interval.MONTH;
+    private static final LocalDateTime CURRENT = MONTH.floor(LocalDateTime.now());
+    private static final LocalDateTime OLD = MONTH.plus(CURRENT, -14).plusDays(3);
+    private static final LocalDateTime RECENT = MONTH.plus(CURRENT, -2).plusDays(5);
+    // Строкой ip хранился в том виде, в каком его прислали, — в том числе с зоной и именем хоста
+    private static final List<String> LEGACY_IPS =
+            List.of("10.0.0.0", "::ffff:10.0.0.1", "10.0.0.2", "fe80::3%eth0", "legacy-proxy");
+
+    @Autowired
+    private HitPartitionManager partitionManager;
+
+    @Autowired
+    private EndpointHitRepository repository;
+
+    @Autowired
+    private StatsService service;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    // Таблица в том виде, в каком её создавал Hibernate до секционирования, с накопленными хитами
+    @BeforeAll
+    static void createUnpartitionedTable() throws Exception {
+        try (Connection connection = DriverManager.getConnection(System.getProperty("stats.partitioning.jdbc-url"),
+                System.getProperty("stats.partitioning.username", "postgres"),
+                System.getProperty("stats.partitioning.password", ""));
+             Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    DO $$
+                    DECLARE t text;
+                    BEGIN
+                        FOR t IN SELECT tablename FROM pg_tables
+                                 WHERE schemaname = current_schema() AND tablename LIKE 'endpoint_hit%' LOOP
+                            EXECUTE 'DROP TABLE IF EXISTS ' || quote_ident(t) || ' CASCADE';
+                        END LOOP;
+                    END $$
+                    """);
+            statement.execute("DROP TABLE IF EXISTS hit_rollup");
+            statement.execute("""
+                    CREATE TABLE endpoint_hit (
+                        id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                        app VARCHAR(255) NOT NULL,
+                        ip VARCHAR(255) NOT NULL,
+                        timestamp TIMESTAMP(6) NOT NULL,
+                        uri VARCHAR(255) NOT NULL
+                    )
+                    """);
+            statement.execute("CREATE INDEX idx_endpoint_hit_timestamp ON endpoint_hit (timestamp)");
+            statement.execute("CREATE INDEX idx_endpoint_hit_uri_timestamp_cover ON endpoint_hit (uri, timestamp) "
+                    + "INCLUDE (app, ip)");
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO endpoint_hit (app, uri, ip, timestamp) VALUES ('ewm-main-service', ?, ?, ?)")) {
+                for (int i = 0; i < 5; i++) {
+                    insert.setString(1, i < 3 ? "/events/old" : "/events/recent");
+                    insert.setString(2, LEGACY_IPS.get(i));
+                    insert.setTimestamp(3, Timestamp.valueOf((i < 3 ? OLD : RECENT).plusHours(i)));
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+    }
+
+    @Test
+    @Order(1)
+    void startup_convertsTableAndPrecreatesPartitions() {
+        assertThat(jdbc.queryForObject("SELECT relkind::text FROM pg_class WHERE oid = 'endpoint_hit'::regclass",
+                String.class)).isEqualTo("p");
+
+        // Накопленные хиты остались на месте в секции до конца месяца последнего из них, дальше — помесячно
+        assertThat(partitionManager.partitions()).containsExactlyInAnyOrder(
+                new HitPartitionManager.Partition("endpoint_hit_default", null, null, true),
+                new HitPartitionManager.Partition("endpoint_hit_legacy", null, MONTH.plus(CURRENT, -1), false),
+                partition(MONTH.plus(CURRENT, -1)),
+                partition(CURRENT),
+                partition(MONTH.plus(CURRENT, 1)),
+                partition(MONTH.plus(CURRENT, 2)));
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM endpoint_hit_legacy", Long.class)).isEqualTo(5);
+        assertThat(partitionManager.isActive()).isTrue();
+
+        // app и uri старых хитов перенесены в словари, строковые столбцы удалены
+        assertThat(jdbc.queryForList("""
+                        SELECT u.name FROM endpoint_hit h
+                        JOIN hit_app a ON a.id = h.app_id
+                        JOIN hit_uri u ON u.id = h.uri_id
+                        WHERE a.name = 'ewm-main-service'
+                        """, String.class))
+                .containsExactlyInAnyOrder("/events/old", "/events/old", "/events/old", "/events/recent",
+                        "/events/recent");
+        assertThat(jdbc.queryForList("""
+                        SELECT column_name FROM information_schema.columns
+                        WHERE table_schema = current_schema() AND table_name = 'endpoint_hit'
+                        """, String.class))
+                .containsExactlyInAnyOrder("id", "app_id", "uri_id", "ip", "timestamp");
+
+        // ip старых хитов переведён в inet в той же записи, что и у новых; не разобранный — неопределённый адрес
+        assertThat(jdbc.queryForObject("""
+                        SELECT data_type FROM information_schema.columns
+                        WHERE table_schema = current_schema() AND table_name = 'endpoint_hit' AND column_name = 'ip'
+                        """, String.class)).isEqualTo("inet");
+        assertThat(jdbc.queryForList("SELECT host(ip) FROM endpoint_hit_legacy", String.class))
+                .containsExactlyInAnyOrder("10.0.0.0", "10.0.0.1", "10.0.0.2", "fe80::3", "::");
+
+        // Индекс старой таблицы (после переноса в словари — пересобранный по ключам) подключён к индексу родителя,
+        // устаревший по timestamp удалён
+        assertThat(jdbc.queryForList("""
+                        SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                        WHERE i.inhparent = 'idx_endpoint_hit_uri_timestamp_cover'::regclass
+                        """, String.class))
+                .contains("endpoint_hit_legacy_uri_timestamp_cover")
+                .hasSize(6);
+        assertThat(jdbc.queryForObject("""
+                        SELECT bool_and(x.indisvalid) FROM pg_index x
+                        WHERE x.indexrelid IN ('idx_endpoint_hit_timestamp_cover'::regclass,
+                                               'idx_endpoint_hit_uri_timestamp_cover'::regclass)
+                        """, Boolean.class)).isTrue();
+        assertThat(jdbc.queryForObject("SELECT to_regclass('idx_endpoint_hit_timestamp') IS NULL",
+                Boolean.class)).isTrue();
+
+        // Повторное обслуживание ничего не меняет
+        partitionManager.maintain();
+        assertThat(partitionManager.partitions()).hasSize(6);
+    }
+
+    @Test
+    @Order(2)
+    void hits_routedToPartitionOfTheirMonth() {
+        long legacyMaxId = jdbc.queryForObject("SELECT MAX(id) FROM endpoint_hit_legacy", Long.class);
+
+        EndpointHit saved = repository.save(EndpointHit.builder()
+                .app("ewm-main-service").uri("/events/1").ip("10.0.1.1").timestamp(LocalDateTime.now())
+                .build());
+        repository.batchInsert(List.of(
+                EndpointHit.builder().app("ewm-main-service").uri("/events/2").ip("10.0.1.2")
+                        .timestamp(MONTH.plus(CURRENT, 1).plusDays(1)).build(),
+                EndpointHit.builder().app("ewm-main-service").uri("/events/3").ip("10.0.1.3")
+                        .timestamp(MONTH.plus(CURRENT, -30)).build()));
+
+        // Идентификаторы продолжают старую последовательность
+        assertThat(saved.getId()).isGreaterThan(legacyMaxId);
+        assertThat(partitionOf("/events/1")).isEqualTo(MONTH.partitionName(CURRENT));
+        assertThat(partitionOf("/events/2")).isEqualTo(MONTH.partitionName(MONTH.plus(CURRENT, 1)));
+        assertThat(partitionOf("/events/3")).isEqualTo("endpoint_hit_legacy");
+    }
+
+    @Test
+    @Order(3)
+    void rangeQuery_scansOnlyPartitionsOfTheRange() {
+        LocalDateTime start = CURRENT.plusDays(1);
+        LocalDateTime end = MONTH.plus(CURRENT, 1).minusSeconds(1);
+
+        String plan = String.join("\n", jdbc.queryForList("""
+                        EXPLAIN SELECT uri_id, COUNT(*) FROM endpoint_hit
+                        WHERE timestamp BETWEEN ? AND ?
+                        GROUP BY uri_id
+                        """,
+                String.class, Timestamp.valueOf(start), Timestamp.valueOf(end)));
+
+        assertThat(plan).contains(MONTH.partitionName(CURRENT))
+                .doesNotContain("endpoint_hit_legacy")
+                .doesNotContain("endpoint_hit_default")
+                .doesNotContain(MONTH.partitionName(MONTH.plus(CURRENT, -1)))
+                .doesNotContain(MONTH.partitionName(MONTH.plus(CURRENT, 1)));
+    }
+
+    @Test
+    @Order(4)
+    void retention_detachesExpiredPartitionsAndKeepsRollups() {
+        service.save(EndpointHitDto.builder()
+                .app("ewm-main-service").uri("/events/recent").ip("10.0.2.1").timestamp(LocalDateTime.now())
+                .build());
+
+        ReflectionTestUtils.setField(partitionManager, "retention", 1);
+        try {
+            partitionManager.maintain();
+        } finally {
+            ReflectionTestUtils.setField(partitionManager, "retention", 0);
+        }
+
+        // Текущий и один прошлый месяц остались, более старые хиты отключены вместе с секцией
+        assertThat(partitionManager.partitions()).extracting(HitPartitionManager.Partition::name)
+                .doesNotContain("endpoint_hit_legacy")
+                .contains(MONTH.partitionName(MONTH.plus(CURRENT, -1)), MONTH.partitionName(CURRENT));
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM endpoint_hit WHERE timestamp < ?", Long.class,
+                Timestamp.valueOf(MONTH.plus(CURRENT, -1)))).isZero();
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM endpoint_hit_legacy", Long.class)).isEqualTo(6);
+
+        // Неуникальная статистика за отключённые месяцы по-прежнему берётся из агрегатов
+        List<ViewStatsDto> stats = service.getStats(MONTH.plus(CURRENT, -15), LocalDateTime.now(),
+                List.of("/events/old", "/events/recent"), false);
+        assertThat(stats).extracting(ViewStatsDto::getUri, ViewStatsDto::getHits)
+                .containsExactlyInAnyOrder(tuple("/events/old", 3L), tuple("/events/recent", 3L));
+    }
+
+    private HitPartitionManager.Partition partition(LocalDateTime start) {
+        return new HitPartitionManager.Partition(MONTH.partitionName(start), start, MONTH.plus(start, 1), false);
+    }
+
+    private String partitionOf(String uri) {
+        return jdbc.queryForObject("""
+                        SELECT h.tableoid::regclass::text FROM endpoint_hit h
+                        JOIN hit_uri u ON u.id = h.uri_id
+                        WHERE u.name = ?
+                        """,
+                String.class, uri);
+    }
+}
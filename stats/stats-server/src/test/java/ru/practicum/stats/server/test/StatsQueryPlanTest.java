@@ -0,0 +1,182 @@
+package ru.practicum.stats.server.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.stats.server.StatsServerApplication;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.repository.EndpointHitRepository;
+import ru.practicum.stats.server.repository.HitDictionary;
+import ru.practicum.stats.server.repository.StatsRepository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Регрессия планов запросов статистики: на заметном объёме хитов запросы StatsRepository должны читать
+// покрывающие индексы endpoint_hit, а не всю таблицу. План строится для SQL, который реально сгенерировал
+// Hibernate. По умолчанию — H2 в каждой сборке; на PostgreSQL (проверяется и Index Only Scan):
+// mvn test -Dtest=StatsQueryPlanTest -Dstats.plans.jdbc-url=jdbc:postgresql://localhost:5432/stats_plans
+//          [-Dstats.plans.username=postgres -Dstats.plans.password= -Dstats.plans.rows=1000000]
+// База должна быть отдельной: endpoint_hit пересоздаётся.
+@Slf4j
+@SpringBootTest(classes = StatsServerApplication.class, properties = {
+        "spring.datasource.url=${stats.plans.jdbc-url:jdbc:h2:mem:stats-plans;DB_CLOSE_DELAY=-1}",
+        "spring.datasource.username=${stats.plans.username:postgres}",
+        "spring.datasource.password=${stats.plans.password:}",
+        "spring.datasource.driver-class-name=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "ru.practicum.stats.server.test.StatsQueryPlanTest$LastStatement"
+})
+class StatsQueryPlanTest {
+
+    private static final String TIMESTAMP_INDEX = "idx_endpoint_hit_timestamp_cover";
+    private static final String URI_INDEX = "idx_endpoint_hit_uri_timestamp_cover";
+
+    private static final int DAYS = 60;
+    private static final int URIS = 2_000;
+    private static final LocalDateTime END = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+    private static final LocalDateTime START = END.minusDays(DAYS);
+    private static final LocalDateTime DAY = END.minusDays(DAYS / 2);
+    private static final List<String> FILTER = List.of("/events/7", "/events/42", "/events/1500");
+
+    private static boolean seeded;
+
+    @Autowired
+    private StatsRepository statsRepository;
+
+    @Autowired
+    private EndpointHitRepository hitRepository;
+
+    @Autowired
+    private HitDictionary dictionary;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    // Последний SQL, отправленный Hibernate в этом потоке
+    public static class LastStatement implements StatementInspector {
+
+        private static final ThreadLocal<String> SQL = new ThreadLocal<>();
+
+        @Override
+        public String inspect(String sql) {
+            SQL.set(sql);
+            return sql;
+        }
+    }
+
+    @BeforeEach
+    void seed() {
+        if (seeded) {
+            return;
+        }
+        int rows = Integer.getInteger("stats.plans.rows", 50_000);
+        Random random = new Random(42);
+        hitRepository.deleteAllInBatch();
+
+        List<EndpointHit> batch = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            batch.add(EndpointHit.builder()
+                    .app(random.nextInt(10) == 0 ? "ewm-admin" : "ewm-main-service")
+                    .uri("/events/" + random.nextInt(URIS))
+                    .ip("10.0." + random.nextInt(20) + "." + random.nextInt(250))
+                    .timestamp(START.plusSeconds(random.nextLong(DAYS * 24L * 3600)))
+                    .build());
+            if (batch.size() == 10_000 || i == rows - 1) {
+                hitRepository.batchInsert(batch);
+                batch.clear();
+            }
+        }
+        jdbc.execute(isPostgres() ? "VACUUM ANALYZE endpoint_hit" : "ANALYZE");
+        seeded = true;
+        log.info("Seeded {} hits for query plan checks", rows);
+    }
+
+    @Test
+    void findStats_timeRangeUsesTimestampIndex() {
+        statsRepository.findStats(DAY, DAY.plusDays(1), null);
+        assertUsesIndex(TIMESTAMP_INDEX, false, DAY, DAY.plusDays(1));
+    }
+
+    @Test
+    void findStats_urisUseUriIndexOverWholeRange() {
+        statsRepository.findStats(START, END, FILTER);
+        assertUsesIndex(URI_INDEX, false, withUris(START, END));
+    }
+
+    @Test
+    void findStatsUnique_timeRangeIsIndexOnly() {
+        statsRepository.findStatsUnique(DAY, DAY.plusDays(1), null);
+        assertUsesIndex(TIMESTAMP_INDEX, true, DAY, DAY.plusDays(1));
+    }
+
+    @Test
+    void findStatsUnique_urisAreIndexOnly() {
+        statsRepository.findStatsUnique(START, END, FILTER);
+        assertUsesIndex(URI_INDEX, true, withUris(START, END));
+    }
+
+    @Test
+    void rangeEdges_useIndexes() {
+        LocalDateTime from = DAY.plusMinutes(30);
+        LocalDateTime to = DAY.plusHours(1);
+
+        // На коротком крае оба индекса хороши — планировщик выбирает по статистике
+        statsRepository.findStatsBefore(from, to, FILTER);
+        assertUsesIndex(null, false, withUris(from, to));
+
+        statsRepository.findVisitorsBefore(from, to, null);
+        assertUsesIndex(TIMESTAMP_INDEX, true, from, to);
+    }
+
+    // Фильтр по uri доходит до SQL ключами словаря
+    private Object[] withUris(LocalDateTime from, LocalDateTime to) {
+        return Stream.concat(dictionary.findUriIds(FILTER).stream(), Stream.of(from, to)).toArray();
+    }
+
+    // index == null — подходит любой из покрывающих индексов; параметры — в порядке их появления в SQL
+    private void assertUsesIndex(String index, boolean indexOnly, Object... params) {
+        String sql = LastStatement.SQL.get();
+        Object[] args = Stream.of(params)
+                .map(p -> p instanceof LocalDateTime t ? Timestamp.valueOf(t) : p)
+                .toArray();
+        String plan = String.join("\n", jdbc.queryForList("EXPLAIN " + sql, String.class, args));
+        String normalized = plan.toLowerCase();
+
+        // У секций PostgreSQL свои индексы: endpoint_hit_p202501_timestamp_cover и т.п.
+        String suffix = (index != null ? index : TIMESTAMP_INDEX).substring("idx_endpoint_hit".length());
+        Pattern usage = Pattern.compile((index == null || suffix.startsWith("_uri") ? "" : "(?<!_uri)")
+                + Pattern.quote(suffix));
+        assertThat(usage.matcher(normalized).find()).as("plan uses %s:%n%s", index != null ? index : "a covering index", plan).isTrue();
+        if (isPostgres()) {
+            assertThat(plan).as("plan without sequential scans:%n%s", plan).doesNotContain("Seq Scan");
+            if (indexOnly) {
+                assertThat(plan).as("index-only plan:%n%s", plan)
+                        .contains("Index Only Scan")
+                        .doesNotContain("Bitmap Heap Scan")
+                        .doesNotContain("Index Scan using");
+            }
+        } else {
+            assertThat(normalized).as("plan without table scans:%n%s", plan).doesNotContain("tablescan");
+        }
+    }
+
+    private static boolean isPostgres() {
+        return System.getProperty("stats.plans.jdbc-url", "").startsWith("jdbc:postgresql:");
+    }
+}
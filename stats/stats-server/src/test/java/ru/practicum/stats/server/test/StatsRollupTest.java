@@ -0,0 +1,283 @@
+package ru.practicum.stats.server.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.StatsServerApplication;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.HyperLogLog;
+import ru.practicum.stats.server.model.RollupGranularity;
+import ru.practicum.stats.server.repository.EndpointHitRepository;
+import ru.practicum.stats.server.repository.HitRollupRepository;
+import ru.practicum.stats.server.repository.StatsRepository;
+import ru.practicum.stats.server.service.HitRollupService;
+import ru.practicum.stats.server.service.RollupQueryPlanner;
+import ru.practicum.stats.server.service.StatsService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@Slf4j
+@SpringBootTest(classes = StatsServerApplication.class)
+@ActiveProfiles("test")
+class StatsRollupTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final int SPAN_SECONDS = 3 * 24 * 3600;
+
+    @Autowired
+    private StatsService service;
+
+    @Autowired
+    private HitRollupService rollupService;
+
+    @Autowired
+    private EndpointHitRepository repository;
+
+    @Autowired
+    private HitRollupRepository rollupRepository;
+
+    @Autowired
+    private StatsRepository statsRepository;
+
+    private final Random random = new Random(42);
+
+    @BeforeEach
+    void setup() {
+        repository.deleteAll();
+        rollupRepository.deleteAll();
+    }
+
+    private EndpointHitDto randomHit() {
+        return EndpointHitDto.builder()
+                .app(random.nextBoolean() ? "ewm-main" : "ewm-admin")
+                .uri("/events/" + random.nextInt(20))
+                .ip("10.0.0." + random.nextInt(250))
+                .timestamp(BASE.plusSeconds(random.nextInt(SPAN_SECONDS)))
+                .build();
+    }
+
+    private LocalDateTime randomMoment() {
+        LocalDateTime moment = BASE.minusHours(1).plusSeconds(random.nextInt(SPAN_SECONDS + 7200));
+        // Часть границ выровнена, чтобы проверить попадание хитов ровно на край бакета
+        return switch (random.nextInt(4)) {
+            case 0 -> RollupGranularity.MINUTE.floor(moment);
+            case 1 -> RollupGranularity.HOUR.floor(moment);
+            case 2 -> RollupGranularity.DAY.floor(moment);
+            default -> moment;
+        };
+    }
+
+    private static Map<String, Long> asMap(List<ViewStatsDto> stats) {
+        return stats.stream().collect(Collectors.toMap(ViewStatsDto::getUri, ViewStatsDto::getHits));
+    }
+
+    private static Map<String, Long> byAppAndUri(List<ViewStatsDto> stats) {
+        return stats.stream().collect(Collectors.toMap(s -> s.getApp() + s.getUri(), ViewStatsDto::getHits));
+    }
+
+    private static Map<String, String> apps(List<ViewStatsDto> stats) {
+        return stats.stream().collect(Collectors.toMap(ViewStatsDto::getUri, ViewStatsDto::getApp));
+    }
+
+    private void assertMatchesRawScan(int ranges) {
+        for (int i = 0; i < ranges; i++) {
+            LocalDateTime a = randomMoment();
+            LocalDateTime b = randomMoment();
+            LocalDateTime start = a.isBefore(b) ? a : b;
+            LocalDateTime end = a.isBefore(b) ? b : a;
+            List<String> uris = random.nextBoolean() ? null : List.of("/events/1", "/events/2", "/events/3");
+
+            List<ViewStatsDto> raw = statsRepository.findStats(start, end, uris);
+            List<ViewStatsDto> planned = service.getStats(start, end, uris, false);
+
+            assertThat(asMap(planned)).as("range %s .. %s", start, end).isEqualTo(asMap(raw));
+            assertThat(apps(planned)).isEqualTo(apps(raw));
+            assertThat(planned).isSortedAccordingTo((x, y) -> Long.compare(y.getHits(), x.getHits()));
+        }
+    }
+
+    @Test
+    void plan_shouldCoverRangeWithCoarseMiddleAndRawEdges() {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 23, 58, 30);
+        LocalDateTime end = LocalDateTime.of(2025, 1, 3, 1, 1, 15);
+
+        List<RollupQueryPlanner.Segment> plan = RollupQueryPlanner.plan(start, end);
+
+        assertThat(plan).extracting(RollupQueryPlanner.Segment::granularity)
+                .containsExactly(null, RollupGranularity.MINUTE, RollupGranularity.DAY,
+                        RollupGranularity.HOUR, RollupGranularity.MINUTE, null);
+        assertThat(plan.get(0).from()).isEqualTo(start);
+        assertThat(plan.get(plan.size() - 1).to()).isEqualTo(end);
+        assertThat(plan.get(plan.size() - 1).endInclusive()).isTrue();
+        for (int i = 1; i < plan.size(); i++) {
+            assertThat(plan.get(i).from()).isEqualTo(plan.get(i - 1).to());
+        }
+    }
+
+    @Test
+    void getStats_shouldMatchRawScanForBatchAndSingleIngestion() {
+        List<EndpointHitDto> batch = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            batch.add(randomHit());
+        }
+        service.saveAll(batch);
+        for (int i = 0; i < 200; i++) {
+            service.save(randomHit());
+        }
+
+        assertMatchesRawScan(200);
+    }
+
+    @Test
+    void getStats_shouldStayExactAfterHitsAreDeleted() {
+        List<EndpointHitDto> batch = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            batch.add(randomHit());
+        }
+        service.saveAll(batch);
+
+        List<EndpointHit> all = repository.findAll();
+        repository.deleteAll(all.subList(0, all.size() / 2));
+
+        assertMatchesRawScan(100);
+    }
+
+    @Test
+    void rebuild_shouldRestoreRollupsFromRawHits() {
+        List<EndpointHitDto> batch = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            batch.add(randomHit());
+        }
+        service.saveAll(batch);
+
+        rollupRepository.deleteAll();
+        rollupService.rebuild();
+
+        assertMatchesRawScan(100);
+    }
+
+    @Test
+    void hyperLogLog_shouldEstimateWithinErrorBoundAndSurviveSerialization() {
+        HyperLogLog left = new HyperLogLog();
+        HyperLogLog right = new HyperLogLog();
+        for (int i = 0; i < 100_000; i++) {
+            String ip = "10." + (i >> 16) + "." + ((i >> 8) & 255) + "." + (i & 255);
+            (i % 2 == 0 ? left : right).add(ip);
+        }
+
+        HyperLogLog small = new HyperLogLog();
+        for (int i = 0; i < 100; i++) {
+            small.add("192.168.0." + i);
+        }
+
+        assertThat(HyperLogLog.fromBytes(small.toBytes()).estimate()).isEqualTo(small.estimate()).isBetween(98L, 102L);
+        assertThat(small.toBytes().length).isLessThan(HyperLogLog.MAX_BYTES);
+
+        left.merge(HyperLogLog.fromBytes(right.toBytes()));
+        // 3 стандартные ошибки (≈4.9%) — граница, за которую оценка почти никогда не выходит
+        assertThat(HyperLogLog.fromBytes(left.toBytes()).estimate()).isBetween(95_100L, 104_900L);
+    }
+
+    @Test
+    void approximateUnique_shouldStayWithinErrorBoundOfExactCount() {
+        List<EndpointHitDto> batch = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            EndpointHitDto hit = randomHit();
+            hit.setIp("10." + random.nextInt(8) + "." + random.nextInt(250) + "." + random.nextInt(250));
+            batch.add(hit);
+        }
+        service.saveAll(batch);
+        List<EndpointHit> all = repository.findAll();
+        repository.deleteAll(all.subList(0, 200));
+
+        for (int i = 0; i < 50; i++) {
+            LocalDateTime a = randomMoment();
+            LocalDateTime b = randomMoment();
+            LocalDateTime start = a.isBefore(b) ? a : b;
+            LocalDateTime end = a.isBefore(b) ? b : a;
+
+            Map<String, Long> exact = byAppAndUri(service.getStats(start, end, null, true, false));
+            Map<String, Long> approximate = byAppAndUri(service.getStats(start, end, null, true, true));
+
+            assertThat(approximate.keySet()).isEqualTo(exact.keySet());
+            exact.forEach((uri, hits) -> assertThat(approximate.get(uri))
+                    .as("%s in %s .. %s", uri, start, end)
+                    .isCloseTo(hits, within(Math.max(3L, hits * 5 / 100))));
+            // 5% ≈ 3 стандартные ошибки; на малых множествах погрешность — редкие коллизии регистров
+        }
+    }
+
+    // Запуск: mvn test -Dstats.benchmark=true [-Dstats.benchmark.rows=10000000]
+    @Test
+    @EnabledIfSystemProperty(named = "stats.benchmark", matches = "true")
+    void benchmark_rollupsVersusRawScan() {
+        int rows = Integer.getInteger("stats.benchmark.rows", 10_000_000);
+        int days = 90;
+        int chunk = 10_000;
+
+        for (int offset = 0; offset < rows; offset += chunk) {
+            List<EndpointHit> hits = new ArrayList<>(chunk);
+            for (int i = 0; i < Math.min(chunk, rows - offset); i++) {
+                hits.add(EndpointHit.builder()
+                        .app("ewm-main")
+                        .uri("/events/" + random.nextInt(1000))
+                        .ip("10.0." + random.nextInt(250) + "." + random.nextInt(250))
+                        .timestamp(BASE.plusSeconds(random.nextInt(days * 24 * 3600)))
+                        .build());
+            }
+            repository.batchInsert(hits);
+        }
+        rollupService.rebuild();
+
+        LocalDateTime start = BASE.plusDays(3).plusMinutes(17).plusSeconds(5);
+        LocalDateTime end = BASE.plusDays(days - 3).minusMinutes(41).plusSeconds(50);
+        List<String> uris = List.of("/events/1", "/events/2", "/events/3");
+
+        // Прогрев на соседнем диапазоне: JIT и кэш страниц, но не кэш результатов запросов H2
+        LocalDateTime warmStart = start.plusDays(1);
+        statsRepository.findStats(warmStart, end, null);
+        rollupService.findStats(warmStart, end, null);
+        statsRepository.findStatsUnique(warmStart, end, null);
+        rollupService.findApproximateUniqueStats(warmStart, end, null);
+
+        for (List<String> filter : Arrays.asList(null, uris)) {
+            long rawStart = System.nanoTime();
+            List<ViewStatsDto> raw = statsRepository.findStats(start, end, filter);
+            long rawMillis = (System.nanoTime() - rawStart) / 1_000_000;
+
+            long rollupStart = System.nanoTime();
+            List<ViewStatsDto> planned = rollupService.findStats(start, end, filter);
+            long rollupMillis = (System.nanoTime() - rollupStart) / 1_000_000;
+
+            log.info("Stats over {} rows, uris={}: raw scan {} ms, rollups {} ms",
+                    rows, filter == null ? "all" : filter.size(), rawMillis, rollupMillis);
+            assertThat(asMap(planned)).isEqualTo(asMap(raw));
+
+            long exactStart = System.nanoTime();
+            statsRepository.findStatsUnique(start, end, filter);
+            long exactMillis = (System.nanoTime() - exactStart) / 1_000_000;
+
+            long sketchStart = System.nanoTime();
+            rollupService.findApproximateUniqueStats(start, end, filter);
+            long sketchMillis = (System.nanoTime() - sketchStart) / 1_000_000;
+
+            log.info("Unique stats over {} rows, uris={}: COUNT(DISTINCT) {} ms, HyperLogLog {} ms",
+                    rows, filter == null ? "all" : filter.size(), exactMillis, sketchMillis);
+        }
+    }
+}
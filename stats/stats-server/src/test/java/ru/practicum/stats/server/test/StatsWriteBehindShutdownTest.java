@@ -0,0 +1,92 @@
+package ru.practicum.stats.server.test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.stats.server.exception.HitBufferFullException;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.repository.EndpointHitRepository;
+import ru.practicum.stats.server.repository.HitDictionary;
+import ru.practicum.stats.server.service.HitIngestionPipeline;
+import ru.practicum.stats.server.service.HitRollupService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+// Остановка отложенной записи под нагрузкой: каждый хит, на который submit ответил без исключения (202),
+// записан, даже если он принят в момент остановки
+class StatsWriteBehindShutdownTest {
+
+    @Test
+    void stopUnderLoad_writesEveryAcceptedHit() throws Exception {
+        Set<EndpointHit> written = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+        EndpointHitRepository repository = mock(EndpointHitRepository.class);
+        doAnswer(invocation -> written.addAll(invocation.<List<EndpointHit>>getArgument(0)))
+                .when(repository).batchInsert(anyList());
+
+        HitIngestionPipeline pipeline = new HitIngestionPipeline(repository, mock(HitDictionary.class),
+                mock(HitRollupService.class), mock(JdbcTemplate.class), mock(PlatformTransactionManager.class),
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(pipeline, "enabled", true);
+        ReflectionTestUtils.setField(pipeline, "capacity", 1 << 16);
+        ReflectionTestUtils.setField(pipeline, "writers", 2);
+        ReflectionTestUtils.setField(pipeline, "batchSize", 64);
+        ReflectionTestUtils.setField(pipeline, "copy", false);
+        ReflectionTestUtils.setField(pipeline, "journalPath", "");
+        ReflectionTestUtils.setField(pipeline, "shutdownTimeoutMs", 10_000L);
+        ReflectionTestUtils.invokeMethod(pipeline, "start");
+
+        int producers = 8;
+        CountDownLatch started = new CountDownLatch(producers);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        List<Future<List<EndpointHit>>> producing = new ArrayList<>();
+        try {
+            for (int p = 0; p < producers; p++) {
+                producing.add(executor.submit(() -> {
+                    List<EndpointHit> accepted = new ArrayList<>();
+                    started.countDown();
+                    for (int i = 0; ; i++) {
+                        EndpointHit hit = EndpointHit.builder().app("ewm").uri("/events/" + i).ip("10.0.0.1").build();
+                        try {
+                            pipeline.submit(hit);
+                            accepted.add(hit);
+                        } catch (HitBufferFullException e) {
+                            if (e.getMessage().contains("not accepting")) {
+                                return accepted;
+                            }
+                        }
+                    }
+                }));
+            }
+            started.await(10, TimeUnit.SECONDS);
+            Thread.sleep(50);
+            ReflectionTestUtils.invokeMethod(pipeline, "stop");
+
+            int accepted = 0;
+            for (Future<List<EndpointHit>> future : producing) {
+                List<EndpointHit> hits = future.get(10, TimeUnit.SECONDS);
+                accepted += hits.size();
+                assertThat(written).containsAll(hits);
+            }
+            assertThat(accepted).isPositive();
+            assertThat(written).hasSize(accepted);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package ru.practicum.stats.server.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.util.FileSystemUtils;
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.server.StatsServerApplication;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.HitRingBuffer;
+import ru.practicum.stats.server.service.HitIngestionPipeline;
+import ru.practicum.stats.server.service.HitJournal;
+import ru.practicum.stats.server.service.HitRollupService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.reset;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Отложенная запись POST /hit: 202 после постановки в буфер, 429 при переполнении, повтор журнала при старте,
+// восстановление писателя после сбоя БД.
+// Агрегаты подменены: через них тест останавливает писателей. Контекст, писатель и журнал общие для всех
+// методов, поэтому каждый начинается и заканчивается при пустом буфере и простаивающем писателе
+@SpringBootTest(classes = StatsServerApplication.class, properties = {
+        "stats.ingest.write-behind.enabled=true",
+        "stats.ingest.write-behind.capacity=16",
+        "stats.ingest.write-behind.writers=1",
+        "stats.ingest.write-behind.batch-size=4",
+        "stats.ingest.write-behind.journal=target/write-behind-test/journal",
+        "stats.ingest.write-behind.journal-segment-size=65536"
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class StatsWriteBehindTest {
+
+    private static final Path JOURNAL = Path.of("target/write-behind-test/journal");
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private HitIngestionPipeline pipeline;
+
+    @MockBean
+    private HitRollupService rollupService;
+
+    private static List<Path> previousSegments;
+
+    private final CountDownLatch writersGate = new CountDownLatch(1);
+
+    // Хиты, подтверждённые до «падения» прошлого запуска и не успевшие попасть в БД
+    @BeforeAll
+    static void writeJournalOfPreviousRun() throws Exception {
+        FileSystemUtils.deleteRecursively(JOURNAL);
+        try (HitJournal journal = new HitJournal(JOURNAL, 65536, true)) {
+            for (int i = 0; i < 3; i++) {
+                journal.append(EndpointHit.builder()
+                        .app("ewm").uri("/events/journal").ip("10.0.0." + i).timestamp(NOW).build());
+            }
+            journal.sync();
+        }
+        previousSegments = listJournal();
+    }
+
+    @BeforeEach
+    void awaitIdleWriters() throws InterruptedException {
+        awaitUntil(pipeline::isIdle);
+    }
+
+    // Заглушка агрегатов снимается только у простаивающего писателя: Mockito не допускает
+    // перенастройку мока одновременно с его вызовом из другого потока
+    @AfterEach
+    void releaseWriters() throws InterruptedException {
+        writersGate.countDown();
+        awaitUntil(pipeline::isIdle);
+        reset(rollupService);
+    }
+
+    @Test
+    void startup_replaysJournalIntoDatabase() throws Exception {
+        assertThat(previousSegments).hasSize(1);
+        assertThat(countHits("/events/journal")).isEqualTo(3);
+        assertThat(listJournal()).doesNotContainAnyElementsOf(previousSegments);
+    }
+
+    @Test
+    void hit_isAcceptedAndWrittenByWriters() throws Exception {
+        mockMvc.perform(post("/hit")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(hit("/events/accepted", "10.0.1.1"))))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.uri").value("/events/accepted"));
+
+        awaitUntil(() -> countHits("/events/accepted") == 1);
+        // Сохранённое отмечено в журнале: после рестарта повторять нечего
+        awaitUntil(() -> unsavedInJournal() == 0);
+    }
+
+    @Test
+    void fullBuffer_rejectsWith429UntilWritersCatchUp() throws Exception {
+        doAnswer(invocation -> writersGate.await(10, TimeUnit.SECONDS)).when(rollupService).record(any());
+
+        int accepted = 0;
+        int status = 0;
+        while (status != 429 && accepted < 100) {
+            status = mockMvc.perform(post("/hit")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(hit("/events/burst", "10.0.2." + accepted))))
+                    .andReturn().getResponse().getStatus();
+            if (status == 202) {
+                accepted++;
+            }
+        }
+
+        // Буфер и пачка, застрявшая у писателя
+        assertThat(status).isEqualTo(429);
+        assertThat(accepted).isBetween(16, 16 + 4);
+        mockMvc.perform(post("/hit")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(hit("/events/burst", "10.0.3.1"))))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(result -> assertThat(result.getResponse().getHeader(HttpHeaders.RETRY_AFTER))
+                        .isEqualTo("1"));
+
+        writersGate.countDown();
+        int expected = accepted;
+        awaitUntil(() -> countHits("/events/burst") == expected);
+        assertThat(pipeline.bufferedHits()).isZero();
+
+        mockMvc.perform(post("/hit")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(hit("/events/burst", "10.0.3.2"))))
+                .andExpect(status().isAccepted());
+    }
+
+    // Сбой БД во время поштучной записи после нарушения ограничения не завершает единственного писателя:
+    // хит повторяется и сохраняется, следующие хиты тоже пишутся
+    @Test
+    void databaseFailureInOneByOneFallback_writerRecovers() throws Exception {
+        doThrow(new DataIntegrityViolationException("constraint"))
+                .doThrow(new DataAccessResourceFailureException("connection lost"))
+                .doNothing()
+                .when(rollupService).record(any());
+
+        mockMvc.perform(post("/hit")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(hit("/events/recovered", "10.0.4.1"))))
+                .andExpect(status().isAccepted());
+        awaitUntil(() -> countHits("/events/recovered") == 1);
+
+        mockMvc.perform(post("/hit")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(hit("/events/recovered", "10.0.4.2"))))
+                .andExpect(status().isAccepted());
+        awaitUntil(() -> countHits("/events/recovered") == 2);
+    }
+
+    @Test
+    void ringBuffer_deliversEveryHitExactlyOnceUnderContention() throws Exception {
+        HitRingBuffer<EndpointHit> buffer = new HitRingBuffer<>(1000);
+        assertThat(buffer.capacity()).isEqualTo(1024);
+
+        int producers = 4;
+        int perProducer = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers + 2);
+        try {
+            List<Future<?>> producing = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                producing.add(executor.submit(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        EndpointHit hit = EndpointHit.builder().uri("/events/" + i).build();
+                        while (!buffer.offer(hit)) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                }));
+            }
+
+            Set<EndpointHit> consumed = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+            List<Future<?>> consuming = new ArrayList<>();
+            for (int c = 0; c < 2; c++) {
+                consuming.add(executor.submit(() -> {
+                    List<EndpointHit> batch = new ArrayList<>();
+                    while (consumed.size() < producers * perProducer) {
+                        batch.clear();
+                        buffer.drainTo(batch, 64);
+                        consumed.addAll(batch);
+                    }
+                }));
+            }
+
+            for (Future<?> future : producing) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+            for (Future<?> future : consuming) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+            assertThat(consumed).hasSize(producers * perProducer);
+            assertThat(buffer.poll()).isNull();
+            assertThat(buffer.size()).isZero();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private EndpointHitDto hit(String uri, String ip) {
+        return EndpointHitDto.builder().app("ewm").uri(uri).ip(ip).timestamp(NOW).build();
+    }
+
+    private long countHits(String uri) {
+        return jdbc.queryForObject("""
+                SELECT COUNT(*) FROM endpoint_hit h
+                JOIN hit_uri u ON u.id = h.uri_id
+                WHERE u.name = ?
+                """, Long.class, uri);
+    }
+
+    private static int unsavedInJournal() {
+        try (HitJournal journal = new HitJournal(JOURNAL, 65536, false)) {
+            return journal.readAll().size();
+        }
+    }
+
+    private static List<Path> listJournal() throws IOException {
+        try (Stream<Path> files = Files.list(JOURNAL)) {
+            return files.toList();
+        }
+    }
+
+    private static void awaitUntil(Supplier<Boolean> condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.get()) {
+            assertThat(System.nanoTime()).as("condition not met in 10 s").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+}